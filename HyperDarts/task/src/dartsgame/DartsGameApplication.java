@@ -2,8 +2,10 @@ package dartsgame;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class DartsGameApplication {
     public static void main(String[] args) {
         SpringApplication.run(DartsGameApplication.class, args);
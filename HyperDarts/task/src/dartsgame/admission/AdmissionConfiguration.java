@@ -0,0 +1,32 @@
+package dartsgame.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Registers the admission filter for the game, history and practice APIs after the security filters, so the
+ * principal of the request is known.
+ */
+@Configuration
+public class AdmissionConfiguration {
+
+    @Bean
+    public FilterRegistrationBean<AdmissionFilter> admissionFilter(
+            MeterRegistry meterRegistry,
+            @Value("${admission.read.per-principal-per-second:20}") double readsPerSecond,
+            @Value("${admission.read.per-principal-burst:40}") int readBurst,
+            @Value("${admission.read.global-per-second:1000}") double globalReadsPerSecond,
+            @Value("${admission.read.global-burst:2000}") int globalReadBurst,
+            @Value("${admission.write.per-principal-per-second:10}") double writesPerSecond,
+            @Value("${admission.write.per-principal-burst:20}") int writeBurst) {
+        FilterRegistrationBean<AdmissionFilter> registration = new FilterRegistrationBean<>(new AdmissionFilter(
+                meterRegistry, readsPerSecond, readBurst, globalReadsPerSecond, globalReadBurst, writesPerSecond, writeBurst));
+        registration.addUrlPatterns("/api/game/*", "/api/history/*", "/api/practice/*");
+        registration.setOrder(Ordered.LOWEST_PRECEDENCE);
+        return registration;
+    }
+}
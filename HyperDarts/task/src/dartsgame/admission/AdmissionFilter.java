@@ -0,0 +1,102 @@
+package dartsgame.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for the game and history APIs, keyed by the authenticated principal.
+ * Reads (GET) go through a bucket of the principal and a global read bucket, writes only through a bucket of
+ * the principal, so a client polling the status in a loop is shed before it can slow down anybody's throws.
+ * A rejected request gets 429 with Retry-After, rejections are counted as "admission.rejected".
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private final double readsPerSecond;
+    private final int readBurst;
+    private final double writesPerSecond;
+    private final int writeBurst;
+    private final TokenBucket globalReads;
+    private final Cache<String, TokenBucket> principalReads;
+    private final Cache<String, TokenBucket> principalWrites;
+    private final Counter principalReadRejections;
+    private final Counter globalReadRejections;
+    private final Counter principalWriteRejections;
+
+    public AdmissionFilter(MeterRegistry meterRegistry,
+                           double readsPerSecond,
+                           int readBurst,
+                           double globalReadsPerSecond,
+                           int globalReadBurst,
+                           double writesPerSecond,
+                           int writeBurst) {
+        this.readsPerSecond = readsPerSecond;
+        this.readBurst = readBurst;
+        this.writesPerSecond = writesPerSecond;
+        this.writeBurst = writeBurst;
+        this.globalReads = new TokenBucket(globalReadsPerSecond, globalReadBurst);
+        //A bucket that was idle for a minute is full again, dropping it does not change any decision
+        this.principalReads = Caffeine.newBuilder().expireAfterAccess(Duration.ofMinutes(1)).build();
+        this.principalWrites = Caffeine.newBuilder().expireAfterAccess(Duration.ofMinutes(1)).build();
+        this.principalReadRejections = rejectionCounter(meterRegistry, "read", "principal");
+        this.globalReadRejections = rejectionCounter(meterRegistry, "read", "global");
+        this.principalWriteRejections = rejectionCounter(meterRegistry, "write", "principal");
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String kind, String scope) {
+        return Counter.builder("admission.rejected")
+                .description("Requests rejected by admission control")
+                .tag("kind", kind)
+                .tag("scope", scope)
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        long now = System.nanoTime();
+        long waitNanos;
+        if (HttpMethod.GET.matches(request.getMethod())) {
+            waitNanos = principalReads.get(auth.getName(), name -> new TokenBucket(readsPerSecond, readBurst)).tryAcquire(now);
+            if (waitNanos > 0) {
+                principalReadRejections.increment();
+            } else if ((waitNanos = globalReads.tryAcquire(now)) > 0) {
+                globalReadRejections.increment();
+            }
+        } else {
+            waitNanos = principalWrites.get(auth.getName(), name -> new TokenBucket(writesPerSecond, writeBurst)).tryAcquire(now);
+            if (waitNanos > 0) {
+                principalWriteRejections.increment();
+            }
+        }
+
+        if (waitNanos > 0) {
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader("Retry-After", String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1)));
+            response.setContentType("application/json");
+            response.getWriter().write("{\"result\":\"Too many requests!\"}");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+}
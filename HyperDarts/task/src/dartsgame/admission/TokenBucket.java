@@ -0,0 +1,41 @@
+package dartsgame.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its "generic cell rate" form: the only state is the time at which the bucket would be
+ * full again, updated with a single compare-and-set per request.
+ */
+public final class TokenBucket {
+    private final long nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param tokensPerSecond - sustained rate of admitted requests
+     * @param burst - number of requests admitted at once after the bucket was idle
+     */
+    public TokenBucket(double tokensPerSecond, int burst) {
+        this.nanosPerToken = (long) (1_000_000_000L / tokensPerSecond);
+        this.burstNanos = nanosPerToken * burst;
+    }
+
+    /**
+     * Takes a token if there is one.
+     * @param now - current time from System.nanoTime()
+     * @return - 0 if the token was taken, otherwise the nanoseconds to wait until one is available
+     */
+    public long tryAcquire(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + nanosPerToken;
+            long overdraft = next - now - burstNanos;
+            if (overdraft > 0) {
+                return overdraft;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
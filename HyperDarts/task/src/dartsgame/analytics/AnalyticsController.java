@@ -0,0 +1,45 @@
+package dartsgame.analytics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    private final HistoryAnalytics historyAnalytics;
+
+    @Autowired
+    public AnalyticsController(HistoryAnalytics historyAnalytics) {
+        this.historyAnalytics = historyAnalytics;
+    }
+
+    /**
+     * Average points of a visit for each game mode (101, 301, 501).
+     */
+    @GetMapping("/average-score")
+    public ResponseEntity<List<ScoreByTarget>> getAverageScoreByTarget() {
+        return ResponseEntity.ok(historyAnalytics.averageScoreByTarget());
+    }
+
+    /**
+     * Share of busted visits for each remaining score.
+     */
+    @GetMapping("/bust-frequency")
+    public ResponseEntity<List<BustFrequency>> getBustFrequency() {
+        return ResponseEntity.ok(historyAnalytics.bustFrequencyByRemaining());
+    }
+
+    /**
+     * Checkout attempts and hits for each double.
+     */
+    @GetMapping("/checkout-by-double")
+    public ResponseEntity<List<CheckoutByDouble>> getCheckoutsByDouble() {
+        return ResponseEntity.ok(historyAnalytics.checkoutsByDouble());
+    }
+}
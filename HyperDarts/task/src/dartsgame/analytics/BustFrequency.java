@@ -0,0 +1,31 @@
+package dartsgame.analytics;
+
+public class BustFrequency {
+    private final int remainingScore;
+    private final long visits;
+    private final long busts;
+    private final double bustRate;
+
+    public BustFrequency(int remainingScore, long visits, long busts) {
+        this.remainingScore = remainingScore;
+        this.visits = visits;
+        this.busts = busts;
+        this.bustRate = (double) busts / visits;
+    }
+
+    public int getRemainingScore() {
+        return remainingScore;
+    }
+
+    public long getVisits() {
+        return visits;
+    }
+
+    public long getBusts() {
+        return busts;
+    }
+
+    public double getBustRate() {
+        return bustRate;
+    }
+}
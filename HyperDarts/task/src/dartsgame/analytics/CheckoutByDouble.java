@@ -0,0 +1,34 @@
+package dartsgame.analytics;
+
+public class CheckoutByDouble {
+    private final String target;
+    private final long attempts;
+    private final long hits;
+    private final double successRate;
+
+    public CheckoutByDouble(String target, long attempts, long hits) {
+        this.target = target;
+        this.attempts = attempts;
+        this.hits = hits;
+        this.successRate = (double) hits / attempts;
+    }
+
+    /**
+     * @return - D1 to D20 or BULL
+     */
+    public String getTarget() {
+        return target;
+    }
+
+    public long getAttempts() {
+        return attempts;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public double getSuccessRate() {
+        return successRate;
+    }
+}
@@ -0,0 +1,236 @@
+package dartsgame.analytics;
+
+import dartsgame.game.rules.Visit;
+import dartsgame.game.rules.VisitOutcome;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Aggregates over every visit ever played, computed from an in-memory columnar copy of the game history instead of
+ * the transactional tables. Visits are derived from consecutive game states of a game; the copy follows new states
+ * by their database id. A revert rewrites history, so it triggers a full reload on the next refresh.
+ */
+@Service
+//The copy of the history is refreshed from startup, not from the first analytics request on
+@Lazy(false)
+public class HistoryAnalytics {
+
+    private static final String NEW_STATES_QUERY = "SELECT database_id, game_id, move, player_one_id, game_status, " +
+            "player_one_scores, player_two_scores, turn_id, darts FROM game_state WHERE database_id > ? ORDER BY database_id";
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int MAX_SCORE = 501;
+    private static final int BULL = 21;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    //Only touched by refresh(), which is synchronized
+    private VisitColumns columns = new VisitColumns();
+    private Map<Long, LastState> lastStates = new HashMap<>();
+    private long lastDatabaseId;
+    private boolean rebuildNeeded;
+
+    private volatile VisitColumns.Snapshot snapshot = VisitColumns.Snapshot.EMPTY;
+
+    public HistoryAnalytics(DataSource dataSource, @Value("${analytics.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Loads the game states added since the last refresh and publishes the new visits to the queries.
+     */
+    @Scheduled(fixedDelayString = "${analytics.refresh-ms:10000}")
+    public synchronized void refresh() {
+        jdbcTemplate.query(NEW_STATES_QUERY, this::addState, lastDatabaseId);
+        if (rebuildNeeded) {
+            columns = new VisitColumns();
+            lastStates = new HashMap<>();
+            lastDatabaseId = 0;
+            rebuildNeeded = false;
+            jdbcTemplate.query(NEW_STATES_QUERY, this::addState, lastDatabaseId);
+        }
+        snapshot = columns.snapshot();
+    }
+
+    private void addState(ResultSet rs) throws SQLException {
+        lastDatabaseId = rs.getLong("database_id");
+        long gameId = rs.getLong("game_id");
+        int move = rs.getInt("move");
+        int playerOneScore = rs.getInt("player_one_scores");
+        int playerTwoScore = rs.getInt("player_two_scores");
+        String status = rs.getString("game_status");
+        boolean playerOnesTurn = rs.getInt("turn_id") == rs.getInt("player_one_id");
+        int darts = rs.getInt("darts");
+        if (rs.wasNull()) {
+            darts = VisitColumns.NO_DARTS;
+        }
+
+        LastState previous = lastStates.get(gameId);
+        if (previous == null || move <= previous.move) {
+            if (previous != null) {
+                rebuildNeeded = true;
+            }
+            //The first state of a game is the join, both players still have the target score
+            lastStates.put(gameId, new LastState(move, playerOneScore, playerOneScore, playerTwoScore, playerOnesTurn));
+            return;
+        }
+
+        //The winner is stored as "#<player_id> wins!"
+        boolean checkout = status.endsWith(" wins!") && !status.startsWith("Nobody");
+        if (checkout || playerOnesTurn != previous.playerOnesTurn) {
+            boolean throwerIsPlayerOne = previous.playerOnesTurn;
+            int before = throwerIsPlayerOne ? previous.playerOneScore : previous.playerTwoScore;
+            int after = throwerIsPlayerOne ? playerOneScore : playerTwoScore;
+            VisitOutcome outcome;
+            if (checkout) {
+                outcome = VisitOutcome.CHECKOUT;
+            } else if (after == before && (darts == VisitColumns.NO_DARTS || points(darts) > 0)) {
+                //Without darts a visit that left the score unchanged is taken as a bust
+                outcome = VisitOutcome.BUST;
+            } else {
+                outcome = VisitOutcome.SCORED;
+            }
+            columns.append(gameId, previous.targetScore, before, before - after, outcome, darts);
+        }
+        lastStates.put(gameId, new LastState(move, previous.targetScore, playerOneScore, playerTwoScore, playerOnesTurn));
+    }
+
+    private static int points(int packedDarts) {
+        Visit visit = Visit.fromPacked(packedDarts);
+        int points = 0;
+        for (int i = 0; i < Visit.DARTS; i++) {
+            points += visit.getPoints(i);
+        }
+        return points;
+    }
+
+    /**
+     * @return - average points of a visit (0 for a bust) for each played target score
+     */
+    public List<ScoreByTarget> averageScoreByTarget() {
+        VisitColumns.Snapshot columns = snapshot;
+        long[] sums = scan(columns, 2 * (MAX_SCORE + 1), (row, sums) -> {
+            int target = columns.targetScores[row];
+            sums[target]++;
+            sums[MAX_SCORE + 1 + target] += columns.points[row];
+        });
+        List<ScoreByTarget> result = new ArrayList<>();
+        for (int target = 0; target <= MAX_SCORE; target++) {
+            if (sums[target] > 0) {
+                result.add(new ScoreByTarget(target, sums[target], (double) sums[MAX_SCORE + 1 + target] / sums[target]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return - share of busted visits for each remaining score a visit was started from
+     */
+    public List<BustFrequency> bustFrequencyByRemaining() {
+        VisitColumns.Snapshot columns = snapshot;
+        long[] sums = scan(columns, 2 * (MAX_SCORE + 1), (row, sums) -> {
+            int remaining = columns.remainingBefore[row];
+            sums[remaining]++;
+            if (columns.outcome(row) == VisitOutcome.BUST) {
+                sums[MAX_SCORE + 1 + remaining]++;
+            }
+        });
+        List<BustFrequency> result = new ArrayList<>();
+        for (int remaining = 0; remaining <= MAX_SCORE; remaining++) {
+            if (sums[remaining] > 0) {
+                result.add(new BustFrequency(remaining, sums[remaining], sums[MAX_SCORE + 1 + remaining]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Counts every dart thrown at a finishing double (remaining 40 or less and even, or 50 for the bull) and how
+     * many of them hit it. Only visits with recorded darts are counted.
+     * @return - attempts and hits for D1 to D20 and the bull
+     */
+    public List<CheckoutByDouble> checkoutsByDouble() {
+        VisitColumns.Snapshot columns = snapshot;
+        long[] sums = scan(columns, 2 * (BULL + 1), (row, sums) -> {
+            if (columns.darts[row] == VisitColumns.NO_DARTS) {
+                return;
+            }
+            Visit visit = Visit.fromPacked(columns.darts[row]);
+            int remaining = columns.remainingBefore[row];
+            for (int i = 0; i < Visit.DARTS && !visit.isNone(i) && remaining > 1; i++) {
+                int target = remaining == 50 ? BULL : remaining <= 40 && remaining % 2 == 0 ? remaining / 2 : 0;
+                if (target > 0) {
+                    sums[target]++;
+                    if (visit.getMultiplicator(i) == 2 && visit.getScore(i) * 2 == remaining) {
+                        sums[BULL + 1 + target]++;
+                    }
+                }
+                remaining -= visit.getPoints(i);
+            }
+        });
+        List<CheckoutByDouble> result = new ArrayList<>();
+        for (int target = 1; target <= BULL; target++) {
+            if (sums[target] > 0) {
+                result.add(new CheckoutByDouble(target == BULL ? "BULL" : "D" + target, sums[target], sums[BULL + 1 + target]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs an aggregation over the rows of a snapshot in parallel chunks, each chunk with its own counters.
+     * @return - the summed counters
+     */
+    private static long[] scan(VisitColumns.Snapshot columns, int counters, RowAggregator aggregator) {
+        int chunks = (columns.size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> {
+                    long[] sums = new long[counters];
+                    int end = Math.min(columns.size, (chunk + 1) * CHUNK_SIZE);
+                    for (int row = chunk * CHUNK_SIZE; row < end; row++) {
+                        aggregator.add(row, sums);
+                    }
+                    return sums;
+                })
+                .reduce(new long[counters], (a, b) -> {
+                    long[] sum = new long[counters];
+                    for (int i = 0; i < counters; i++) {
+                        sum[i] = a[i] + b[i];
+                    }
+                    return sum;
+                });
+    }
+
+    @FunctionalInterface
+    private interface RowAggregator {
+        void add(int row, long[] sums);
+    }
+
+    private static final class LastState {
+        private final int move;
+        private final int targetScore;
+        private final int playerOneScore;
+        private final int playerTwoScore;
+        private final boolean playerOnesTurn;
+
+        private LastState(int move, int targetScore, int playerOneScore, int playerTwoScore, boolean playerOnesTurn) {
+            this.move = move;
+            this.targetScore = targetScore;
+            this.playerOneScore = playerOneScore;
+            this.playerTwoScore = playerTwoScore;
+            this.playerOnesTurn = playerOnesTurn;
+        }
+    }
+}
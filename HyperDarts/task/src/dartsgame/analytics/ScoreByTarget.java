@@ -0,0 +1,25 @@
+package dartsgame.analytics;
+
+public class ScoreByTarget {
+    private final int targetScore;
+    private final long visits;
+    private final double averageScore;
+
+    public ScoreByTarget(int targetScore, long visits, double averageScore) {
+        this.targetScore = targetScore;
+        this.visits = visits;
+        this.averageScore = averageScore;
+    }
+
+    public int getTargetScore() {
+        return targetScore;
+    }
+
+    public long getVisits() {
+        return visits;
+    }
+
+    public double getAverageScore() {
+        return averageScore;
+    }
+}
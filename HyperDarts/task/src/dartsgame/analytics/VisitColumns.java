@@ -0,0 +1,75 @@
+package dartsgame.analytics;
+
+import dartsgame.game.rules.VisitOutcome;
+
+import java.util.Arrays;
+
+/**
+ * Visits derived from the game history, one primitive array per attribute. A single writer appends to the
+ * arrays and publishes read-only {@link Snapshot}s; a snapshot only reads below its own size, so appending never
+ * disturbs a running scan.
+ */
+class VisitColumns {
+    static final int NO_DARTS = -1;
+
+    private long[] gameIds = new long[1024];
+    private short[] targetScores = new short[1024];
+    private short[] remainingBefore = new short[1024];
+    private short[] points = new short[1024];
+    private byte[] outcomes = new byte[1024];
+    private int[] darts = new int[1024];
+    private int size;
+
+    void append(long gameId, int targetScore, int remaining, int scored, VisitOutcome outcome, int packedDarts) {
+        if (size == gameIds.length) {
+            int capacity = size * 2;
+            gameIds = Arrays.copyOf(gameIds, capacity);
+            targetScores = Arrays.copyOf(targetScores, capacity);
+            remainingBefore = Arrays.copyOf(remainingBefore, capacity);
+            points = Arrays.copyOf(points, capacity);
+            outcomes = Arrays.copyOf(outcomes, capacity);
+            darts = Arrays.copyOf(darts, capacity);
+        }
+        gameIds[size] = gameId;
+        targetScores[size] = (short) targetScore;
+        remainingBefore[size] = (short) remaining;
+        points[size] = (short) scored;
+        outcomes[size] = (byte) outcome.ordinal();
+        darts[size] = packedDarts;
+        size++;
+    }
+
+    Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    /**
+     * Read-only view of the first rows of the columns.
+     */
+    static final class Snapshot {
+        static final Snapshot EMPTY = new VisitColumns().snapshot();
+        private static final VisitOutcome[] OUTCOMES = VisitOutcome.values();
+
+        final long[] gameIds;
+        final short[] targetScores;
+        final short[] remainingBefore;
+        final short[] points;
+        final byte[] outcomes;
+        final int[] darts;
+        final int size;
+
+        private Snapshot(VisitColumns columns) {
+            this.gameIds = columns.gameIds;
+            this.targetScores = columns.targetScores;
+            this.remainingBefore = columns.remainingBefore;
+            this.points = columns.points;
+            this.outcomes = columns.outcomes;
+            this.darts = columns.darts;
+            this.size = columns.size;
+        }
+
+        VisitOutcome outcome(int row) {
+            return OUTCOMES[outcomes[row]];
+        }
+    }
+}
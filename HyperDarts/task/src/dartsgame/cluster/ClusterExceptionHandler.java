@@ -0,0 +1,33 @@
+package dartsgame.cluster;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Sends changes of games owned by another node to that node. 307 keeps the method and the body, so the client
+ * repeats the same request there; the access token is valid on every node.
+ */
+@RestControllerAdvice
+public class ClusterExceptionHandler {
+
+    @ExceptionHandler(GameNotOwnedException.class)
+    public ResponseEntity<Map> redirectToOwner(GameNotOwnedException e, HttpServletRequest request) {
+        if (e.getOwnerUrl() == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Collections.singletonMap("result", "Game is moving to another node, try again!"));
+        }
+        String location = e.getOwnerUrl() + request.getRequestURI()
+                + (request.getQueryString() == null ? "" : "?" + request.getQueryString());
+        return ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT)
+                .header(HttpHeaders.LOCATION, location)
+                .body(Collections.singletonMap("result", "Game is served by another node!"));
+    }
+}
@@ -0,0 +1,29 @@
+package dartsgame.cluster;
+
+/**
+ * Thrown when a game is changed, or a tournament is served, on a node that does not own its partition.
+ */
+public class GameNotOwnedException extends RuntimeException {
+
+    private final String ownerUrl;
+
+    public GameNotOwnedException(Long gameId, String ownerUrl) {
+        this("Game " + gameId, ownerUrl);
+    }
+
+    /**
+     * @param subject - what is not owned, e.g. "Tournament 3"
+     * @param ownerUrl - base URL of the owning node, or null while the partition is handed off
+     */
+    public GameNotOwnedException(String subject, String ownerUrl) {
+        super(subject + " is not owned by this node");
+        this.ownerUrl = ownerUrl;
+    }
+
+    /**
+     * @return - base URL of the owning node, or null while the partition is handed off
+     */
+    public String getOwnerUrl() {
+        return ownerUrl;
+    }
+}
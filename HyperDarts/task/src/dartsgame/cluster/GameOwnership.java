@@ -0,0 +1,301 @@
+package dartsgame.cluster;
+
+import dartsgame.game.journal.MoveJournal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Decides which node of a cluster changes a game. Games are split into partitions by id, every partition has
+ * exactly one owner recorded in the shared database, and only the owner applies changes to the games of a partition.
+ * Within a node the changes of one game are serialized, so two requests can no longer overwrite each other.
+ * <p>
+ * Every node renews its heartbeat and computes the wanted owner of each partition by rendezvous hashing over the
+ * live nodes, so a joining or leaving node only moves its own share of partitions. A node releases partitions that
+ * should move after its in-flight changes are done and its journal is materialized; the wanted owner claims a
+ * partition once it is released or its owner's heartbeat expired. A node stops changing games when it could not
+ * renew its heartbeat for half of the lease, well before anyone else may claim its partitions.
+ * <p>
+ * With the cluster disabled the node owns every game.
+ */
+@Component
+//Leaving the cluster waits for the journal, so the materializer has to stop after this bean
+@DependsOn("journalMaterializer")
+//The heartbeat has to run from startup, with lazy initialization a node would neither claim partitions nor renew
+//its lease until a request needed this bean
+@Lazy(false)
+public class GameOwnership {
+
+    private static final Logger log = LoggerFactory.getLogger(GameOwnership.class);
+
+    //Has to match the rows seeded by the V5 migration
+    public static final int PARTITIONS = 64;
+    private static final int GAME_LOCK_STRIPES = 256;
+
+    private final boolean enabled;
+    private final String nodeId;
+    private final String baseUrl;
+    private final long leaseMillis;
+    private final JdbcTemplate jdbcTemplate;
+    private final MoveJournal moveJournal;
+
+    private final ReentrantReadWriteLock[] partitionLocks = new ReentrantReadWriteLock[PARTITIONS];
+    private final Lock[] gameLocks = new Lock[GAME_LOCK_STRIPES];
+
+    private volatile Set<Integer> ownedPartitions = Collections.emptySet();
+    private volatile String[] ownerUrls = new String[PARTITIONS];
+    private volatile long leaseValidUntil;
+
+    public GameOwnership(DataSource dataSource,
+                         MoveJournal moveJournal,
+                         @Value("${cluster.enabled:false}") boolean enabled,
+                         @Value("${cluster.node-url:http://localhost:${server.port}}") String baseUrl,
+                         @Value("${cluster.node-id:${cluster.node-url:http://localhost:${server.port}}}") String nodeId,
+                         @Value("${cluster.lease-ms:10000}") long leaseMillis) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.moveJournal = moveJournal;
+        this.enabled = enabled;
+        this.baseUrl = baseUrl;
+        this.nodeId = nodeId;
+        this.leaseMillis = leaseMillis;
+        this.leaseValidUntil = System.nanoTime();
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitionLocks[i] = new ReentrantReadWriteLock();
+        }
+        for (int i = 0; i < GAME_LOCK_STRIPES; i++) {
+            gameLocks[i] = new ReentrantLock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param gameId - unique identifier of a game
+     * @return - the partition of the game
+     */
+    public static int partitionOf(Long gameId) {
+        return (int) Math.floorMod(gameId, (long) PARTITIONS);
+    }
+
+    /**
+     * @return - partitions this node currently changes games of, all of them with the cluster disabled
+     */
+    public Set<Integer> ownedPartitions() {
+        if (!enabled) {
+            Set<Integer> all = new HashSet<>();
+            for (int i = 0; i < PARTITIONS; i++) {
+                all.add(i);
+            }
+            return all;
+        }
+        return isLeaseValid() ? ownedPartitions : Collections.emptySet();
+    }
+
+    /**
+     * @param id - unique identifier of a game, or of a tournament, split into partitions the same way
+     * @return - true if this node currently owns the partition of the id
+     */
+    public boolean owns(Long id) {
+        return !enabled || isLeaseValid() && ownedPartitions.contains(partitionOf(id));
+    }
+
+    /**
+     * @param id - unique identifier of a game, or of a tournament
+     * @return - base URL of the node owning the partition of the id, or null while it is handed off
+     */
+    public String ownerUrlOf(Long id) {
+        return ownerUrls[partitionOf(id)];
+    }
+
+    /**
+     * Keeps a request that waits for the changes of a game on the game's owner, only the owner notifies them.
+     * @param gameId - unique identifier of a game, null if the request did not find one
+     * @throws GameNotOwnedException - if another node owns the game
+     */
+    public void requireOwner(Long gameId) {
+        if (gameId != null && !owns(gameId)) {
+            throw new GameNotOwnedException(gameId, ownerUrlOf(gameId));
+        }
+    }
+
+    /**
+     * Runs a change of a game on its owner, one change of the same game at a time.
+     * @param gameId - unique identifier of the changed game, null if the request did not find one
+     * @param change - the change, it runs its own transaction
+     * @return - result of the change
+     * @throws GameNotOwnedException - if another node owns the game
+     */
+    public <T> T execute(Long gameId, Supplier<T> change) {
+        if (gameId == null) {
+            return change.get();
+        }
+        if (!enabled) {
+            return withGameLock(gameId, change);
+        }
+        int partition = partitionOf(gameId);
+        Lock partitionLock = partitionLocks[partition].readLock();
+        partitionLock.lock();
+        try {
+            if (!isLeaseValid() || !ownedPartitions.contains(partition)) {
+                throw new GameNotOwnedException(gameId, ownerUrls[partition]);
+            }
+            return withGameLock(gameId, change);
+        } finally {
+            partitionLock.unlock();
+        }
+    }
+
+    private <T> T withGameLock(Long gameId, Supplier<T> change) {
+        Lock gameLock = gameLocks[(int) Math.floorMod(gameId, (long) GAME_LOCK_STRIPES)];
+        gameLock.lock();
+        try {
+            return change.get();
+        } finally {
+            gameLock.unlock();
+        }
+    }
+
+    private boolean isLeaseValid() {
+        return System.nanoTime() - leaseValidUntil < 0;
+    }
+
+    /**
+     * Renews the heartbeat of this node, then releases and claims partitions until the wanted assignment is reached.
+     */
+    @Scheduled(fixedDelayString = "${cluster.heartbeat-ms:2000}")
+    public synchronized void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            jdbcTemplate.update("MERGE INTO cluster_node (node_id, base_url, heartbeat) KEY (node_id) " +
+                    "VALUES (?, ?, CURRENT_TIMESTAMP)", nodeId, baseUrl);
+            leaseValidUntil = started + leaseMillis / 2 * 1_000_000;
+            rebalance();
+        } catch (RuntimeException e) {
+            log.error("Cluster heartbeat of node {} failed", nodeId, e);
+        }
+    }
+
+    private void rebalance() {
+        Map<String, String> liveNodes = new HashMap<>();
+        jdbcTemplate.query("SELECT node_id, base_url FROM cluster_node " +
+                        "WHERE heartbeat > DATEADD('MILLISECOND', ?, CURRENT_TIMESTAMP)",
+                rs -> { liveNodes.put(rs.getString("node_id"), rs.getString("base_url")); }, -leaseMillis);
+        liveNodes.put(nodeId, baseUrl);
+        List<String> nodes = new ArrayList<>(liveNodes.keySet());
+
+        Set<Integer> owned = new HashSet<>(ownedPartitions);
+        String[] urls = new String[PARTITIONS];
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT partition_no, node_id, epoch FROM partition_owner ORDER BY partition_no");
+        for (Map<String, Object> row : rows) {
+            int partition = ((Number) row.get("PARTITION_NO")).intValue();
+            String owner = (String) row.get("NODE_ID");
+            long epoch = ((Number) row.get("EPOCH")).longValue();
+            String wanted = wantedOwner(nodes, partition);
+
+            if (nodeId.equals(owner) && !nodeId.equals(wanted)) {
+                release(partition, owned);
+                owner = null;
+            } else if (!nodeId.equals(owner) && nodeId.equals(wanted)
+                    && (owner == null || !liveNodes.containsKey(owner)) && claim(partition, epoch)) {
+                owned.add(partition);
+                owner = nodeId;
+            } else if (nodeId.equals(owner)) {
+                owned.add(partition);
+            } else {
+                owned.remove(partition);
+            }
+            urls[partition] = owner == null ? null : liveNodes.get(owner);
+        }
+        ownerUrls = urls;
+        ownedPartitions = Collections.unmodifiableSet(owned);
+    }
+
+    /**
+     * Hands a partition back once no change of its games is running and its journaled visits are in the database.
+     */
+    private void release(int partition, Set<Integer> owned) {
+        Lock partitionLock = partitionLocks[partition].writeLock();
+        partitionLock.lock();
+        try {
+            owned.remove(partition);
+            ownedPartitions = Collections.unmodifiableSet(new HashSet<>(owned));
+            moveJournal.flush();
+            jdbcTemplate.update("UPDATE partition_owner SET node_id = NULL, epoch = epoch + 1 " +
+                    "WHERE partition_no = ? AND node_id = ?", partition, nodeId);
+            log.info("Node {} released partition {}", nodeId, partition);
+        } finally {
+            partitionLock.unlock();
+        }
+    }
+
+    /**
+     * @return - true if no other node changed the owner since it was read
+     */
+    private boolean claim(int partition, long epoch) {
+        boolean claimed = jdbcTemplate.update("UPDATE partition_owner SET node_id = ?, epoch = epoch + 1 " +
+                "WHERE partition_no = ? AND epoch = ?", nodeId, partition, epoch) == 1;
+        if (claimed) {
+            log.info("Node {} claimed partition {}", nodeId, partition);
+        }
+        return claimed;
+    }
+
+    private static String wantedOwner(List<String> nodes, int partition) {
+        String wanted = null;
+        long best = Long.MIN_VALUE;
+        for (String node : nodes) {
+            long score = mix(node.hashCode() * 0x9E3779B97F4A7C15L + partition);
+            if (wanted == null || score > best || score == best && node.compareTo(wanted) < 0) {
+                wanted = node;
+                best = score;
+            }
+        }
+        return wanted;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Leaves the cluster, so the other nodes take over the partitions of this node without waiting for the lease.
+     */
+    @PreDestroy
+    public synchronized void leave() {
+        if (!enabled) {
+            return;
+        }
+        Set<Integer> owned = new HashSet<>(ownedPartitions);
+        for (Integer partition : new HashSet<>(owned)) {
+            release(partition, owned);
+        }
+        jdbcTemplate.update("DELETE FROM cluster_node WHERE node_id = ?", nodeId);
+    }
+}
@@ -0,0 +1,9 @@
+package dartsgame.datasource;
+
+/**
+ * Target of a statement when reads are routed to a replica.
+ */
+public enum DataSourceRole {
+    PRIMARY,
+    REPLICA
+}
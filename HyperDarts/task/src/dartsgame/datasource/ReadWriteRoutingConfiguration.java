@@ -0,0 +1,57 @@
+package dartsgame.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Replaces the single data source with a primary (spring.datasource.*) and a replica (replica.datasource.*) once
+ * a replica URL is configured. Read-only transactions of the services and the Spring Data repositories go to the
+ * replica, Flyway and every other statement to the primary.
+ */
+@Configuration
+@ConditionalOnProperty(name = "replica.datasource.url")
+public class ReadWriteRoutingConfiguration {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties primaryDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("replica.datasource")
+    public DataSourceProperties replicaDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties primaryDataSourceProperties,
+                                 @Qualifier("replicaDataSourceProperties") DataSourceProperties replicaDataSourceProperties,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${replica.read-your-writes-window:PT2S}") Duration readYourWritesWindow) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(DataSourceRole.PRIMARY, primaryDataSourceProperties.initializeDataSourceBuilder().build());
+        targets.put(DataSourceRole.REPLICA, replicaDataSourceProperties.initializeDataSourceBuilder().build());
+
+        ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(meterRegistry, readYourWritesWindow);
+        routingDataSource.setTargetDataSources(targets);
+        routingDataSource.setDefaultTargetDataSource(targets.get(DataSourceRole.PRIMARY));
+        routingDataSource.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+}
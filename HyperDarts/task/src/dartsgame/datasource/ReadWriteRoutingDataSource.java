@@ -0,0 +1,104 @@
+package dartsgame.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Sends read-only transactions to the replica and everything else to the primary. A player who has just changed
+ * something keeps reading from the primary until the replica is expected to have caught up, so a player always
+ * sees their own throws. Reads that follow a change on a thread without a player, e.g. the answer of a long-poll,
+ * are kept on the primary with {@link #onPrimary(Supplier)}.
+ * <p>
+ * The role is decided when the connection is needed, so this data source has to be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}; the transaction manager only
+ * marks the transaction read-only after it has asked for a connection.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    private final Cache<String, Boolean> recentWriters;
+    private final Map<DataSourceRole, Counter> routed = new EnumMap<>(DataSourceRole.class);
+    private final Counter readsKeptOnPrimary;
+
+    public ReadWriteRoutingDataSource(MeterRegistry meterRegistry, Duration readYourWritesWindow) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(readYourWritesWindow)
+                .maximumSize(100_000)
+                .build();
+        for (DataSourceRole role : DataSourceRole.values()) {
+            routed.put(role, meterRegistry.counter("datasource.routed", "role", role.name().toLowerCase()));
+        }
+        this.readsKeptOnPrimary = meterRegistry.counter("datasource.read-your-writes");
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        DataSourceRole role = chooseRole();
+        routed.get(role).increment();
+        return role;
+    }
+
+    private DataSourceRole chooseRole() {
+        String principal = currentPrincipal();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (principal != null) {
+                recentWriters.put(principal, Boolean.TRUE);
+            }
+            return DataSourceRole.PRIMARY;
+        }
+        DataSourceRole role = readRole(principal);
+        if (role == DataSourceRole.PRIMARY) {
+            readsKeptOnPrimary.increment();
+        }
+        return role;
+    }
+
+    /**
+     * @return - where a read-only transaction of the current thread reads from, e.g. to keep the reads of a player
+     * who has just thrown apart from the replica reads of spectators
+     */
+    public DataSourceRole readRole() {
+        return readRole(currentPrincipal());
+    }
+
+    private DataSourceRole readRole(String principal) {
+        if (PRIMARY_FORCED.get() != null || principal != null && recentWriters.getIfPresent(principal) != null) {
+            return DataSourceRole.PRIMARY;
+        }
+        return DataSourceRole.REPLICA;
+    }
+
+    /**
+     * Runs reads on the primary whatever their transaction, without effect when there is no replica.
+     * @param read - the reads
+     * @return - result of the reads
+     */
+    public static <T> T onPrimary(Supplier<T> read) {
+        if (PRIMARY_FORCED.get() != null) {
+            return read.get();
+        }
+        PRIMARY_FORCED.set(Boolean.TRUE);
+        try {
+            return read.get();
+        } finally {
+            PRIMARY_FORCED.remove();
+        }
+    }
+
+    private static String currentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? null : authentication.getName();
+    }
+}
@@ -1,15 +1,22 @@
 package dartsgame.game.controller;
 
+import dartsgame.cluster.GameOwnership;
+import dartsgame.game.odds.WinProbabilityService;
+import dartsgame.sqlbudget.SqlBudget;
 import dartsgame.game.service.*;
 import dartsgame.game.persistance.dao.Game;
-import dartsgame.game.persistance.dao.GameHistory;
 import dartsgame.game.dto.*;
+import dartsgame.web.ReadCoalescer;
+import dartsgame.web.ResponseFormat;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -20,11 +27,27 @@ public class GameController {
 
     private final GameService gameService;
     private final Validator validator;
+    private final GameOwnership gameOwnership;
+    private final GameChangeNotifier gameChangeNotifier;
+    private final WinProbabilityService winProbabilityService;
+    private final ReadCoalescer readCoalescer;
+    private final ChangeReadExecutor changeReadExecutor;
 
     @Autowired
-    public GameController(GameService gameService, Validator validator) {
+    public GameController(GameService gameService,
+                          Validator validator,
+                          GameOwnership gameOwnership,
+                          GameChangeNotifier gameChangeNotifier,
+                          WinProbabilityService winProbabilityService,
+                          ReadCoalescer readCoalescer,
+                          ChangeReadExecutor changeReadExecutor) {
         this.gameService = gameService;
         this.validator = validator;
+        this.gameOwnership = gameOwnership;
+        this.gameChangeNotifier = gameChangeNotifier;
+        this.winProbabilityService = winProbabilityService;
+        this.readCoalescer = readCoalescer;
+        this.changeReadExecutor = changeReadExecutor;
     }
 
     /**
@@ -35,16 +58,12 @@ public class GameController {
      * the game cannot be created
      */
     @PostMapping("/create")
+    //The active game, the insert of the game, the lookup and the insert of its history. Registering a player new to
+    //this node takes up to 3 statements more, once, and goes over the budget
+    @SqlBudget(statements = 4, entityLoads = 1)
     public ResponseEntity<Map> createGame(Authentication auth, @RequestBody CreateGameForm createGameForm) {
-        Integer targetScore = createGameForm.getTargetScore();
-        if (gameService.isInGame(auth.getName())) {
-            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "You have an unfinished game!"));
-        }
-        //Checks if user provided a valid game mode (101, 301 or 501)
-        if (!validator.validateTargetScore(targetScore)) {
-            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong target score!"));
-        }
-        return ResponseEntity.ok(gameService.addNewGame(auth.getName(), targetScore));
+        gameService.registerPlayer(auth.getName());
+        return gameService.createGame(auth.getName(), createGameForm.getTargetScore()).toResponseEntity();
     }
 
     /**
@@ -52,6 +71,7 @@ public class GameController {
      * @return - a response entity containing the list of games, or a NOT_FOUND status if there are no active games
      */
     @GetMapping("/list")
+    @SqlBudget(statements = 1)
     public ResponseEntity<List<Game>> getCurrentGames() {
         List<Game> listOfGames = gameService.getAllGames();
         if (listOfGames.isEmpty()) {
@@ -68,6 +88,9 @@ public class GameController {
      * messages containing why player couldn't join the game
      */
     @GetMapping("/join/{gameID}")
+    //The game, the active game of the player, the state count, the state, the update of the game and the link of
+    //the state. Registering a player new to this node takes up to 3 statements more, once, and goes over the budget
+    @SqlBudget(statements = 6, entityLoads = 2)
     public ResponseEntity<Map> joinGame(Authentication auth, @PathVariable("gameID") String gameID) {
 
         //Checks if id is a number
@@ -76,27 +99,8 @@ public class GameController {
             return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong request!"));
         }
 
-        //Checks if game exists
-        if (!gameService.isGame(id)) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Collections.singletonMap("result", "Game not found!"));
-        }
-
-        //Checks if game is created by the same user that wants to join
-        if (gameService.isCreatedByThisPlayer(auth.getName(), id)) {
-            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "You can't play alone!"));
-        }
-
-        //Checks if game is in "created" state
-        if (!gameService.isAvailableToJoin(id)) {
-            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "You can't join the game!"));
-        }
-
-        //Checks if user has any ongoing games
-        if (gameService.isInGame(auth.getName())) {
-            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "You have an unfinished game!"));
-        }
-
-        return ResponseEntity.ok(gameService.joinGame(auth.getName(), id));
+        gameService.registerPlayer(auth.getName());
+        return gameOwnership.execute(id, () -> gameService.joinGame(auth.getName(), id)).toResponseEntity();
     }
 
     /**
@@ -106,13 +110,74 @@ public class GameController {
      * such a game does not exist
      */
     @GetMapping("/status")
-    public ResponseEntity<Map> getGameStatus(Authentication auth) {
-        if (gameService.isInGame(auth.getName())) {
-            return ResponseEntity.ok(gameService.getGameByName(auth.getName()));
-        } else if (!gameService.findLastFinishedGame(auth.getName()).isEmpty()) {
-            return ResponseEntity.ok(gameService.findLastFinishedGame(auth.getName()));
+    //The active game, or the last finished one after it
+    @SqlBudget(statements = 2, entityLoads = 1)
+    public ResponseEntity<?> getGameStatus(Authentication auth) {
+        String name = auth.getName();
+        if (ResponseFormat.isWinProbabilityRequested() || !ResponseFormat.requestedFields().isEmpty()) {
+            return gameStatus(name, ResponseFormat.isWinProbabilityRequested());
+        }
+        //Identical concurrent status reads of a player share one load and one serialization
+        boolean compact = ResponseFormat.isCompactRequested();
+        List<Object> key = Arrays.asList(name, gameChangeNotifier.versionOfPlayer(name), compact);
+        return readCoalescer.load("status", key, () -> {
+            ResponseEntity<Map> status = gameStatus(name, false);
+            return ResponseEntity.status(status.getStatusCode())
+                    .headers(status.getHeaders())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(readCoalescer.toJson(status.getBody(), compact));
+        });
+    }
+
+    /**
+     * Long-poll variant of the status API: answers as soon as a game of the user changes, or with the current
+     * status when the timeout passes. A waiting request does not hold a server thread. Changes are only notified on
+     * the node owning the game, so the poll is redirected there like a change of the game.
+     * @param auth - currently logged-in user
+     * @param since - the X-Game-Version header of the previous poll, answers at once if the game changed since
+     * @param timeout - seconds to wait at most, up to 60
+     * @return - the status of the user's game with its version, like the status API
+     */
+    @GetMapping("/status/poll")
+    //Finding the owner of the player's game takes one statement more than the status API
+    @SqlBudget(statements = 3, entityLoads = 1)
+    public DeferredResult<ResponseEntity<Map>> pollGameStatus(Authentication auth,
+                                                              @RequestParam(defaultValue = "0") long since,
+                                                              @RequestParam(defaultValue = "30") long timeout) {
+        String name = auth.getName();
+        gameOwnership.requireOwner(gameService.findActiveGameId(name));
+        //The answer may be made on another thread, without the request
+        boolean withWinProbability = ResponseFormat.isWinProbabilityRequested();
+        DeferredResult<ResponseEntity<Map>> result = new DeferredResult<>(Math.min(Math.max(timeout, 1), 60) * 1000);
+        Runnable answer = changeReadExecutor.lane(() -> {
+            if (!result.isSetOrExpired()) {
+                result.setResult(gameStatus(name, withWinProbability));
+            }
+        }, () -> result.setResult(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Collections.singletonMap("result", "Too many waiting requests, try again!"))));
+        Runnable stopListening = gameChangeNotifier.listenToPlayer(name, version -> answer.run());
+        result.onCompletion(stopListening);
+        result.onTimeout(() -> result.setResult(gameStatus(name, withWinProbability)));
+        //Checked after listening, so a change in between is not missed
+        if (gameChangeNotifier.versionOfPlayer(name) != since) {
+            result.setResult(gameStatus(name, withWinProbability));
+        }
+        return result;
+    }
+
+    private ResponseEntity<Map> gameStatus(String name, boolean withWinProbability) {
+        String version = String.valueOf(gameChangeNotifier.versionOfPlayer(name));
+        Map activeGame = gameService.getGameByName(name);
+        if (!activeGame.isEmpty()) {
+            return ResponseEntity.ok().header("X-Game-Version", version)
+                    .body(withWinProbability ? winProbabilityService.withWinProbability(activeGame) : activeGame);
+        }
+        Map lastFinishedGame = gameService.findLastFinishedGame(name);
+        if (!lastFinishedGame.isEmpty()) {
+            return ResponseEntity.ok().header("X-Game-Version", version).body(
+                    withWinProbability ? winProbabilityService.withWinProbability(lastFinishedGame) : lastFinishedGame);
         } else {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Collections.emptyMap());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).header("X-Game-Version", version).body(Collections.emptyMap());
         }
     }
 
@@ -124,31 +189,17 @@ public class GameController {
      * messages containing why provided throws could not be applied
      */
     @PostMapping("/throws")
+    //The id of the active game, the game, the state count, the state, the update of the game and the link of the
+    //state; the finishing visit loads the history and its states once more to cache them
+    @SqlBudget(statements = 8)
     public ResponseEntity<Map> postThrows(Authentication auth, @RequestBody DartsThrowForm dartsThrowForm) {
-
-        Map game = gameService.getGameByName(auth.getName());
-        //Checks if player is in a game or not
-        if (game.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Collections.singletonMap("result", "There are no games available!"));
+        Long id = gameService.findActiveGameId(auth.getName());
+        ResponseEntity<Map> response = gameOwnership.execute(id,
+                () -> gameService.postThrows(auth.getName(), id, dartsThrowForm)).toResponseEntity();
+        if (ResponseFormat.isWinProbabilityRequested() && response.getStatusCode().is2xxSuccessful()) {
+            return ResponseEntity.ok(winProbabilityService.withWinProbability(response.getBody()));
         }
-
-        Long gameId = (Long) game.get("gameId");
-
-        //Creates ThrownDart objects from provided text if input data is valid
-        ThrownDart[] thrownDarts = validator.validateThrows(gameService.getGame(gameId), auth.getName(), dartsThrowForm);
-
-        //Checks if provided throws were correct or not
-        if (thrownDarts.length == 0) {
-            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong throws!"));
-        }
-
-        //Checks if it is the user's turn or not
-        if (!gameService.isTheirTurn(gameId, auth.getName())) {
-            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong turn!"));
-        }
-
-        //Modifies the state of the game
-        return ResponseEntity.ok(gameService.applyThrows(gameId, auth.getName(), thrownDarts));
+        return response;
     }
 
     /**
@@ -158,6 +209,7 @@ public class GameController {
      * messages containing why game could not be cancelled
      */
     @PutMapping(path = "/cancel")
+    @SqlBudget(statements = 2, entityLoads = 1)
     public ResponseEntity<Map> cancelGame(@RequestBody CancelGameForm cancelGameForm) {
 
         Long id = cancelGameForm.getGameId();
@@ -166,21 +218,7 @@ public class GameController {
             return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong request!"));
         }
 
-        if (!gameService.isGame(id)) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Collections.singletonMap("result", "Game not found!"));
-        }
-
-        Game game = gameService.getGame(id);
-
-        if (!validator.validateFinishedGameStatus(cancelGameForm.getStatus(), game)) {
-            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong status!"));
-        }
-
-        if (game.getGameStatus().matches("\\S*\\swins!")) {
-            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "The game is already over!"));
-        }
-
-        return ResponseEntity.ok(gameService.changeGameStatus(id, cancelGameForm.getStatus()));
+        return gameOwnership.execute(id, () -> gameService.cancelGame(id, cancelGameForm.getStatus())).toResponseEntity();
     }
 
 
@@ -191,6 +229,8 @@ public class GameController {
      * messages containing why game could not be reverted
      */
     @PutMapping(path = "/revert")
+    //The history, the game, the states, two bulk deletes and the update of the game
+    @SqlBudget(statements = 6)
     public ResponseEntity<Map> revertGame(@RequestBody RevertGameForm revertGameForm) {
         Long gameId = revertGameForm.getGameId();
         Integer move = revertGameForm.getMove();
@@ -199,24 +239,7 @@ public class GameController {
             return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong request!"));
         }
 
-        GameHistory gameHistory = gameService.getGameHistory(gameId);
-        if (gameHistory == null) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Collections.singletonMap("result", "Game not found!"));
-        }
-        if (gameService.getGame(gameId).getGameStatus().equals("created")) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Collections.singletonMap("result", "Game not found!"));
-        }
-        if (gameHistory.getHistoryList().size() <= move) {
-            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Move not found!"));
-        }
-        if (move + 1 == gameHistory.getHistoryList().size()) {
-            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "There is nothing to revert!"));
-        }
-        if (gameHistory.getHistoryList().get(gameHistory.getHistoryList().size() - 1).getGameStatus().matches("\\S*\\swins!")) {
-            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "The game is over!"));
-        }
-
-        return ResponseEntity.ok(gameService.setGameBackToGameState(gameId, move));
+        return gameOwnership.execute(gameId, () -> gameService.revertGame(gameId, move)).toResponseEntity();
     }
 
     /**
@@ -225,12 +248,14 @@ public class GameController {
      * @return - Responds with success message, not found code, or error message if path variable is incorrect
      */
     @DeleteMapping(path = "/delete/{gameID}")
+    //The links, the states, the history and the game, nothing is loaded
+    @SqlBudget(statements = 4, entityLoads = 0)
     public ResponseEntity<Map> deleteGame(@PathVariable("gameID") String gameID) {
         Long id = validator.validateLongInput(gameID);
         if (id == null) {
             return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong request!"));
         }
-        if (gameService.deleteGame(id)) {
+        if (gameOwnership.execute(id, () -> gameService.deleteGame(id))) {
             return ResponseEntity.ok(Collections.singletonMap("result", "Game with ID=" + id + " successfully deleted!"));
         } else {
             return ResponseEntity.notFound().build();
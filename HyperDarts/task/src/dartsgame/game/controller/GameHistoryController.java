@@ -1,29 +1,66 @@
 package dartsgame.game.controller;
 
+import dartsgame.cluster.GameOwnership;
+import dartsgame.game.dto.MoveDarts;
+import dartsgame.game.odds.WinProbabilityService;
+import dartsgame.game.persistance.dao.GameState;
+import dartsgame.game.service.ChangeReadExecutor;
+import dartsgame.game.service.FinishedHistoryCache;
+import dartsgame.game.service.GameChangeNotifier;
 import dartsgame.game.service.GameService;
 import dartsgame.game.persistance.dao.GameHistory;
+import dartsgame.sqlbudget.SqlBudget;
+import dartsgame.web.ReadCoalescer;
+import dartsgame.web.ResponseFormat;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/history")
 public class GameHistoryController {
 
     private final GameService gameService;
+    private final FinishedHistoryCache finishedHistoryCache;
+    private final GameChangeNotifier gameChangeNotifier;
+    private final WinProbabilityService winProbabilityService;
+    private final ReadCoalescer readCoalescer;
+    private final ChangeReadExecutor changeReadExecutor;
+    private final GameOwnership gameOwnership;
 
     @Autowired
-    public GameHistoryController(GameService gameService) {
+    public GameHistoryController(GameService gameService,
+                                 FinishedHistoryCache finishedHistoryCache,
+                                 GameChangeNotifier gameChangeNotifier,
+                                 WinProbabilityService winProbabilityService,
+                                 ReadCoalescer readCoalescer,
+                                 ChangeReadExecutor changeReadExecutor,
+                                 GameOwnership gameOwnership) {
         this.gameService = gameService;
+        this.finishedHistoryCache = finishedHistoryCache;
+        this.gameChangeNotifier = gameChangeNotifier;
+        this.winProbabilityService = winProbabilityService;
+        this.readCoalescer = readCoalescer;
+        this.changeReadExecutor = changeReadExecutor;
+        this.gameOwnership = gameOwnership;
     }
 
     @GetMapping(path = "/{gameID}")
+    @SqlBudget(statements = 2)
     public ResponseEntity getGameHistory (@PathVariable("gameID") String id) {
         try {
             long gameID = Long.parseLong(id);
@@ -31,11 +68,35 @@ public class GameHistoryController {
                 return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong request!"));
             }
 
+            //Finished histories never change, they are served from the cache as serialized unless only some fields are requested
+            boolean withWinProbability = ResponseFormat.isWinProbabilityRequested();
+            boolean cacheable = ResponseFormat.requestedFields().isEmpty() && !withWinProbability;
+            boolean compact = ResponseFormat.isCompactRequested();
+            byte[] finishedHistory = cacheable ? finishedHistoryCache.get(gameID, compact) : null;
+            if (finishedHistory != null) {
+                return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(finishedHistory);
+            }
+
+            if (cacheable) {
+                //Identical concurrent reads of an ongoing game share one load and one serialization
+                List<Object> key = Arrays.asList(gameID, gameChangeNotifier.versionOf(gameID), compact);
+                byte[] history = readCoalescer.load("history", key, () -> serializedHistory(gameID, compact));
+                if (history == null) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Collections.singletonMap("result", "Game not found!"));
+                }
+                return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(history);
+            }
+
             GameHistory gameHistory = gameService.getGameHistory(gameID);
             if (gameHistory == null) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Collections.singletonMap("result", "Game not found!"));
             }
 
+            if (withWinProbability) {
+                List<Map> states = new ArrayList<>();
+                gameHistory.getHistoryList().forEach(state -> states.add(winProbabilityService.withWinProbability(state)));
+                return ResponseEntity.ok(states);
+            }
             return ResponseEntity.ok(gameHistory.getHistoryList());
 
         } catch (NumberFormatException e) {
@@ -43,4 +104,121 @@ public class GameHistoryController {
         }
 
     }
+
+    /**
+     * @return - JSON bytes of the history, cached if the game is finished, or null if the game is not found
+     */
+    private byte[] serializedHistory(long gameID, boolean compact) {
+        GameHistory gameHistory = gameService.getGameHistory(gameID);
+        if (gameHistory == null) {
+            return null;
+        }
+        byte[] finishedHistory = finishedHistoryCache.putIfFinished(gameHistory, compact);
+        return finishedHistory != null ? finishedHistory : readCoalescer.toJson(gameHistory.getHistoryList(), compact);
+    }
+
+    /**
+     * Lists the darts thrown in each visit of a game.
+     * @param id - unique identifier of the game
+     * @return - a response entity containing the move number and the three darts of every visit, or different
+     * error messages if the game is not found or the id is incorrect
+     */
+    @GetMapping(path = "/{gameID}/darts")
+    @SqlBudget(statements = 2)
+    public ResponseEntity getMoveDarts(@PathVariable("gameID") String id) {
+        try {
+            long gameID = Long.parseLong(id);
+            if (gameID < 0) {
+                return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong request!"));
+            }
+
+            List<MoveDarts> moveDarts = gameService.getMoveDarts(gameID);
+            if (moveDarts == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Collections.singletonMap("result", "Game not found!"));
+            }
+
+            return ResponseEntity.ok(moveDarts);
+
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong request!"));
+        }
+    }
+
+    /**
+     * Streams the history of a game as server-sent events: every existing state first, then each new state as it
+     * is committed. The stream ends when the game is finished or after the timeout. A waiting stream does not hold a
+     * server thread. Changes are only notified on the node owning the game, so the stream is redirected there.
+     * @param id - unique identifier of the game
+     * @param timeout - seconds to keep the stream open, up to one hour
+     * @return - an event stream of game states, or different error messages if the game is not found or the id is
+     * incorrect
+     */
+    @GetMapping(path = "/{gameID}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @SqlBudget(statements = 2)
+    public ResponseEntity streamGameHistory(@PathVariable("gameID") String id,
+                                            @RequestParam(defaultValue = "300") long timeout) {
+        try {
+            long gameID = Long.parseLong(id);
+            if (gameID < 0) {
+                return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong request!"));
+            }
+            gameOwnership.requireOwner(gameID);
+            GameHistory gameHistory = gameService.getGameHistory(gameID);
+            if (gameHistory == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Collections.singletonMap("result", "Game not found!"));
+            }
+
+            SseEmitter emitter = new SseEmitter(Math.min(Math.max(timeout, 1), 3600) * 1000);
+            HistoryStream stream = new HistoryStream(gameID, emitter);
+            //The client reconnects if its stream is closed because the readers are overloaded
+            Runnable sendNewStates = changeReadExecutor.lane(stream::sendNewStates, emitter::complete);
+            Runnable stopListening = gameChangeNotifier.listenToGame(gameID, version -> sendNewStates.run());
+            emitter.onCompletion(stopListening);
+            emitter.onTimeout(emitter::complete);
+            stream.send(gameHistory);
+            return ResponseEntity.ok(emitter);
+
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong request!"));
+        }
+    }
+
+    /**
+     * Sends the states of a game history that were not sent yet. The first states are sent by the request, the
+     * others by its lane of the ChangeReadExecutor, so sending is serialized.
+     */
+    private class HistoryStream {
+        private final long gameId;
+        private final SseEmitter emitter;
+        private int sent;
+
+        private HistoryStream(long gameId, SseEmitter emitter) {
+            this.gameId = gameId;
+            this.emitter = emitter;
+        }
+
+        private void sendNewStates() {
+            send(gameService.getGameHistory(gameId));
+        }
+
+        private synchronized void send(GameHistory gameHistory) {
+            if (gameHistory == null) {
+                emitter.complete();
+                return;
+            }
+            List<GameState> historyList = gameHistory.getHistoryList();
+            try {
+                //A revert shortens the history, the states after the reverted move are sent again
+                sent = Math.min(sent, historyList.size());
+                for (; sent < historyList.size(); sent++) {
+                    emitter.send(SseEmitter.event().name("state").data(historyList.get(sent), MediaType.APPLICATION_JSON));
+                }
+                if (FinishedHistoryCache.isFinished(gameHistory)) {
+                    emitter.complete();
+                }
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+        }
+    }
 }
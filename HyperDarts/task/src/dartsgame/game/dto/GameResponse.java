@@ -0,0 +1,40 @@
+package dartsgame.game.dto;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Outcome of a game request: either the map representation of the game or the message of the broken rule.
+ */
+public class GameResponse {
+    private final HttpStatus status;
+    private final Map body;
+
+    private GameResponse(HttpStatus status, Map body) {
+        this.status = status;
+        this.body = body;
+    }
+
+    public static GameResponse ok(Map body) {
+        return new GameResponse(HttpStatus.OK, body);
+    }
+
+    public static GameResponse error(HttpStatus status, String message) {
+        return new GameResponse(status, Collections.singletonMap("result", message));
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public Map getBody() {
+        return body;
+    }
+
+    public ResponseEntity<Map> toResponseEntity() {
+        return ResponseEntity.status(status).body(body);
+    }
+}
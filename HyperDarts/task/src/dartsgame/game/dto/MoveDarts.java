@@ -0,0 +1,22 @@
+package dartsgame.game.dto;
+
+/**
+ * The darts thrown in one visit of a game, for the darts history API.
+ */
+public class MoveDarts {
+    private final Integer move;
+    private final ThrownDart[] darts;
+
+    public MoveDarts(Integer move, ThrownDart[] darts) {
+        this.move = move;
+        this.darts = darts;
+    }
+
+    public Integer getMove() {
+        return move;
+    }
+
+    public ThrownDart[] getDarts() {
+        return darts;
+    }
+}
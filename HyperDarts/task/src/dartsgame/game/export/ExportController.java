@@ -0,0 +1,45 @@
+package dartsgame.game.export;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Collections;
+
+@RestController
+@RequestMapping("/api/admin/export")
+public class ExportController {
+
+    private final GameExporter gameExporter;
+
+    @Autowired
+    public ExportController(GameExporter gameExporter) {
+        this.gameExporter = gameExporter;
+    }
+
+    /**
+     * Streams every game with its history, including the darts of every visit.
+     * @param format - ndjson (default) or smile
+     * @param after - id of the last game of a previous, interrupted export
+     * @return - the streamed export, or BAD_REQUEST if the format is unknown
+     */
+    @GetMapping
+    public ResponseEntity<?> exportGames(@RequestParam(name = "format", defaultValue = "ndjson") String format,
+                                         @RequestParam(name = "after", defaultValue = "0") long after) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong format!"));
+        }
+        StreamingResponseBody body = out -> gameExporter.export(out, exportFormat, after);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .body(body);
+    }
+}
@@ -0,0 +1,21 @@
+package dartsgame.game.export;
+
+/**
+ * Formats of the bulk export. Both write one value per game with its history nested in it.
+ */
+public enum ExportFormat {
+    /** One JSON object per line. */
+    NDJSON("application/x-ndjson"),
+    /** Binary JSON (Smile), a sequence of root-level values. */
+    SMILE("application/x-jackson-smile");
+
+    private final String contentType;
+
+    ExportFormat(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
@@ -0,0 +1,54 @@
+package dartsgame.game.export;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Command line export: start with --export.output=games.ndjson [--export.format=smile] [--export.after=ID]
+ * and --spring.main.web-application-type=none, the application exits when the export is written.
+ */
+@Component
+@ConditionalOnProperty(name = "export.output")
+public class ExportRunner implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportRunner.class);
+
+    private final GameExporter gameExporter;
+    private final ConfigurableApplicationContext context;
+    private final String output;
+    private final ExportFormat format;
+    private final long after;
+
+    public ExportRunner(GameExporter gameExporter,
+                        ConfigurableApplicationContext context,
+                        @Value("${export.output}") String output,
+                        @Value("${export.format:ndjson}") String format,
+                        @Value("${export.after:0}") long after) {
+        this.gameExporter = gameExporter;
+        this.context = context;
+        this.output = output;
+        this.format = ExportFormat.valueOf(format.toUpperCase());
+        this.after = after;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        long games;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get(output)))) {
+            games = gameExporter.export(out, format, after);
+        }
+        log.info("Exported {} games after id {} to {}", games, after, output);
+        System.exit(SpringApplication.exit(context));
+    }
+}
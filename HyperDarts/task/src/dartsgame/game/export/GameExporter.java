@@ -0,0 +1,163 @@
+package dartsgame.game.export;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import dartsgame.game.persistance.PlayerDirectory;
+import dartsgame.game.rules.Visit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Streams every game with its history from a forward-only cursor straight into the output, so memory use does not
+ * depend on the number of games. Games are exported in id order; an export can be resumed by passing the id of the
+ * last game received as watermark. The state of a visit carries its darts the way the throws API takes them, e.g.
+ * ["3:20", "2:20", "none"], so the export can be replayed dart by dart.
+ */
+@Service
+public class GameExporter {
+
+    private static final String EXPORT_QUERY = "SELECT g.game_id, g.player_one_id, g.player_two_id, g.game_status, " +
+            "g.player_one_score, g.player_two_score, g.turn_id, s.move, s.player_one_id AS state_player_one_id, " +
+            "s.player_two_id AS state_player_two_id, s.game_status AS state_game_status, s.player_one_scores, " +
+            "s.player_two_scores, s.turn_id AS state_turn_id, s.darts " +
+            "FROM games g LEFT JOIN game_state s ON s.game_id = g.game_id " +
+            "WHERE g.game_id > ? ORDER BY g.game_id, s.move";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JsonFactory jsonFactory;
+    private final SmileFactory smileFactory;
+    private final PlayerDirectory playerDirectory;
+
+    public GameExporter(DataSource dataSource,
+                        PlayerDirectory playerDirectory,
+                        @Value("${export.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.jsonFactory = JsonFactory.builder().rootValueSeparator("\n").build();
+        this.smileFactory = new SmileFactory();
+        this.playerDirectory = playerDirectory;
+    }
+
+    /**
+     * Writes the games with an id greater than the watermark.
+     * @param out - target of the export, it is flushed but not closed
+     * @param format - format of the export
+     * @param afterGameId - watermark, 0 exports every game
+     * @return - number of exported games
+     */
+    public long export(OutputStream out, ExportFormat format, long afterGameId) throws IOException {
+        JsonFactory factory = format == ExportFormat.SMILE ? smileFactory : jsonFactory;
+        try (JsonGenerator generator = factory.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            GameRowWriter writer = new GameRowWriter(generator, playerDirectory);
+            try {
+                jdbcTemplate.query(EXPORT_QUERY, writer, afterGameId);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.finish();
+            if (format == ExportFormat.NDJSON && writer.games > 0) {
+                generator.writeRaw('\n');
+            }
+            return writer.games;
+        }
+    }
+
+    /**
+     * Writes the rows of the ordered join: a new game id opens a game object, every row with a move adds a state
+     * to its history. Player ids are written as names, packed darts as one "multiplicator:score" or "none" per dart.
+     */
+    private static class GameRowWriter implements RowCallbackHandler {
+        private final JsonGenerator generator;
+        private final PlayerDirectory playerDirectory;
+        private long currentGameId = -1;
+        private long games;
+
+        private GameRowWriter(JsonGenerator generator, PlayerDirectory playerDirectory) {
+            this.generator = generator;
+            this.playerDirectory = playerDirectory;
+        }
+
+        private String name(ResultSet rs, String column) throws SQLException {
+            return playerDirectory.nameOf(rs.getObject(column, Integer.class));
+        }
+
+        private String status(ResultSet rs, String column) throws SQLException {
+            return playerDirectory.toDisplayedStatus(rs.getString(column));
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            try {
+                long gameId = rs.getLong("game_id");
+                if (gameId != currentGameId) {
+                    finish();
+                    startGame(rs, gameId);
+                }
+                int move = rs.getInt("move");
+                if (!rs.wasNull()) {
+                    writeState(rs, gameId, move);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void startGame(ResultSet rs, long gameId) throws SQLException, IOException {
+            currentGameId = gameId;
+            games++;
+            generator.writeStartObject();
+            generator.writeNumberField("gameId", gameId);
+            generator.writeStringField("playerOne", name(rs, "player_one_id"));
+            generator.writeStringField("playerTwo", name(rs, "player_two_id"));
+            generator.writeStringField("gameStatus", status(rs, "game_status"));
+            generator.writeNumberField("playerOneScores", rs.getInt("player_one_score"));
+            generator.writeNumberField("playerTwoScores", rs.getInt("player_two_score"));
+            generator.writeStringField("turn", name(rs, "turn_id"));
+            generator.writeArrayFieldStart("history");
+        }
+
+        private void writeState(ResultSet rs, long gameId, int move) throws SQLException, IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("gameId", gameId);
+            generator.writeNumberField("move", move);
+            generator.writeStringField("playerOne", name(rs, "state_player_one_id"));
+            generator.writeStringField("playerTwo", name(rs, "state_player_two_id"));
+            generator.writeStringField("gameStatus", status(rs, "state_game_status"));
+            generator.writeNumberField("playerOneScores", rs.getInt("player_one_scores"));
+            generator.writeNumberField("playerTwoScores", rs.getInt("player_two_scores"));
+            generator.writeStringField("turn", name(rs, "state_turn_id"));
+            int darts = rs.getInt("darts");
+            if (!rs.wasNull()) {
+                writeDarts(Visit.fromPacked(darts));
+            }
+            generator.writeEndObject();
+        }
+
+        private void writeDarts(Visit visit) throws IOException {
+            generator.writeArrayFieldStart("darts");
+            for (int i = 0; i < Visit.DARTS; i++) {
+                generator.writeString(visit.isNone(i) ? "none" : visit.getMultiplicator(i) + ":" + visit.getScore(i));
+            }
+            generator.writeEndArray();
+        }
+
+        private void finish() throws IOException {
+            if (currentGameId != -1) {
+                generator.writeEndArray();
+                generator.writeEndObject();
+            }
+        }
+    }
+}
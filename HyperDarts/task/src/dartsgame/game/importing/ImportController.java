@@ -0,0 +1,53 @@
+package dartsgame.game.importing;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/import")
+public class ImportController {
+
+    private final MatchImporter matchImporter;
+
+    @Autowired
+    public ImportController(MatchImporter matchImporter) {
+        this.matchImporter = matchImporter;
+    }
+
+    /**
+     * Imports historical matches from the streamed request body. Sending the same source again resumes it after
+     * the lines committed by the previous request.
+     * @param body - the visit log; the visits of a match must be on contiguous lines, a match reappearing after
+     * another match is rejected
+     * @param format - ndjson (default) or csv
+     * @param source - name of the imported source, e.g. the file name
+     * @param limit - number of rejections listed with their details
+     * @return - the import report, or BAD_REQUEST if the format is unknown or the source is missing
+     */
+    @PostMapping
+    public ResponseEntity<Map> importMatches(InputStream body,
+                                             @RequestParam(name = "format", defaultValue = "ndjson") String format,
+                                             @RequestParam(name = "source") String source,
+                                             @RequestParam(name = "limit", defaultValue = "100") int limit)
+            throws IOException {
+        ImportFormat importFormat;
+        try {
+            importFormat = ImportFormat.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong format!"));
+        }
+        if (source.trim().isEmpty() || limit < 0) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong request!"));
+        }
+        return ResponseEntity.ok(matchImporter.importMatches(body, importFormat, source, limit).toMap());
+    }
+}
@@ -0,0 +1,11 @@
+package dartsgame.game.importing;
+
+/**
+ * Formats of the match import. Both hold one visit per line, the visits of a match on consecutive lines.
+ */
+public enum ImportFormat {
+    /** One JSON object per line with the fields of {@link ImportedVisit}. */
+    NDJSON,
+    /** A header line, then match,playerOne,playerTwo,targetScore,player,first,second,third without quoting. */
+    CSV
+}
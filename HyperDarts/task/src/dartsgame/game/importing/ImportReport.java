@@ -0,0 +1,107 @@
+package dartsgame.game.importing;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a run of a match import: the games imported and rejected by the run and the first rejections with their
+ * line. Lines are counted from the start of the source, including the lines committed by earlier runs.
+ */
+public class ImportReport {
+
+    private final String source;
+    private final long resumedAfterLine;
+    private final int maxListed;
+    private final List<Map<String, Object>> rejections = new ArrayList<>();
+    private long lines;
+    private long games;
+    private long visits;
+    private long rejectedGames;
+    private long unreadableLines;
+    private long elapsedMillis;
+
+    /**
+     * @param source - name of the imported source, the key of its checkpoint
+     * @param resumedAfterLine - lines committed by earlier runs of the same source, skipped by this run
+     * @param maxListed - number of rejections kept with their details, the others are only counted
+     */
+    ImportReport(String source, long resumedAfterLine, int maxListed) {
+        this.source = source;
+        this.resumedAfterLine = resumedAfterLine;
+        this.lines = resumedAfterLine;
+        this.maxListed = maxListed;
+    }
+
+    void lineRead() {
+        lines++;
+    }
+
+    void imported(long games, long visits) {
+        this.games += games;
+        this.visits += visits;
+    }
+
+    void rejected(long line, String match, String reason) {
+        rejectedGames++;
+        list(line, match, reason);
+    }
+
+    void unreadable(long line, String reason) {
+        unreadableLines++;
+        list(line, null, reason);
+    }
+
+    void finish(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    private void list(long line, String match, String reason) {
+        if (rejections.size() < maxListed) {
+            Map<String, Object> rejection = new LinkedHashMap<>();
+            rejection.put("line", line);
+            rejection.put("match", match);
+            rejection.put("reason", reason);
+            rejections.add(rejection);
+        }
+    }
+
+    public long getLines() {
+        return lines;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getRejectedGames() {
+        return rejectedGames;
+    }
+
+    public List<Map<String, Object>> getRejections() {
+        return new ArrayList<>(rejections);
+    }
+
+    public Map toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("source", source);
+        map.put("resumedAfterLine", resumedAfterLine);
+        map.put("lines", lines);
+        map.put("games", games);
+        map.put("visits", visits);
+        map.put("rejectedGames", rejectedGames);
+        map.put("unreadableLines", unreadableLines);
+        map.put("elapsedMillis", elapsedMillis);
+        map.put("rejections", new ArrayList<>(rejections));
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return source + ": " + games + " games with " + visits + " visits imported, " + rejectedGames
+                + " games rejected, " + unreadableLines + " unreadable lines, " + lines + " lines in "
+                + elapsedMillis + " ms"
+                + (resumedAfterLine > 0 ? " (resumed after line " + resumedAfterLine + ")" : "");
+    }
+}
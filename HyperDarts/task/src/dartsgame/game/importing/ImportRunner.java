@@ -0,0 +1,61 @@
+package dartsgame.game.importing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command line import: start with --import.input=matches.ndjson [--import.format=csv] [--import.source=NAME]
+ * and --spring.main.web-application-type=none. The source is the file name by default, starting the same import
+ * again resumes it. The application exits when the file is imported. The visits of a match must be on contiguous
+ * lines, e.g. sorted by match; a match reappearing after another match is rejected.
+ */
+@Component
+@ConditionalOnProperty(name = "import.input")
+public class ImportRunner implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportRunner.class);
+
+    private final MatchImporter matchImporter;
+    private final ConfigurableApplicationContext context;
+    private final Path input;
+    private final ImportFormat format;
+    private final String source;
+    private final int limit;
+
+    public ImportRunner(MatchImporter matchImporter,
+                        ConfigurableApplicationContext context,
+                        @Value("${import.input}") String input,
+                        @Value("${import.format:ndjson}") String format,
+                        @Value("${import.source:}") String source,
+                        @Value("${import.limit:100}") int limit) {
+        this.matchImporter = matchImporter;
+        this.context = context;
+        this.input = Paths.get(input);
+        this.format = ImportFormat.valueOf(format.toUpperCase());
+        this.source = source.isEmpty() ? this.input.getFileName().toString() : source;
+        this.limit = limit;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        ImportReport report;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(input))) {
+            report = matchImporter.importMatches(in, format, source, limit);
+        }
+        report.getRejections().forEach(rejection -> log.warn("Rejected {}", rejection));
+        log.info("Match import of {}", report);
+        System.exit(SpringApplication.exit(context));
+    }
+}
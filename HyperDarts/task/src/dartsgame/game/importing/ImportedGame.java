@@ -0,0 +1,169 @@
+package dartsgame.game.importing;
+
+import dartsgame.game.dto.DartsThrowForm;
+import dartsgame.game.dto.ThrownDart;
+import dartsgame.game.rules.Visit;
+import dartsgame.game.rules.VisitOutcome;
+import dartsgame.game.rules.X01Rules;
+import dartsgame.game.rules.X01State;
+import dartsgame.game.service.Validator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One imported match, replayed visit by visit with the same validation and rules as the /throws API. The states are
+ * the ones a game played through the API would have stored: the "started" state of the join, then one state per
+ * visit. A match that is not finished by a checkout is stored as cancelled, "Nobody wins!" without a new state.
+ */
+class ImportedGame {
+
+    static final int MAX_VISITS = 1000;
+
+    private final String match;
+    private final String playerOne;
+    private final String playerTwo;
+    private final List<X01State> states = new ArrayList<>();
+    private final List<Integer> darts = new ArrayList<>();
+    private String rejection;
+    private long rejectedLine;
+
+    /**
+     * Starts a match from its first visit, rejected at once if its players or target score are not valid.
+     * @param visit - the first visit of the match
+     * @param line - number of the line of the visit
+     * @param validator - validation of the game API
+     */
+    ImportedGame(ImportedVisit visit, long line, Validator validator) {
+        this.match = visit.getMatch();
+        this.playerOne = visit.getPlayerOne();
+        this.playerTwo = visit.getPlayerTwo();
+        if (isBlank(playerOne) || isBlank(playerTwo) || playerOne.equals(playerTwo)) {
+            reject(line, "two different players are needed");
+        } else if (visit.getTargetScore() == null || !validator.validateTargetScore(visit.getTargetScore())) {
+            reject(line, "wrong target score " + visit.getTargetScore());
+        } else {
+            states.add(X01State.start(visit.getTargetScore()));
+            darts.add(null);
+        }
+    }
+
+    /**
+     * Applies the next visit of the match, or rejects the match if the visit could not be thrown in the API.
+     * @param visit - the visit
+     * @param line - number of the line of the visit
+     * @param validator - validation of the game API
+     */
+    void apply(ImportedVisit visit, long line, Validator validator) {
+        if (isRejected()) {
+            return;
+        }
+        X01State state = states.get(states.size() - 1);
+        if (!playerOne.equals(visit.getPlayerOne()) || !playerTwo.equals(visit.getPlayerTwo())) {
+            reject(line, "players changed");
+            return;
+        }
+        if (state.isFinished()) {
+            reject(line, "visit after the checkout");
+            return;
+        }
+        if (states.size() > MAX_VISITS) {
+            reject(line, "more than " + MAX_VISITS + " visits");
+            return;
+        }
+        String turn = state.getTurn() == X01State.PLAYER_ONE ? playerOne : playerTwo;
+        if (!turn.equals(visit.getPlayer())) {
+            reject(line, "not the turn of " + visit.getPlayer());
+            return;
+        }
+
+        ThrownDart[] thrownDarts;
+        try {
+            thrownDarts = validator.validateThrows(state.getScoreOfTurn(),
+                    new DartsThrowForm(visit.getFirst(), visit.getSecond(), visit.getThird()));
+        } catch (RuntimeException e) {
+            //Missing or malformed darts
+            thrownDarts = new ThrownDart[0];
+        }
+        if (thrownDarts.length == 0) {
+            reject(line, "wrong throws");
+            return;
+        }
+        Visit thrown = Visit.of(thrownDarts);
+        X01State next = X01Rules.apply(state, thrown);
+        if (next.getOutcome() == VisitOutcome.REJECTED) {
+            reject(line, "wrong throws");
+            return;
+        }
+        states.add(next);
+        darts.add(thrown.toPacked());
+    }
+
+    /**
+     * Rejects a match whose id was already imported by this run: its lines are not contiguous, the earlier part was
+     * stored on its own.
+     * @param line - number of the line where the match reappears
+     */
+    void rejectReappeared(long line) {
+        reject(line, "match reappeared, the lines of a match must be contiguous");
+    }
+
+    private void reject(long line, String reason) {
+        rejection = reason;
+        rejectedLine = line;
+    }
+
+    private static boolean isBlank(String name) {
+        return name == null || name.trim().isEmpty();
+    }
+
+    boolean isRejected() {
+        return rejection != null;
+    }
+
+    String getRejection() {
+        return rejection;
+    }
+
+    long getRejectedLine() {
+        return rejectedLine;
+    }
+
+    String getMatch() {
+        return match;
+    }
+
+    String getPlayerOne() {
+        return playerOne;
+    }
+
+    String getPlayerTwo() {
+        return playerTwo;
+    }
+
+    /**
+     * @return - the states of the history in move order
+     */
+    List<X01State> getStates() {
+        return states;
+    }
+
+    /**
+     * @param move - a move of the history
+     * @return - the visit of the move packed by {@link Visit#toPacked()}, null for the first state
+     */
+    Integer getDarts(int move) {
+        return darts.get(move);
+    }
+
+    X01State getLastState() {
+        return states.get(states.size() - 1);
+    }
+
+    /**
+     * @return - number of visits, the states after the "started" one
+     */
+    int getVisits() {
+        return states.size() - 1;
+    }
+}
@@ -0,0 +1,84 @@
+package dartsgame.game.importing;
+
+/**
+ * Object of a line of a match import: one visit and the match it belongs to. Darts are written as in the /throws
+ * API, e.g. "3:20" or "none".
+ */
+public class ImportedVisit {
+
+    private String match;
+    private String playerOne;
+    private String playerTwo;
+    private Integer targetScore;
+    private String player;
+    private String first;
+    private String second;
+    private String third;
+
+    public ImportedVisit() {
+    }
+
+    public String getMatch() {
+        return match;
+    }
+
+    public void setMatch(String match) {
+        this.match = match;
+    }
+
+    public String getPlayerOne() {
+        return playerOne;
+    }
+
+    public void setPlayerOne(String playerOne) {
+        this.playerOne = playerOne;
+    }
+
+    public String getPlayerTwo() {
+        return playerTwo;
+    }
+
+    public void setPlayerTwo(String playerTwo) {
+        this.playerTwo = playerTwo;
+    }
+
+    public Integer getTargetScore() {
+        return targetScore;
+    }
+
+    public void setTargetScore(Integer targetScore) {
+        this.targetScore = targetScore;
+    }
+
+    public String getPlayer() {
+        return player;
+    }
+
+    public void setPlayer(String player) {
+        this.player = player;
+    }
+
+    public String getFirst() {
+        return first;
+    }
+
+    public void setFirst(String first) {
+        this.first = first;
+    }
+
+    public String getSecond() {
+        return second;
+    }
+
+    public void setSecond(String second) {
+        this.second = second;
+    }
+
+    public String getThird() {
+        return third;
+    }
+
+    public void setThird(String third) {
+        this.third = third;
+    }
+}
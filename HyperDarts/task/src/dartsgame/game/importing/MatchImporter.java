@@ -0,0 +1,323 @@
+package dartsgame.game.importing;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import dartsgame.game.persistance.PlayerDirectory;
+import dartsgame.game.rules.X01State;
+import dartsgame.game.service.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Imports historical matches from visit logs. Every match is replayed with the rules of the game API, see
+ * {@link ImportedGame}, and stored like a game played through the API: a games row, a game_history row, its states
+ * and their links. A match with a visit the API would refuse is rejected as a whole.
+ * <p>
+ * The input is read line by line and only the matches of the current batch are kept, so memory use depends on the
+ * batch size, not on the input. Rows are written with JDBC batches and committed whenever the batch holds enough
+ * states, always at the end of a match, together with the checkpoint of the source. A run of a source that was
+ * interrupted resumes after the last committed line.
+ * <p>
+ * The visits of a match must be on contiguous lines: a match ends at the first line of another match. A match id
+ * that reappears later in the same run is rejected from that line on; only the ids are kept for this check.
+ */
+@Service
+public class MatchImporter {
+
+    private static final String INSERT_GAME = "INSERT INTO games (player_one_id, player_two_id, game_status, " +
+            "player_one_score, player_two_score, turn_id) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_HISTORY = "INSERT INTO game_history (game_id) VALUES (?)";
+    private static final String INSERT_STATE = "INSERT INTO game_state (game_id, move, player_one_id, player_two_id, " +
+            "game_status, player_one_scores, player_two_scores, turn_id, darts) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String LINK_STATES = "INSERT INTO game_history_history_list " +
+            "(game_history_game_id, history_list_database_id) " +
+            "SELECT game_id, database_id FROM game_state WHERE game_id = ? ORDER BY move";
+    private static final String SELECT_CHECKPOINT = "SELECT lines_read, games, rejected_games FROM import_checkpoint " +
+            "WHERE source = ?";
+    private static final String MERGE_CHECKPOINT = "MERGE INTO import_checkpoint " +
+            "(source, lines_read, games, rejected_games, updated_at) KEY (source) " +
+            "VALUES (?, ?, ?, ?, CURRENT_TIMESTAMP)";
+    private static final String NOBODY_WINS = "Nobody wins!";
+    private static final int CSV_COLUMNS = 8;
+
+    private final DataSource dataSource;
+    private final PlayerDirectory playerDirectory;
+    private final Validator validator;
+    private final ObjectReader visitReader;
+    private final int batchSize;
+
+    public MatchImporter(DataSource dataSource,
+                         PlayerDirectory playerDirectory,
+                         Validator validator,
+                         ObjectMapper objectMapper,
+                         @Value("${import.batch-size:5000}") int batchSize) {
+        this.dataSource = dataSource;
+        this.playerDirectory = playerDirectory;
+        this.validator = validator;
+        this.visitReader = objectMapper.readerFor(ImportedVisit.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports the matches of a source.
+     * @param in - the visit log, it is read to the end but not closed
+     * @param format - format of the visit log
+     * @param source - name of the source, the key of its checkpoint; a source is resumed after its committed lines
+     * @param maxListed - number of rejections reported with their details
+     * @return - the report of this run
+     */
+    public ImportReport importMatches(InputStream in, ImportFormat format, String source, int maxListed)
+            throws IOException {
+        long start = System.currentTimeMillis();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                ImportReport report = importMatches(connection, reader, format, source, maxListed);
+                report.finish(System.currentTimeMillis() - start);
+                return report;
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Import of " + source + " failed", e);
+        }
+    }
+
+    private ImportReport importMatches(Connection connection, BufferedReader reader, ImportFormat format,
+                                       String source, int maxListed) throws SQLException, IOException {
+        Batch batch = new Batch(connection, source);
+        ImportReport report = new ImportReport(source, batch.committedLines, maxListed);
+        ImportedGame game = null;
+        Set<String> endedMatches = new HashSet<>();
+        long line = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (line <= batch.committedLines) {
+                continue;
+            }
+            report.lineRead();
+            if (text.trim().isEmpty() || format == ImportFormat.CSV && line == 1) {
+                continue;
+            }
+
+            ImportedVisit visit;
+            try {
+                visit = parse(text, format);
+            } catch (IOException | RuntimeException e) {
+                report.unreadable(line, "unreadable visit");
+                continue;
+            }
+            if (visit.getMatch() == null) {
+                report.unreadable(line, "no match");
+                continue;
+            }
+
+            if (game == null || !game.getMatch().equals(visit.getMatch())) {
+                //Every line before this one belongs to a complete match
+                if (game != null) {
+                    batch.add(game, report);
+                    endedMatches.add(game.getMatch());
+                    if (batch.states >= batchSize) {
+                        batch.commit(line - 1);
+                    }
+                }
+                game = new ImportedGame(visit, line, validator);
+                if (endedMatches.contains(visit.getMatch())) {
+                    game.rejectReappeared(line);
+                }
+            }
+            game.apply(visit, line, validator);
+        }
+        if (game != null) {
+            batch.add(game, report);
+        }
+        batch.commit(line);
+        return report;
+    }
+
+    private ImportedVisit parse(String text, ImportFormat format) throws IOException {
+        if (format == ImportFormat.NDJSON) {
+            return visitReader.readValue(text);
+        }
+        String[] columns = text.split(",", -1);
+        if (columns.length != CSV_COLUMNS) {
+            throw new IllegalArgumentException("Expected " + CSV_COLUMNS + " columns");
+        }
+        ImportedVisit visit = new ImportedVisit();
+        visit.setMatch(columns[0].trim());
+        visit.setPlayerOne(columns[1].trim());
+        visit.setPlayerTwo(columns[2].trim());
+        visit.setTargetScore(Integer.parseInt(columns[3].trim()));
+        visit.setPlayer(columns[4].trim());
+        visit.setFirst(columns[5].trim());
+        visit.setSecond(columns[6].trim());
+        visit.setThird(columns[7].trim());
+        return visit;
+    }
+
+    /**
+     * The matches replayed since the last commit and the checkpoint of the source.
+     */
+    private class Batch {
+        private final Connection connection;
+        private final String source;
+        private final List<ImportedGame> games = new ArrayList<>();
+        private long committedLines;
+        private long committedGames;
+        private long rejectedGames;
+        private int states;
+
+        private Batch(Connection connection, String source) throws SQLException {
+            this.connection = connection;
+            this.source = source;
+            try (PreparedStatement select = connection.prepareStatement(SELECT_CHECKPOINT)) {
+                select.setString(1, source);
+                try (ResultSet rs = select.executeQuery()) {
+                    if (rs.next()) {
+                        committedLines = rs.getLong("lines_read");
+                        committedGames = rs.getLong("games");
+                        rejectedGames = rs.getLong("rejected_games");
+                    }
+                }
+            }
+        }
+
+        private void add(ImportedGame game, ImportReport report) {
+            if (game.isRejected()) {
+                rejectedGames++;
+                report.rejected(game.getRejectedLine(), game.getMatch(), game.getRejection());
+                return;
+            }
+            games.add(game);
+            states += game.getStates().size();
+            report.imported(1, game.getVisits());
+        }
+
+        /**
+         * Writes the matches of the batch and the checkpoint in one transaction.
+         * @param lines - number of lines of the source read completely once the batch is written
+         */
+        private void commit(long lines) throws SQLException {
+            if (!games.isEmpty()) {
+                long[] gameIds = insertGames();
+                insertHistories(gameIds);
+            }
+            try (PreparedStatement merge = connection.prepareStatement(MERGE_CHECKPOINT)) {
+                merge.setString(1, source);
+                merge.setLong(2, lines);
+                merge.setLong(3, committedGames + games.size());
+                merge.setLong(4, rejectedGames);
+                merge.executeUpdate();
+            }
+            connection.commit();
+            committedLines = lines;
+            committedGames += games.size();
+            games.clear();
+            states = 0;
+        }
+
+        private long[] insertGames() throws SQLException {
+            long[] gameIds = new long[games.size()];
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_GAME, Statement.RETURN_GENERATED_KEYS)) {
+                for (ImportedGame game : games) {
+                    Integer playerOne = playerDirectory.register(game.getPlayerOne());
+                    Integer playerTwo = playerDirectory.register(game.getPlayerTwo());
+                    X01State last = game.getLastState();
+                    insert.setInt(1, playerOne);
+                    insert.setInt(2, playerTwo);
+                    insert.setString(3, last.isFinished() ? status(game, last) : NOBODY_WINS);
+                    insert.setInt(4, last.getPlayerOneScore());
+                    insert.setInt(5, last.getPlayerTwoScore());
+                    insert.setInt(6, last.getTurn() == X01State.PLAYER_ONE ? playerOne : playerTwo);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next() && i < gameIds.length) {
+                        gameIds[i++] = keys.getLong(1);
+                    }
+                    if (i != gameIds.length) {
+                        throw new IllegalStateException("The driver returned " + i + " ids for " + gameIds.length
+                                + " games");
+                    }
+                }
+            }
+            return gameIds;
+        }
+
+        private void insertHistories(long[] gameIds) throws SQLException {
+            try (PreparedStatement history = connection.prepareStatement(INSERT_HISTORY);
+                 PreparedStatement state = connection.prepareStatement(INSERT_STATE);
+                 PreparedStatement link = connection.prepareStatement(LINK_STATES)) {
+                for (int i = 0; i < gameIds.length; i++) {
+                    ImportedGame game = games.get(i);
+                    Integer playerOne = playerDirectory.idOf(game.getPlayerOne());
+                    Integer playerTwo = playerDirectory.idOf(game.getPlayerTwo());
+                    history.setLong(1, gameIds[i]);
+                    history.addBatch();
+                    List<X01State> gameStates = game.getStates();
+                    for (int move = 0; move < gameStates.size(); move++) {
+                        X01State gameState = gameStates.get(move);
+                        state.setLong(1, gameIds[i]);
+                        state.setInt(2, move);
+                        state.setInt(3, playerOne);
+                        state.setInt(4, playerTwo);
+                        state.setString(5, move == 0 ? "started" : status(game, gameState));
+                        state.setInt(6, gameState.getPlayerOneScore());
+                        state.setInt(7, gameState.getPlayerTwoScore());
+                        state.setInt(8, gameState.getTurn() == X01State.PLAYER_ONE ? playerOne : playerTwo);
+                        Integer darts = game.getDarts(move);
+                        if (darts == null) {
+                            state.setNull(9, Types.INTEGER);
+                        } else {
+                            state.setInt(9, darts);
+                        }
+                        state.addBatch();
+                    }
+                    link.setLong(1, gameIds[i]);
+                    link.addBatch();
+                }
+                history.executeBatch();
+                state.executeBatch();
+                //The links need the ids of the states, they are selected once every state is written
+                link.executeBatch();
+            }
+        }
+
+        /**
+         * @return - the stored status of a state after a visit, the winner as "#" and its id
+         */
+        private String status(ImportedGame game, X01State state) {
+            if (!state.isFinished()) {
+                return "playing";
+            }
+            String winner = state.getTurn() == X01State.PLAYER_ONE ? game.getPlayerOne() : game.getPlayerTwo();
+            return playerDirectory.toStoredStatus(winner + " wins!");
+        }
+    }
+}
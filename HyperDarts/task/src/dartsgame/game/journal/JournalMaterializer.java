@@ -0,0 +1,140 @@
+package dartsgame.game.journal;
+
+import dartsgame.game.persistance.GameHistoryRepository;
+import dartsgame.game.persistance.GameRepository;
+import dartsgame.game.persistance.dao.Game;
+import dartsgame.game.persistance.dao.GameHistory;
+import dartsgame.game.service.FinishedHistoryCache;
+import dartsgame.game.service.GameChangeNotifier;
+import dartsgame.tournament.TournamentService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+
+/**
+ * Writes the visits of the move journal to the games and history tables. On startup the unmaterialized tail of
+ * the journal is replayed before any request is served, afterwards a background thread follows the journal.
+ * Replaying a record twice is harmless: a move that is already in the history is skipped.
+ */
+@Component
+//Replays at startup even with lazy initialization, not when the first game request happens to need GameOwnership
+@Lazy(false)
+public class JournalMaterializer {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalMaterializer.class);
+
+    private final MoveJournal moveJournal;
+    private final GameRepository gameRepository;
+    private final GameHistoryRepository gameHistoryRepository;
+    private final FinishedHistoryCache finishedHistoryCache;
+    private final GameChangeNotifier gameChangeNotifier;
+    private final TournamentService tournamentService;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private Thread worker;
+
+    public JournalMaterializer(MoveJournal moveJournal,
+                               GameRepository gameRepository,
+                               GameHistoryRepository gameHistoryRepository,
+                               FinishedHistoryCache finishedHistoryCache,
+                               GameChangeNotifier gameChangeNotifier,
+                               TournamentService tournamentService,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${journal.materializer-batch-size:256}") int batchSize) {
+        this.moveJournal = moveJournal;
+        this.gameRepository = gameRepository;
+        this.gameHistoryRepository = gameHistoryRepository;
+        this.finishedHistoryCache = finishedHistoryCache;
+        this.gameChangeNotifier = gameChangeNotifier;
+        this.tournamentService = tournamentService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!moveJournal.isEnabled()) {
+            return;
+        }
+        int replayed = 0;
+        List<JournalRecord> records;
+        while (!(records = moveJournal.unmaterialized(batchSize)).isEmpty()) {
+            materialize(records);
+            replayed += records.size();
+        }
+        log.info("Replayed {} journaled moves", replayed);
+
+        worker = new Thread(this::follow, "move-journal-materializer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void follow() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                materialize(moveJournal.awaitUnmaterialized(batchSize));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                //The checkpoint did not move, the same records are retried
+                log.error("Materializing journaled moves failed", e);
+                sleepBeforeRetry();
+            }
+        }
+    }
+
+    private void materialize(List<JournalRecord> records) {
+        transactionTemplate.executeWithoutResult(status -> records.forEach(this::apply));
+        moveJournal.markMaterialized(records);
+    }
+
+    private void apply(JournalRecord record) {
+        Game game = gameRepository.findById(record.getGameId()).orElse(null);
+        GameHistory gameHistory = gameHistoryRepository.findById(record.getGameId()).orElse(null);
+        if (game == null || gameHistory == null || gameHistory.getHistoryList().size() > record.getMove()) {
+            return;
+        }
+        record.applyTo(game);
+        gameRepository.save(game);
+        gameHistory.addNewGameState(
+                game.getGameId(),
+                record.getMove(),
+                game.getPlayerOne(),
+                game.getPlayerTwo(),
+                game.getGameStatus(),
+                game.getPlayerOneScores(),
+                game.getPlayerTwoScores(),
+                game.getTurn(),
+                record.getVisit());
+        gameHistoryRepository.save(gameHistory);
+        //History streams only see a journaled visit once it is materialized
+        gameChangeNotifier.gameChangedAfterCommit(game);
+        if (record.isFinished()) {
+            finishedHistoryCache.putIfFinishedAfterCommit(gameHistory);
+            tournamentService.gameFinishedAfterCommit(game);
+        }
+    }
+
+    private void sleepBeforeRetry() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package dartsgame.game.journal;
+
+import dartsgame.game.persistance.dao.Game;
+import dartsgame.game.rules.GamePhase;
+import dartsgame.game.rules.Visit;
+import dartsgame.game.rules.X01State;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * One acknowledged visit in the move journal: the game, the move number it gets in the history and the compact
+ * state of the game after the visit. Stored as a fixed-size, checksummed record.
+ */
+public final class JournalRecord {
+    static final int SIZE = 32;
+    private static final int CHECKSUMMED_BYTES = 28;
+
+    private final long gameId;
+    private final int move;
+    private final int playerOneScore;
+    private final int playerTwoScore;
+    private final int turn;
+    private final GamePhase phase;
+    private final int visit;
+
+    public JournalRecord(long gameId, int move, int playerOneScore, int playerTwoScore, int turn, GamePhase phase, int visit) {
+        this.gameId = gameId;
+        this.move = move;
+        this.playerOneScore = playerOneScore;
+        this.playerTwoScore = playerTwoScore;
+        this.turn = turn;
+        this.phase = phase;
+        this.visit = visit;
+    }
+
+    public static JournalRecord of(long gameId, int move, X01State state, Visit visit) {
+        return new JournalRecord(gameId, move, state.getPlayerOneScore(), state.getPlayerTwoScore(),
+                state.getTurn(), state.getPhase(), visit.toPacked());
+    }
+
+    public long getGameId() {
+        return gameId;
+    }
+
+    public int getMove() {
+        return move;
+    }
+
+    public int getVisit() {
+        return visit;
+    }
+
+    public boolean isFinished() {
+        return phase == GamePhase.FINISHED;
+    }
+
+    /**
+     * Sets scores, turn and status of a game to the state of this record. A finished state keeps the turn of
+     * the winner, so the status is derived from it.
+     * @param game - the game this record belongs to
+     */
+    public void applyTo(Game game) {
+        String playerOfTurn = turn == X01State.PLAYER_ONE ? game.getPlayerOne() : game.getPlayerTwo();
+        game.setPlayerOneScores(playerOneScore);
+        game.setPlayerTwoScores(playerTwoScore);
+        game.setTurn(playerOfTurn);
+        switch (phase) {
+            case STARTED:
+                game.setGameStatus("started");
+                break;
+            case PLAYING:
+                game.setGameStatus("playing");
+                break;
+            default:
+                game.setGameStatus(playerOfTurn + " wins!");
+        }
+    }
+
+    /**
+     * Writes the record at the current position of the buffer.
+     * Layout: gameId, move, generation, scores as shorts, turn, phase, 2 bytes padding, visit, CRC32.
+     */
+    void write(ByteBuffer buffer, int generation) {
+        int start = buffer.position();
+        buffer.putLong(gameId)
+                .putInt(move)
+                .putInt(generation)
+                .putShort((short) playerOneScore)
+                .putShort((short) playerTwoScore)
+                .put((byte) turn)
+                .put((byte) phase.ordinal())
+                .putShort((short) 0)
+                .putInt(visit);
+        buffer.putInt(checksum(buffer, start));
+    }
+
+    /**
+     * Reads a record at the current position of the buffer.
+     * @return - the record, or null if the slot is empty, torn or written in another generation of the file
+     */
+    static JournalRecord read(ByteBuffer buffer, int generation) {
+        int start = buffer.position();
+        int expected = buffer.getInt(start + CHECKSUMMED_BYTES);
+        if (buffer.getInt(start + 12) != generation || checksum(buffer, start) != expected) {
+            return null;
+        }
+        long gameId = buffer.getLong(start);
+        int move = buffer.getInt(start + 8);
+        int playerOneScore = buffer.getShort(start + 16);
+        int playerTwoScore = buffer.getShort(start + 18);
+        int turn = buffer.get(start + 20);
+        int phase = buffer.get(start + 21);
+        int visit = buffer.getInt(start + 24);
+        if (phase < 0 || phase >= GamePhase.values().length) {
+            return null;
+        }
+        buffer.position(start + SIZE);
+        return new JournalRecord(gameId, move, playerOneScore, playerTwoScore, turn, GamePhase.values()[phase], visit);
+    }
+
+    private static int checksum(ByteBuffer buffer, int start) {
+        CRC32 crc = new CRC32();
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(start).limit(start + CHECKSUMMED_BYTES);
+        crc.update(slice);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,240 @@
+package dartsgame.game.journal;
+
+import dartsgame.game.persistance.dao.Game;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only journal of acknowledged visits in a memory-mapped file. A visit is durable once its record is
+ * appended, the games and history tables are materialized from the journal afterwards by {@link JournalMaterializer}.
+ * <p>
+ * The file starts with a header holding the generation and the number of materialized records (the checkpoint),
+ * followed by fixed-size records. Once every record is materialized and the file is full, the generation is
+ * increased and writing starts over; records of an older generation are ignored when the file is scanned.
+ * Visits that are acknowledged but not materialized yet are kept in memory, so reads can see them.
+ */
+@Component
+public class MoveJournal {
+    private static final int MAGIC = 0x4D4A524E;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int GENERATION_OFFSET = 8;
+    private static final int CHECKPOINT_OFFSET = 16;
+
+    private final boolean enabled;
+    private final boolean forceOnAppend;
+    private final int capacity;
+    private final Map<Long, JournalRecord> pending = new ConcurrentHashMap<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int generation;
+    private int writeIndex;
+    private int materializedIndex;
+
+    public MoveJournal(@Value("${journal.enabled:false}") boolean enabled,
+                       @Value("${journal.path:../move_journal.dat}") String path,
+                       @Value("${journal.capacity-records:1048576}") int capacity,
+                       @Value("${journal.force-on-append:true}") boolean forceOnAppend) {
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.forceOnAppend = forceOnAppend;
+        if (enabled) {
+            open(Paths.get(path));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private void open(Path path) {
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * JournalRecord.SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Move journal could not be opened: " + path, e);
+        }
+
+        if (buffer.getInt(0) != MAGIC) {
+            buffer.putInt(0, MAGIC).putInt(4, VERSION);
+            startGeneration(1);
+        }
+        generation = buffer.getInt(GENERATION_OFFSET);
+        materializedIndex = (int) buffer.getLong(CHECKPOINT_OFFSET);
+
+        //Everything after the checkpoint up to the first empty or torn record was acknowledged to clients
+        writeIndex = materializedIndex;
+        JournalRecord record;
+        while (writeIndex < capacity && (record = JournalRecord.read(positionOf(writeIndex), generation)) != null) {
+            pending.put(record.getGameId(), record);
+            writeIndex++;
+        }
+    }
+
+    private void startGeneration(int newGeneration) {
+        buffer.putInt(GENERATION_OFFSET, newGeneration).putLong(CHECKPOINT_OFFSET, 0);
+        buffer.force();
+        generation = newGeneration;
+        writeIndex = 0;
+        materializedIndex = 0;
+    }
+
+    private MappedByteBuffer positionOf(int index) {
+        buffer.position(HEADER_SIZE + index * JournalRecord.SIZE);
+        return buffer;
+    }
+
+    /**
+     * Appends a visit and makes it durable. Blocks while the file is full and the materializer is catching up.
+     * @param record - the state of a game after an acknowledged visit
+     */
+    public synchronized void append(JournalRecord record) {
+        if (writeIndex == capacity) {
+            awaitAllMaterialized();
+            startGeneration(generation + 1);
+        }
+        int offset = HEADER_SIZE + writeIndex * JournalRecord.SIZE;
+        record.write(positionOf(writeIndex), generation);
+        if (forceOnAppend) {
+            buffer.force(offset, JournalRecord.SIZE);
+        }
+        writeIndex++;
+        pending.put(record.getGameId(), record);
+        notifyAll();
+    }
+
+    /**
+     * Waits until there are records to materialize.
+     * @param max - maximum number of records to return
+     * @return - records after the checkpoint in append order
+     */
+    synchronized List<JournalRecord> awaitUnmaterialized(int max) throws InterruptedException {
+        while (materializedIndex == writeIndex) {
+            wait();
+        }
+        return unmaterialized(max);
+    }
+
+    /**
+     * @param max - maximum number of records to return
+     * @return - records after the checkpoint in append order, empty if everything is materialized
+     */
+    synchronized List<JournalRecord> unmaterialized(int max) {
+        int end = Math.min(writeIndex, materializedIndex + max);
+        List<JournalRecord> records = new ArrayList<>(end - materializedIndex);
+        for (int i = materializedIndex; i < end; i++) {
+            records.add(JournalRecord.read(positionOf(i), generation));
+        }
+        return records;
+    }
+
+    /**
+     * Moves the checkpoint after records that are committed to the database.
+     * @param records - the records returned by the last read, in the same order
+     */
+    synchronized void markMaterialized(List<JournalRecord> records) {
+        materializedIndex += records.size();
+        buffer.putLong(CHECKPOINT_OFFSET, materializedIndex);
+        if (forceOnAppend) {
+            buffer.force(CHECKPOINT_OFFSET, Long.BYTES);
+        }
+        for (JournalRecord record : records) {
+            pending.computeIfPresent(record.getGameId(), (id, latest) -> latest.getMove() == record.getMove() ? null : latest);
+        }
+        notifyAll();
+    }
+
+    private void awaitAllMaterialized() {
+        try {
+            while (materializedIndex < writeIndex) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the move journal", e);
+        }
+    }
+
+    /**
+     * Waits until every acknowledged visit is in the database, before games are handed to another node.
+     */
+    public synchronized void flush() {
+        if (enabled) {
+            awaitAllMaterialized();
+        }
+    }
+
+    /**
+     * Waits until every acknowledged visit of a game is in the database. Has to be called before the game is
+     * changed other than by a visit (cancel, revert, delete) or before its history is read.
+     * @param gameId - unique identifier of a game
+     */
+    public synchronized void awaitMaterialized(Long gameId) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            while (pending.containsKey(gameId)) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the move journal", e);
+        }
+    }
+
+    /**
+     * @param gameId - unique identifier of a game
+     * @return - move number of the latest acknowledged but not materialized visit, or null if there is none
+     */
+    public Integer pendingMove(Long gameId) {
+        JournalRecord record = pending.get(gameId);
+        return record == null ? null : record.getMove();
+    }
+
+    /**
+     * Shows a game as of its latest acknowledged visit.
+     * @param game - a game loaded from the database, it is never modified
+     * @return - a copy with the pending state applied, or the game itself if it has no pending visits
+     */
+    public Game overlay(Game game) {
+        JournalRecord record = game == null ? null : pending.get(game.getGameId());
+        if (record == null) {
+            return game;
+        }
+        Game copy = game.copy();
+        record.applyTo(copy);
+        return copy;
+    }
+
+    /**
+     * @param gameId - unique identifier of a game
+     * @return - true if the latest acknowledged visit of the game finished it
+     */
+    public boolean isFinishedPending(Long gameId) {
+        JournalRecord record = pending.get(gameId);
+        return record != null && record.isFinished();
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            buffer.force();
+            channel.close();
+        }
+    }
+}
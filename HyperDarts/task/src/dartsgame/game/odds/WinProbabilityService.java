@@ -0,0 +1,177 @@
+package dartsgame.game.odds;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dartsgame.game.persistance.dao.GameState;
+import dartsgame.game.rules.Visit;
+import dartsgame.simulation.AccuracyModel;
+import dartsgame.simulation.BoardAccuracyModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Win probabilities of both players for broadcast overlays. The tables are built once in the background at startup,
+ * until then no probability is given. The skill level of a player is the level whose average visit is closest to
+ * the player's recent visits, followed in memory from every applied visit; a player never seen since startup is
+ * taken as the middle level. Nothing is read from the database.
+ */
+@Service
+//The tables take a while to build, they are started at startup instead of by the first game request
+@Lazy(false)
+public class WinProbabilityService {
+
+    private static final Logger log = LoggerFactory.getLogger(WinProbabilityService.class);
+
+    //Weight of the latest visit in a player's average
+    private static final double VISIT_WEIGHT = 0.05;
+    private static final String WINS = " wins!";
+
+    private final double[] accuracies;
+    private final int samples;
+    private final long seed;
+    private final Cache<String, double[]> averages = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .build();
+    private volatile CompletableFuture<WinProbabilityTables> tables = new CompletableFuture<>();
+
+    public WinProbabilityService(@Value("${win-probability.skill-levels:0.25,0.4,0.6}") double[] accuracies,
+                                 @Value("${win-probability.samples:2000}") int samples,
+                                 @Value("${win-probability.seed:42}") long seed) {
+        this.accuracies = accuracies;
+        this.samples = samples;
+        this.seed = seed;
+    }
+
+    @PostConstruct
+    public void buildTables() {
+        tables = CompletableFuture.supplyAsync(() -> {
+            long start = System.currentTimeMillis();
+            AccuracyModel[] levels = new AccuracyModel[accuracies.length];
+            for (int i = 0; i < accuracies.length; i++) {
+                levels[i] = new BoardAccuracyModel(accuracies[i]);
+            }
+            WinProbabilityTables built = new WinProbabilityTables(levels, samples, seed);
+            log.info("Built win probability tables of {} skill levels in {} ms",
+                    levels.length, System.currentTimeMillis() - start);
+            return built;
+        });
+    }
+
+    /**
+     * Follows the skill of a player.
+     * @param name - name of the player who threw
+     * @param visit - the thrown darts
+     */
+    public void recordVisit(String name, Visit visit) {
+        WinProbabilityTables ready = tables.getNow(null);
+        if (ready == null) {
+            return;
+        }
+        int points = 0;
+        for (int i = 0; i < Visit.DARTS && !visit.isNone(i); i++) {
+            points += visit.getPoints(i);
+        }
+        double start = ready.averageVisitPoints(ready.levels() / 2);
+        int visitPoints = points;
+        averages.asMap().compute(name, (key, average) -> {
+            double previous = average == null ? start : average[0];
+            return new double[]{previous + VISIT_WEIGHT * (visitPoints - previous)};
+        });
+    }
+
+    /**
+     * @param game - map representation of a game
+     * @return - a copy of the game with the win probability of both players, or the game itself if there is none
+     */
+    public Map withWinProbability(Map game) {
+        Map<String, Double> winProbability = winProbability(
+                (String) game.get("playerOne"),
+                (String) game.get("playerTwo"),
+                (String) game.get("gameStatus"),
+                (Integer) game.get("playerOneScores"),
+                (Integer) game.get("playerTwoScores"),
+                (String) game.get("turn"));
+        if (winProbability == null) {
+            return game;
+        }
+        Map<Object, Object> copy = new LinkedHashMap<>(game);
+        copy.put("winProbability", winProbability);
+        return copy;
+    }
+
+    /**
+     * @param state - a state of a game history
+     * @return - map representation of the state with the win probability of both players if there is one
+     */
+    public Map withWinProbability(GameState state) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("gameId", state.getGameId());
+        map.put("move", state.getMove());
+        map.put("playerOne", state.getPlayerOne());
+        map.put("playerTwo", state.getPlayerTwo());
+        map.put("gameStatus", state.getGameStatus());
+        map.put("playerOneScores", state.getPlayerOneScores());
+        map.put("playerTwoScores", state.getPlayerTwoScores());
+        map.put("turn", state.getTurn());
+        return withWinProbability(map);
+    }
+
+    /**
+     * @return - win probabilities keyed playerOne and playerTwo, or null if the game is not between two players,
+     * ended without a winner, or the tables are not built yet
+     */
+    private Map<String, Double> winProbability(String playerOne, String playerTwo, String status,
+                                               Integer playerOneScore, Integer playerTwoScore, String turn) {
+        WinProbabilityTables ready = tables.getNow(null);
+        if (ready == null || playerOne == null || playerOne.isEmpty() || playerTwo == null || playerTwo.isEmpty()
+                || status == null || status.equals("created") || status.equals("Nobody" + WINS)
+                || playerOneScore == null || playerTwoScore == null) {
+            return null;
+        }
+        double playerOneWins;
+        if (status.endsWith(WINS)) {
+            playerOneWins = status.equals(playerOne + WINS) ? 1 : 0;
+        } else if (playerOne.equals(turn)) {
+            playerOneWins = ready.winProbability(levelOf(ready, playerOne), levelOf(ready, playerTwo),
+                    clamp(playerOneScore), clamp(playerTwoScore));
+        } else {
+            playerOneWins = 1 - ready.winProbability(levelOf(ready, playerTwo), levelOf(ready, playerOne),
+                    clamp(playerTwoScore), clamp(playerOneScore));
+        }
+        Map<String, Double> winProbability = new LinkedHashMap<>();
+        winProbability.put("playerOne", round(playerOneWins));
+        winProbability.put("playerTwo", round(1 - playerOneWins));
+        return winProbability;
+    }
+
+    private int levelOf(WinProbabilityTables ready, String name) {
+        double[] average = averages.getIfPresent(name);
+        if (average == null) {
+            return ready.levels() / 2;
+        }
+        int level = 0;
+        for (int i = 1; i < ready.levels(); i++) {
+            double distance = Math.abs(ready.averageVisitPoints(i) - average[0]);
+            if (distance < Math.abs(ready.averageVisitPoints(level) - average[0])) {
+                level = i;
+            }
+        }
+        return level;
+    }
+
+    private static int clamp(int score) {
+        return Math.max(2, Math.min(WinProbabilityTables.MAX_SCORE, score));
+    }
+
+    private static double round(double probability) {
+        return Math.round(probability * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,164 @@
+package dartsgame.game.odds;
+
+import dartsgame.game.rules.GamePhase;
+import dartsgame.game.rules.Visit;
+import dartsgame.game.rules.VisitOutcome;
+import dartsgame.game.rules.X01Rules;
+import dartsgame.game.rules.X01State;
+import dartsgame.simulation.AccuracyModel;
+import dartsgame.simulation.MatchSimulator;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Probabilities of winning an x01 game for every pair of remaining scores, for every pair of skill levels.
+ * <p>
+ * A skill level is an accuracy model. For each level the distribution of the score left after one visit is sampled
+ * once for every remaining score, using the same rules kernel as real games. The probability W(a, b) that the player
+ * about to throw with a remaining wins against an opponent with b remaining then follows from
+ * <pre>
+ *     W(a, b) = P(checkout from a) + sum over a' of P(a -> a') * (1 - W'(b, a'))
+ * </pre>
+ * where W' is the table of the opponent's level. A visit that leaves the score unchanged (a bust or no points) links
+ * W(a, b) with W'(b, a), so both are solved together from a 2x2 system. Every other term has a lower score, so the
+ * tables are filled in order of increasing scores. Lookups are two array reads.
+ */
+public class WinProbabilityTables {
+
+    public static final int MAX_SCORE = 501;
+    private static final int SIZE = MAX_SCORE + 1;
+
+    private final float[][][] tables;
+    private final double[] averageVisitPoints;
+
+    /**
+     * Samples the visits of every level and fills the tables of every pair of levels, in parallel.
+     * @param levels - accuracy models of the skill levels, from weakest to strongest
+     * @param samples - visits sampled per level and remaining score
+     * @param seed - seed of the sampling, the same seed gives the same tables
+     */
+    public WinProbabilityTables(AccuracyModel[] levels, int samples, long seed) {
+        int count = levels.length;
+        Transitions[] transitions = IntStream.range(0, count).parallel()
+                .mapToObj(level -> new Transitions(levels[level], samples, seed + level))
+                .toArray(Transitions[]::new);
+        averageVisitPoints = new double[count];
+        for (int level = 0; level < count; level++) {
+            averageVisitPoints[level] = transitions[level].averagePointsFromMax;
+        }
+        tables = new float[count][count][];
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < count; j++) {
+                tables[i][j] = new float[SIZE * SIZE];
+            }
+        }
+        //Filling the pair (i, j) also fills (j, i)
+        IntStream.range(0, count * count).parallel()
+                .filter(pair -> pair / count <= pair % count)
+                .forEach(pair -> fill(transitions[pair / count], transitions[pair % count],
+                        tables[pair / count][pair % count], tables[pair % count][pair / count]));
+    }
+
+    /**
+     * @param throwerLevel - skill level of the player about to throw
+     * @param opponentLevel - skill level of the other player
+     * @param throwerScore - remaining score of the player about to throw, 2 to 501
+     * @param opponentScore - remaining score of the other player, 2 to 501
+     * @return - probability that the player about to throw wins the game
+     */
+    public double winProbability(int throwerLevel, int opponentLevel, int throwerScore, int opponentScore) {
+        return tables[throwerLevel][opponentLevel][throwerScore * SIZE + opponentScore];
+    }
+
+    public int levels() {
+        return tables.length;
+    }
+
+    /**
+     * @param level - a skill level
+     * @return - average points thrown in a visit from 501 at the level, to tell the level of a player
+     */
+    public double averageVisitPoints(int level) {
+        return averageVisitPoints[level];
+    }
+
+    /**
+     * Fills W_ab, the tables of player A throwing against B, and W_ba together.
+     */
+    private static void fill(Transitions a, Transitions b, float[] winAb, float[] winBa) {
+        for (int scoreA = 2; scoreA < SIZE; scoreA++) {
+            for (int scoreB = 2; scoreB < SIZE; scoreB++) {
+                double movesA = a.checkout[scoreA];
+                int[] toA = a.to[scoreA];
+                float[] probabilityA = a.probability[scoreA];
+                for (int k = 0; k < toA.length; k++) {
+                    movesA += probabilityA[k] * (1 - winBa[scoreB * SIZE + toA[k]]);
+                }
+                double movesB = b.checkout[scoreB];
+                int[] toB = b.to[scoreB];
+                float[] probabilityB = b.probability[scoreB];
+                for (int k = 0; k < toB.length; k++) {
+                    movesB += probabilityB[k] * (1 - winAb[scoreA * SIZE + toB[k]]);
+                }
+                double stayA = a.stay[scoreA];
+                double stayB = b.stay[scoreB];
+                double denominator = 1 - stayA * stayB;
+                double x = denominator <= 0 ? 0.5 : (movesA + stayA * (1 - movesB - stayB)) / denominator;
+                double y = denominator <= 0 ? 0.5 : (movesB + stayB * (1 - movesA - stayA)) / denominator;
+                winAb[scoreA * SIZE + scoreB] = (float) x;
+                winBa[scoreB * SIZE + scoreA] = (float) y;
+            }
+        }
+    }
+
+    /**
+     * Sampled outcome of one visit of a level from every remaining score: the probabilities to check out, to stay
+     * on the same score, and to move to each lower score of 2 or more.
+     */
+    private static class Transitions {
+        private final double[] checkout = new double[SIZE];
+        private final double[] stay = new double[SIZE];
+        private final int[][] to = new int[SIZE][];
+        private final float[][] probability = new float[SIZE][];
+        private final double averagePointsFromMax;
+
+        private Transitions(AccuracyModel model, int samples, long seed) {
+            SplittableRandom random = new SplittableRandom(seed);
+            int[] counts = new int[SIZE];
+            long pointsFromMax = 0;
+            for (int score = 2; score < SIZE; score++) {
+                Arrays.fill(counts, 0);
+                for (int i = 0; i < samples; i++) {
+                    Visit visit = MatchSimulator.throwVisit(model, score, random);
+                    X01State after = X01Rules.apply(
+                            new X01State(score, score, X01State.PLAYER_ONE, GamePhase.PLAYING, null), visit);
+                    counts[after.getOutcome() == VisitOutcome.CHECKOUT ? 0 : after.getPlayerOneScore()]++;
+                    if (score == MAX_SCORE) {
+                        for (int dart = 0; dart < Visit.DARTS && !visit.isNone(dart); dart++) {
+                            pointsFromMax += visit.getPoints(dart);
+                        }
+                    }
+                }
+                checkout[score] = (double) counts[0] / samples;
+                stay[score] = (double) counts[score] / samples;
+                int moves = 0;
+                for (int next = 2; next < score; next++) {
+                    if (counts[next] > 0) {
+                        moves++;
+                    }
+                }
+                to[score] = new int[moves];
+                probability[score] = new float[moves];
+                for (int next = 2, k = 0; next < score; next++) {
+                    if (counts[next] > 0) {
+                        to[score][k] = next;
+                        probability[score][k++] = (float) counts[next] / samples;
+                    }
+                }
+            }
+            averagePointsFromMax = (double) pointsFromMax / samples;
+        }
+    }
+}
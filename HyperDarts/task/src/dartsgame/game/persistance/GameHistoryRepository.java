@@ -2,6 +2,7 @@ package dartsgame.game.persistance;
 
 import dartsgame.game.persistance.dao.GameHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
@@ -12,4 +13,18 @@ public interface GameHistoryRepository extends JpaRepository<GameHistory, Long>
 
     @Query("SELECT gh FROM GameHistory gh WHERE gh.gameId = ?1")
     Optional<GameHistory> getGameHistoryById(Long id);
+
+    //Links a saved state to its history without loading the history list
+    @Modifying
+    @Query(value = "INSERT INTO game_history_history_list (game_history_game_id, history_list_database_id) VALUES (?1, ?2)", nativeQuery = true)
+    void appendGameState(Long gameId, Long gameStateId);
+
+    //Unlinks the states after a move without rewriting the join table of the history list
+    @Modifying
+    @Query(value = "DELETE FROM game_history_history_list WHERE game_history_game_id = ?1 AND history_list_database_id IN (SELECT database_id FROM game_state WHERE game_id = ?1 AND move > ?2)", nativeQuery = true)
+    void unlinkGameStatesAfter(Long gameId, Integer move);
+
+    @Modifying
+    @Query(value = "DELETE FROM game_history WHERE game_id = ?1", nativeQuery = true)
+    void deleteGameHistory(Long gameId);
 }
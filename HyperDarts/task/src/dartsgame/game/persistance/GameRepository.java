@@ -1,10 +1,14 @@
 package dartsgame.game.persistance;
 
 import dartsgame.game.persistance.dao.Game;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,10 +18,24 @@ import java.util.Optional;
 @Repository
 public interface GameRepository extends JpaRepository<Game, Long> {
 
-    //SELECT * FROM games WHERE player_one = ?
+    //Player names are compared as player ids, see PlayerIdConverter
     @Query("SELECT g FROM Game g WHERE (g.gameStatus = 'created' OR g.gameStatus = 'started' OR g.gameStatus = 'playing') AND (g.playerOne = ?1 OR g.playerTwo = ?1)")
     Optional<Game> findGameByPlayerName(String name);
 
-    @Query("SELECT g FROM Game g WHERE g.gameStatus LIKE '%wins%' AND (g.playerOne = ?1 OR g.playerTwo = ?1)")
-    List<Game> findFinishedGamesByPlayerName(String name);
+    @Query("SELECT g.gameId FROM Game g WHERE (g.gameStatus = 'created' OR g.gameStatus = 'started' OR g.gameStatus = 'playing') AND (g.playerOne = ?1 OR g.playerTwo = ?1)")
+    Optional<Long> findGameIdByPlayerName(String name);
+
+    @Query("SELECT g FROM Game g WHERE g.gameStatus LIKE '%wins%' AND (g.playerOne = ?1 OR g.playerTwo = ?1) ORDER BY g.gameId DESC")
+    List<Game> findFinishedGamesByPlayerName(String name, Pageable pageable);
+
+    @Query("SELECT g FROM Game g WHERE (g.gameStatus = 'created' OR g.gameStatus = 'started' OR g.gameStatus = 'playing') AND g.lastActivity < ?1 AND g.gameId NOT IN ?2 ORDER BY g.lastActivity")
+    List<Game> findIdleGames(Instant idleSince, Collection<Long> skipped, Pageable pageable);
+
+    @Query("SELECT g FROM Game g WHERE (g.gameStatus = 'created' OR g.gameStatus = 'started' OR g.gameStatus = 'playing') AND g.lastActivity < ?1 AND MOD(g.gameId, ?3) IN ?2 AND g.gameId NOT IN ?4 ORDER BY g.lastActivity")
+    List<Game> findIdleGamesInPartitions(Instant idleSince, Collection<Long> partitions, long partitionCount, Collection<Long> skipped, Pageable pageable);
+
+    //Deletes without loading the game first, the number of deleted rows tells if it existed
+    @Modifying
+    @Query(value = "DELETE FROM games WHERE game_id = ?1", nativeQuery = true)
+    int deleteGame(Long gameId);
 }
@@ -2,8 +2,16 @@ package dartsgame.game.persistance;
 
 import dartsgame.game.persistance.dao.GameState;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface GameStateRepository extends JpaRepository<GameState, Integer> {
+
+    long countByGameId(Long gameId);
+
+    @Modifying
+    @Query(value = "DELETE FROM game_state WHERE game_id = ?1 AND move > ?2", nativeQuery = true)
+    void deleteGameStatesAfter(Long gameId, Integer move);
 }
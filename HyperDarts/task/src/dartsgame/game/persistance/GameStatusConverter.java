@@ -0,0 +1,32 @@
+package dartsgame.game.persistance;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Stores the winner in a game status as player id, see {@link PlayerDirectory#toStoredStatus(String)}.
+ */
+@Component
+@Converter
+public class GameStatusConverter implements AttributeConverter<String, String> {
+
+    private final PlayerDirectory playerDirectory;
+
+    @Autowired
+    public GameStatusConverter(PlayerDirectory playerDirectory) {
+        this.playerDirectory = playerDirectory;
+    }
+
+    @Override
+    public String convertToDatabaseColumn(String status) {
+        return playerDirectory.toStoredStatus(status);
+    }
+
+    @Override
+    public String convertToEntityAttribute(String storedStatus) {
+        return playerDirectory.toDisplayedStatus(storedStatus);
+    }
+}
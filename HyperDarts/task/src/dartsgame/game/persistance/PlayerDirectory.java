@@ -0,0 +1,142 @@
+package dartsgame.game.persistance;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dartsgame.sqlbudget.StatementCounter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps player names to the integer ids stored in the games and history tables. A player never changes name or id,
+ * so both directions are cached for the lifetime of the application; a name without a player is remembered for
+ * players.unknown-name-ttl, e.g. for the status requests of a player who never played.
+ * <p>
+ * Lookups run on the connection of the caller's transaction if there is one, so a converter or a query binding a
+ * name never needs a second connection from the pool. Their statements count towards the SQL budget of the request.
+ */
+@Component
+public class PlayerDirectory {
+
+    private static final String WINS = " wins!";
+    private static final String NOBODY = "Nobody";
+    private static final String SELECT_BY_NAME = "SELECT player_id, name FROM players WHERE name = ?";
+    private static final String SELECT_BY_ID = "SELECT player_id, name FROM players WHERE player_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+    private final Cache<String, Boolean> unknownNames;
+
+    @Autowired
+    public PlayerDirectory(DataSource dataSource,
+                           @Value("${players.unknown-name-ttl:PT2S}") Duration unknownNameTtl) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.unknownNames = Caffeine.newBuilder()
+                .expireAfterWrite(unknownNameTtl)
+                .maximumSize(100_000)
+                .build();
+    }
+
+    /**
+     * Adds a player if it is not known yet. Has to be called before the transaction of the caller starts: the
+     * player is committed at once, so the cached id stays valid whatever happens to that transaction.
+     * @param name - name of the player
+     * @return - id of the player
+     * @throws IllegalStateException - if an unknown player is registered inside a transaction
+     */
+    public Integer register(String name) {
+        Integer id = idOf(name);
+        if (id != null) {
+            return id;
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Player " + name + " has to be registered before the transaction starts");
+        }
+        jdbcTemplate.update("MERGE INTO players (name) KEY (name) VALUES (?)", name);
+        StatementCounter.countJdbcStatement();
+        unknownNames.invalidate(name);
+        return idOf(name);
+    }
+
+    /**
+     * @param name - name of a player, empty for the missing second player of a created game
+     * @return - id of the player, or null if the name is empty or the player never played
+     */
+    public Integer idOf(String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        Integer id = ids.get(name);
+        if (id == null && unknownNames.getIfPresent(name) == null) {
+            id = load(SELECT_BY_NAME, name);
+            if (id == null) {
+                unknownNames.put(name, Boolean.TRUE);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * @param id - id of a player
+     * @return - name of the player, or an empty string if there is no player
+     */
+    public String nameOf(Integer id) {
+        if (id == null) {
+            return "";
+        }
+        String name = names.get(id);
+        if (name == null) {
+            load(SELECT_BY_ID, id);
+            name = names.getOrDefault(id, "");
+        }
+        return name;
+    }
+
+    /**
+     * @param status - status of a game, e.g. "playerName wins!"
+     * @return - the status as stored, the name of a winner replaced by "#" and its id
+     */
+    public String toStoredStatus(String status) {
+        if (status == null || !status.endsWith(WINS)) {
+            return status;
+        }
+        String winner = status.substring(0, status.length() - WINS.length());
+        Integer id = NOBODY.equals(winner) ? null : idOf(winner);
+        return id == null ? status : "#" + id + WINS;
+    }
+
+    /**
+     * @param storedStatus - status of a game as stored
+     * @return - the status with the name of the winner
+     */
+    public String toDisplayedStatus(String storedStatus) {
+        if (storedStatus == null || !storedStatus.startsWith("#") || !storedStatus.endsWith(WINS)) {
+            return storedStatus;
+        }
+        int id = Integer.parseInt(storedStatus.substring(1, storedStatus.length() - WINS.length()));
+        return nameOf(id) + WINS;
+    }
+
+    private Integer load(String query, Object key) {
+        StatementCounter.countJdbcStatement();
+        return jdbcTemplate.query(query, (ResultSet rs) -> {
+            if (!rs.next()) {
+                return null;
+            }
+            int id = rs.getInt("player_id");
+            String name = rs.getString("name");
+            ids.put(name, id);
+            names.put(id, name);
+            return id;
+        }, key);
+    }
+}
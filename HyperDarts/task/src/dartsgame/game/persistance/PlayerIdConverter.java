@@ -0,0 +1,32 @@
+package dartsgame.game.persistance;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Stores player names as player ids. Hibernate gets this converter from Spring, so it can use the directory.
+ */
+@Component
+@Converter
+public class PlayerIdConverter implements AttributeConverter<String, Integer> {
+
+    private final PlayerDirectory playerDirectory;
+
+    @Autowired
+    public PlayerIdConverter(PlayerDirectory playerDirectory) {
+        this.playerDirectory = playerDirectory;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(String name) {
+        return playerDirectory.idOf(name);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer id) {
+        return playerDirectory.nameOf(id);
+    }
+}
@@ -1,11 +1,15 @@
 package dartsgame.game.persistance.dao;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import dartsgame.game.persistance.GameStatusConverter;
+import dartsgame.game.persistance.PlayerIdConverter;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import javax.persistence.*;
+import java.time.Instant;
 import java.util.Map;
 
 @Entity
@@ -20,12 +24,15 @@ public class Game {
     @Column(name = "game_id")
     private Long gameId;
 
-    @Column(name = "player_one")
+    @Convert(converter = PlayerIdConverter.class)
+    @Column(name = "player_one_id")
     private String playerOne;
 
-    @Column(name = "player_two")
+    @Convert(converter = PlayerIdConverter.class)
+    @Column(name = "player_two_id")
     private String playerTwo;
 
+    @Convert(converter = GameStatusConverter.class)
     @Column(name = "game_status")
     private String gameStatus;
 
@@ -35,9 +42,16 @@ public class Game {
     @Column(name = "player_two_score")
     private Integer playerTwoScores;
 
-    @Column(name = "turn")
+    @Convert(converter = PlayerIdConverter.class)
+    @Column(name = "turn_id")
     private String turn;
 
+    //GameService converts games with the codehaus mapper, so both annotations are needed to keep it out of responses
+    @JsonIgnore
+    @org.codehaus.jackson.annotate.JsonIgnore
+    @Column(name = "last_activity")
+    private Instant lastActivity;
+
     public Game(String playerOne, Integer targetScore) {
         this.playerOne = playerOne;
         this.playerTwo = "";
@@ -47,6 +61,16 @@ public class Game {
         this.turn = playerOne;
     }
 
+    public Game copy() {
+        return new Game(gameId, playerOne, playerTwo, gameStatus, playerOneScores, playerTwoScores, turn, lastActivity);
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastActivity = Instant.now();
+    }
+
     public Map toMap() {
         ObjectMapper objectMapper = new ObjectMapper();
         return objectMapper.convertValue(this, Map.class);
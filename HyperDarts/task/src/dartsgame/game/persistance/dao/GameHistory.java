@@ -35,6 +35,19 @@ public class GameHistory {
                                 Integer playerTwoScore,
                                 String turn) {
 
+        addNewGameState(gameId, move, playerOne, playerTwo, gameStatus, playerOneScore, playerTwoScore, turn, null);
+    }
+
+    public void addNewGameState(Long gameId,
+                                Integer move,
+                                String playerOne,
+                                String playerTwo,
+                                String gameStatus,
+                                Integer playerOneScore,
+                                Integer playerTwoScore,
+                                String turn,
+                                Integer darts) {
+
         historyList.add(
                 new GameState(
                         gameId,
@@ -44,7 +57,8 @@ public class GameHistory {
                         gameStatus,
                         playerOneScore,
                         playerTwoScore,
-                        turn));
+                        turn,
+                        darts));
     }
 
     public void deleteGameStatesAfterRevert(Integer move) {
@@ -1,13 +1,15 @@
 package dartsgame.game.persistance.dao;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import dartsgame.game.persistance.GameStatusConverter;
+import dartsgame.game.persistance.PlayerIdConverter;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import javax.persistence.*;
 
-@JsonIgnoreProperties(value = "databaseId")
+@JsonIgnoreProperties(value = {"databaseId", "darts"})
 @Entity
 @Table(name = "game_state")
 @Data
@@ -22,18 +24,24 @@ public class GameState {
     private Long gameId;
     @Column(name = "move")
     private Integer move;
-    @Column(name = "player_one")
+    @Convert(converter = PlayerIdConverter.class)
+    @Column(name = "player_one_id")
     private String playerOne;
-    @Column(name = "player_two")
+    @Convert(converter = PlayerIdConverter.class)
+    @Column(name = "player_two_id")
     private String playerTwo;
+    @Convert(converter = GameStatusConverter.class)
     @Column(name = "game_status")
     private String gameStatus;
     @Column(name = "player_one_scores")
     private Integer playerOneScores;
     @Column(name = "player_two_scores")
     private Integer playerTwoScores;
-    @Column(name = "turn")
+    @Convert(converter = PlayerIdConverter.class)
+    @Column(name = "turn_id")
     private String turn;
+    @Column(name = "darts")
+    private Integer darts;
 
     public GameState(Long gameId,
                      Integer move,
@@ -53,4 +61,18 @@ public class GameState {
         this.playerTwoScores = playerTwoScores;
         this.turn = turn;
     }
+
+    public GameState(Long gameId,
+                     Integer move,
+                     String playerOne,
+                     String playerTwo,
+                     String gameStatus,
+                     Integer playerOneScores,
+                     Integer playerTwoScores,
+                     String turn,
+                     Integer darts) {
+
+        this(gameId, move, playerOne, playerTwo, gameStatus, playerOneScores, playerTwoScores, turn);
+        this.darts = darts;
+    }
 }
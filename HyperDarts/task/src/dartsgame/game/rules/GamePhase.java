@@ -0,0 +1,11 @@
+package dartsgame.game.rules;
+
+/**
+ * Phases of a game the rules apply to. A game is "started" until the first visit, "playing" afterwards and
+ * finished when a player checks out.
+ */
+public enum GamePhase {
+    STARTED,
+    PLAYING,
+    FINISHED
+}
@@ -0,0 +1,128 @@
+package dartsgame.game.rules;
+
+import dartsgame.game.dto.ThrownDart;
+
+/**
+ * Three darts of a visit packed into a single int, 7 bits per dart:
+ * bits 0-4 hold the score (0-25), bits 5-6 the multiplicator (1-3). A dart with multiplicator 0 is "none".
+ */
+public final class Visit {
+    public static final int DARTS = 3;
+    private static final int BITS_PER_DART = 7;
+    private static final int SCORE_MASK = 0x1F;
+    private static final int DART_MASK = 0x7F;
+
+    private final int packed;
+
+    private Visit(int packed) {
+        this.packed = packed;
+    }
+
+    public static Visit fromPacked(int packed) {
+        return new Visit(packed);
+    }
+
+    /**
+     * Creates a visit from thrown darts, a dart without score is "none".
+     * @param darts - the thrown darts in throw order
+     * @return - the packed visit
+     */
+    public static Visit of(ThrownDart[] darts) {
+        int packed = 0;
+        for (int i = 0; i < darts.length && i < DARTS; i++) {
+            ThrownDart dart = darts[i];
+            if (dart.getScore() != null && dart.getMultiplicator() != null) {
+                packed |= packDart(dart.getMultiplicator(), dart.getScore()) << (i * BITS_PER_DART);
+            }
+        }
+        return new Visit(packed);
+    }
+
+    /**
+     * Creates a visit from multiplicator and score pairs, multiplicator 0 means "none".
+     */
+    public static Visit of(int firstMultiplicator, int firstScore,
+                           int secondMultiplicator, int secondScore,
+                           int thirdMultiplicator, int thirdScore) {
+        return new Visit(packDart(firstMultiplicator, firstScore)
+                | packDart(secondMultiplicator, secondScore) << BITS_PER_DART
+                | packDart(thirdMultiplicator, thirdScore) << (2 * BITS_PER_DART));
+    }
+
+    /**
+     * Creates a visit from three packed darts, see {@link #dart(int, int)}.
+     */
+    public static Visit ofDarts(int first, int second, int third) {
+        return new Visit(first | second << BITS_PER_DART | third << (2 * BITS_PER_DART));
+    }
+
+    /**
+     * Packs a single dart into 7 bits, multiplicator 0 means "none".
+     */
+    public static int dart(int multiplicator, int score) {
+        return packDart(multiplicator, score);
+    }
+
+    public static int dartMultiplicator(int dart) {
+        return dart >>> 5;
+    }
+
+    public static int dartScore(int dart) {
+        return dart & SCORE_MASK;
+    }
+
+    private static int packDart(int multiplicator, int score) {
+        if (multiplicator == 0) {
+            return 0;
+        }
+        return multiplicator << 5 | score;
+    }
+
+    private int dartAt(int index) {
+        return packed >>> (index * BITS_PER_DART) & DART_MASK;
+    }
+
+    public int toPacked() {
+        return packed;
+    }
+
+    public boolean isNone(int index) {
+        return dartAt(index) == 0;
+    }
+
+    public int getMultiplicator(int index) {
+        return dartMultiplicator(dartAt(index));
+    }
+
+    public int getScore(int index) {
+        return dartScore(dartAt(index));
+    }
+
+    public int getPoints(int index) {
+        return getMultiplicator(index) * getScore(index);
+    }
+
+    /**
+     * Converts the visit back to thrown darts, "none" darts have neither multiplicator nor score.
+     * @return - array of three thrown darts
+     */
+    public ThrownDart[] toThrownDarts() {
+        ThrownDart[] darts = new ThrownDart[DARTS];
+        for (int i = 0; i < DARTS; i++) {
+            darts[i] = isNone(i)
+                    ? new ThrownDart(i + 1)
+                    : new ThrownDart(i + 1, getMultiplicator(i), getScore(i));
+        }
+        return darts;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Visit && ((Visit) o).packed == packed;
+    }
+
+    @Override
+    public int hashCode() {
+        return packed;
+    }
+}
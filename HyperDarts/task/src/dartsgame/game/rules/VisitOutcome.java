@@ -0,0 +1,15 @@
+package dartsgame.game.rules;
+
+/**
+ * Result of applying a visit to a game state.
+ */
+public enum VisitOutcome {
+    /** The visit broke the throw rules, the state is unchanged. */
+    REJECTED,
+    /** The score was subtracted and the turn passed to the other player. */
+    SCORED,
+    /** The player went below 2 or reached 0 without a double, the score is kept and the turn passed. */
+    BUST,
+    /** The player reached 0 with a double and won the game. */
+    CHECKOUT
+}
@@ -0,0 +1,69 @@
+package dartsgame.game.rules;
+
+/**
+ * The x01 rules without any persistence: a visit is only valid if every dart is thrown while the player has more
+ * than 1 point left, a player wins by reaching exactly 0 with a double and busts by going below 2 any other way.
+ */
+public final class X01Rules {
+
+    private X01Rules() {
+    }
+
+    /**
+     * Validates a visit against the remaining score of the thrower. The first dart is always thrown, the following
+     * darts are "none" exactly when the remaining score already dropped to 1 or below.
+     * @param remaining - score of the thrower before the visit
+     * @param visit - the thrown darts
+     * @return - true if the visit can be applied
+     */
+    public static boolean isValidVisit(int remaining, Visit visit) {
+        if (visit.isNone(0)) {
+            return false;
+        }
+        for (int i = 0; i < Visit.DARTS; i++) {
+            boolean none = visit.isNone(i);
+            if ((remaining > 1) == none) {
+                return false;
+            }
+            if (!none) {
+                remaining -= visit.getPoints(i);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Applies a visit of the player whose turn it is.
+     * @param state - state before the visit
+     * @param visit - the thrown darts
+     * @return - state after the visit, its outcome tells if the visit scored, busted, checked out or was rejected
+     */
+    public static X01State apply(X01State state, Visit visit) {
+        int remaining = state.getScoreOfTurn();
+        if (state.isFinished() || !isValidVisit(remaining, visit)) {
+            return new X01State(state.getPlayerOneScore(), state.getPlayerTwoScore(), state.getTurn(),
+                    state.getPhase(), VisitOutcome.REJECTED);
+        }
+
+        for (int i = 0; i < Visit.DARTS && !visit.isNone(i); i++) {
+            remaining -= visit.getPoints(i);
+            if (remaining == 0 && visit.getMultiplicator(i) == 2) {
+                return withScoreOfTurn(state, remaining, state.getTurn(), GamePhase.FINISHED, VisitOutcome.CHECKOUT);
+            } else if (remaining < 2) {
+                return withScoreOfTurn(state, state.getScoreOfTurn(), nextTurn(state), GamePhase.PLAYING, VisitOutcome.BUST);
+            }
+        }
+        return withScoreOfTurn(state, remaining, nextTurn(state), GamePhase.PLAYING, VisitOutcome.SCORED);
+    }
+
+    private static int nextTurn(X01State state) {
+        return state.getTurn() == X01State.PLAYER_ONE ? X01State.PLAYER_TWO : X01State.PLAYER_ONE;
+    }
+
+    private static X01State withScoreOfTurn(X01State state, int score, int turn, GamePhase phase, VisitOutcome outcome) {
+        if (state.getTurn() == X01State.PLAYER_ONE) {
+            return new X01State(score, state.getPlayerTwoScore(), turn, phase, outcome);
+        }
+        return new X01State(state.getPlayerOneScore(), score, turn, phase, outcome);
+    }
+}
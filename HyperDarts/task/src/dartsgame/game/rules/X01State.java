@@ -0,0 +1,69 @@
+package dartsgame.game.rules;
+
+/**
+ * Immutable state of an x01 game between two players, together with the outcome of the visit that produced it.
+ */
+public final class X01State {
+    public static final int PLAYER_ONE = 0;
+    public static final int PLAYER_TWO = 1;
+
+    private final int playerOneScore;
+    private final int playerTwoScore;
+    private final int turn;
+    private final GamePhase phase;
+    private final VisitOutcome outcome;
+
+    public X01State(int playerOneScore, int playerTwoScore, int turn, GamePhase phase, VisitOutcome outcome) {
+        this.playerOneScore = playerOneScore;
+        this.playerTwoScore = playerTwoScore;
+        this.turn = turn;
+        this.phase = phase;
+        this.outcome = outcome;
+    }
+
+    /**
+     * State of a newly started game, player one throws first.
+     * @param targetScore - starting score of both players
+     */
+    public static X01State start(int targetScore) {
+        return new X01State(targetScore, targetScore, PLAYER_ONE, GamePhase.STARTED, null);
+    }
+
+    public int getPlayerOneScore() {
+        return playerOneScore;
+    }
+
+    public int getPlayerTwoScore() {
+        return playerTwoScore;
+    }
+
+    /**
+     * @return - PLAYER_ONE or PLAYER_TWO, the winner once the game is finished
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    public GamePhase getPhase() {
+        return phase;
+    }
+
+    /**
+     * @return - outcome of the visit that produced this state, null for a starting state
+     */
+    public VisitOutcome getOutcome() {
+        return outcome;
+    }
+
+    public int getScore(int player) {
+        return player == PLAYER_ONE ? playerOneScore : playerTwoScore;
+    }
+
+    public int getScoreOfTurn() {
+        return getScore(turn);
+    }
+
+    public boolean isFinished() {
+        return phase == GamePhase.FINISHED;
+    }
+}
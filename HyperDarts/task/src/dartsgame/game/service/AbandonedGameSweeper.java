@@ -0,0 +1,83 @@
+package dartsgame.game.service;
+
+import dartsgame.cluster.GameNotOwnedException;
+import dartsgame.cluster.GameOwnership;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Periodically finishes created, started or playing games that nobody touched for longer than the idle threshold,
+ * so they no longer block their players. Every game is abandoned in its own transaction under the game's lock, like
+ * a change requested through the API, so a visit accepted meanwhile is not overwritten.
+ */
+@Component
+@ConditionalOnProperty(name = "sweeper.enabled", matchIfMissing = true)
+//Nothing refers to the sweeper, with lazy initialization it would never be created
+@Lazy(false)
+public class AbandonedGameSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(AbandonedGameSweeper.class);
+
+    private final GameService gameService;
+    private final GameOwnership gameOwnership;
+    private final Duration idleThreshold;
+    private final int batchSize;
+    private final int maxBatches;
+
+    public AbandonedGameSweeper(GameService gameService,
+                                GameOwnership gameOwnership,
+                                @Value("${sweeper.idle-threshold:PT24H}") Duration idleThreshold,
+                                @Value("${sweeper.batch-size:50}") int batchSize,
+                                @Value("${sweeper.max-batches-per-run:100}") int maxBatches) {
+        this.gameService = gameService;
+        this.gameOwnership = gameOwnership;
+        this.idleThreshold = idleThreshold;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    @Scheduled(fixedDelayString = "${sweeper.interval-ms:60000}", initialDelayString = "${sweeper.interval-ms:60000}")
+    public void sweep() {
+        Instant idleSince = Instant.now().minus(idleThreshold);
+        //Games left alone, e.g. with journaled visits, are skipped by the following batches
+        Set<Long> skipped = new HashSet<>();
+        int swept = 0;
+        int found;
+        int batches = 0;
+        do {
+            List<Long> idleGameIds = gameService.findIdleGameIds(idleSince, batchSize, skipped);
+            for (Long id : idleGameIds) {
+                if (abandon(id, idleSince)) {
+                    swept++;
+                } else {
+                    skipped.add(id);
+                }
+            }
+            found = idleGameIds.size();
+            batches++;
+        } while (found == batchSize && batches < maxBatches);
+        if (swept > 0) {
+            log.info("Finished {} games idle since {}", swept, idleSince);
+        }
+    }
+
+    private boolean abandon(Long id, Instant idleSince) {
+        try {
+            return gameOwnership.execute(id, () -> gameService.abandonIdleGame(id, idleSince));
+        } catch (GameNotOwnedException e) {
+            //The partition moved since the batch was read, its new owner sweeps the game
+            return false;
+        }
+    }
+}
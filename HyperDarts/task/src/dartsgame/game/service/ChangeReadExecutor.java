@@ -0,0 +1,79 @@
+package dartsgame.game.service;
+
+import dartsgame.datasource.ReadWriteRoutingDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the reads that answer a change of a game, e.g. the status of a long-poll or the new states of a stream, so
+ * the listeners of {@link GameChangeNotifier} only wake a reader and a slow client never delays the others.
+ * <p>
+ * Every reader gets a lane: its reads never overlap, and wake-ups arriving while it reads are merged into one more
+ * read, so a reader has at most one read queued. The reads run on the primary, the replica may not have the change
+ * yet and these threads have no player to keep them on the primary.
+ */
+@Component
+public class ChangeReadExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeReadExecutor.class);
+
+    private final ThreadPoolExecutor executor;
+
+    public ChangeReadExecutor(@Value("${game-change.reader-threads:8}") int threads,
+                              @Value("${game-change.reader-queue:10000}") int queueCapacity) {
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "game-change-reader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @param read - reads the change and delivers it to the client
+     * @param overloaded - called instead of queueing the read when every reader is busy and the queue is full
+     * @return - wakes the reader, cheap enough for a listener of {@link GameChangeNotifier}
+     */
+    public Runnable lane(Runnable read, Runnable overloaded) {
+        AtomicInteger wakeUps = new AtomicInteger();
+        Runnable drain = () -> {
+            int seen;
+            do {
+                seen = wakeUps.get();
+                try {
+                    ReadWriteRoutingDataSource.onPrimary(() -> {
+                        read.run();
+                        return null;
+                    });
+                } catch (RuntimeException e) {
+                    log.warn("Read after a game change failed", e);
+                }
+            } while (wakeUps.addAndGet(-seen) > 0);
+        };
+        return () -> {
+            if (wakeUps.getAndIncrement() == 0) {
+                try {
+                    executor.execute(drain);
+                } catch (RejectedExecutionException e) {
+                    wakeUps.set(0);
+                    overloaded.run();
+                }
+            }
+        };
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,149 @@
+package dartsgame.game.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dartsgame.game.persistance.dao.GameHistory;
+import dartsgame.game.persistance.dao.GameState;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+/**
+ * Keeps the serialized history of finished games, both indented and compact. A finished history never changes
+ * (reverting a finished game is refused), so the JSON bytes can be served as they are until the game is deleted.
+ * Bounded by the total size of the cached bytes, hits and misses are published as "cache.*" actuator metrics.
+ */
+@Component
+public class FinishedHistoryCache {
+
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper compactObjectMapper;
+    private final Cache<Long, SerializedHistory> cache;
+
+    @Autowired
+    public FinishedHistoryCache(ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${history.cache.maximum-weight-bytes:67108864}") long maximumWeightBytes) {
+        this.objectMapper = objectMapper;
+        this.compactObjectMapper = objectMapper.copy().disable(SerializationFeature.INDENT_OUTPUT);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeightBytes)
+                .weigher((Long id, SerializedHistory history) -> history.indented.length + history.compact.length)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "finishedGameHistories");
+    }
+
+    /**
+     * Retrieves the serialized history of a finished game.
+     * @param id - unique identifier of the game
+     * @param compact - true for JSON without indentation
+     * @return - JSON bytes of the history list or null if the game is not cached
+     */
+    public byte[] get(Long id, boolean compact) {
+        SerializedHistory history = cache.getIfPresent(id);
+        return history == null ? null : history.get(compact);
+    }
+
+    /**
+     * Serializes and caches a history if its game is finished.
+     * @param gameHistory - history of a game
+     * @param compact - true to return the JSON without indentation
+     * @return - JSON bytes of the history list or null if the game is not finished yet
+     */
+    public byte[] putIfFinished(GameHistory gameHistory, boolean compact) {
+        if (!isFinished(gameHistory)) {
+            return null;
+        }
+        SerializedHistory history = new SerializedHistory(
+                serialize(objectMapper, gameHistory.getHistoryList()),
+                serialize(compactObjectMapper, gameHistory.getHistoryList()));
+        cache.put(gameHistory.getGameId(), history);
+        return history.get(compact);
+    }
+
+    /**
+     * Caches a history once the current transaction is committed, so a rolled back win is never served.
+     * @param gameHistory - history of a game that has just been finished
+     */
+    public void putIfFinishedAfterCommit(GameHistory gameHistory) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            putIfFinished(gameHistory, false);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                putIfFinished(gameHistory, false);
+            }
+        });
+    }
+
+    /**
+     * Removes a game from the cache.
+     * @param id - unique identifier of the game
+     */
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    /**
+     * Removes a game from the cache once the current transaction is committed, so a read that still sees the
+     * deleted history cannot put it back in between.
+     * @param id - unique identifier of the game
+     */
+    public void invalidateAfterCommit(Long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(id);
+            }
+        });
+    }
+
+    /**
+     * Determines if the last state of a history has a winner.
+     * @param gameHistory - history of a game
+     * @return - true if the game is finished
+     */
+    public static boolean isFinished(GameHistory gameHistory) {
+        List<GameState> historyList = gameHistory.getHistoryList();
+        return !historyList.isEmpty()
+                && historyList.get(historyList.size() - 1).getGameStatus().matches("\\S*\\swins!");
+    }
+
+    private static byte[] serialize(ObjectMapper mapper, List<GameState> historyList) {
+        try {
+            return mapper.writeValueAsBytes(historyList);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Game history could not be serialized", e);
+        }
+    }
+
+    private static class SerializedHistory {
+        private final byte[] indented;
+        private final byte[] compact;
+
+        private SerializedHistory(byte[] indented, byte[] compact) {
+            this.indented = indented;
+            this.compact = compact;
+        }
+
+        private byte[] get(boolean compact) {
+            return compact ? this.compact : indented;
+        }
+    }
+}
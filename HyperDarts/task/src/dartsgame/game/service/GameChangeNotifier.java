@@ -0,0 +1,136 @@
+package dartsgame.game.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dartsgame.game.persistance.dao.Game;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Tells waiting long-poll and stream requests that a game changed. Listeners only hold a callback, not a thread:
+ * the requests are suspended by the servlet container and woken from a small shared executor once a change is
+ * committed. Listeners therefore must not block, the reads that answer a change run on {@link ChangeReadExecutor}.
+ * Every game has an in-memory version that grows with each change, so a client can tell whether it
+ * missed a change between two polls.
+ * <p>
+ * Versions and listeners are local to this node and only the owner of a game changes it, see
+ * {@link dartsgame.cluster.GameOwnership}, so polls and streams are redirected to the owner of their game.
+ */
+@Component
+public class GameChangeNotifier {
+
+    private final Map<String, Set<Consumer<Long>>> playerListeners = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Consumer<Long>>> gameListeners = new ConcurrentHashMap<>();
+    private final Map<String, Long> playerGames = new ConcurrentHashMap<>();
+    private final Cache<Long, AtomicLong> versions = Caffeine.newBuilder()
+            .expireAfterAccess(Duration.ofHours(1))
+            .build();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "game-change-notifier");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Notifies the listeners of a game and of its players once the current transaction is committed.
+     * @param game - the changed game
+     */
+    public void gameChangedAfterCommit(Game game) {
+        Long gameId = game.getGameId();
+        String playerOne = game.getPlayerOne();
+        String playerTwo = game.getPlayerTwo();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            gameChanged(gameId, playerOne, playerTwo);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                gameChanged(gameId, playerOne, playerTwo);
+            }
+        });
+    }
+
+    private void gameChanged(Long gameId, String playerOne, String playerTwo) {
+        long version = versions.get(gameId, id -> new AtomicLong()).incrementAndGet();
+        playerGames.put(playerOne, gameId);
+        if (!playerTwo.isEmpty()) {
+            playerGames.put(playerTwo, gameId);
+        }
+        fire(gameListeners.get(gameId), version);
+        fire(playerListeners.get(playerOne), version);
+        fire(playerListeners.get(playerTwo), version);
+    }
+
+    private void fire(Set<Consumer<Long>> listeners, long version) {
+        if (listeners != null) {
+            for (Consumer<Long> listener : listeners) {
+                executor.execute(() -> listener.accept(version));
+            }
+        }
+    }
+
+    /**
+     * @param gameId - unique identifier of a game
+     * @return - number of changes of the game seen by this node
+     */
+    public long versionOf(Long gameId) {
+        AtomicLong version = gameId == null ? null : versions.getIfPresent(gameId);
+        return version == null ? 0 : version.get();
+    }
+
+    /**
+     * @param name - name of a player
+     * @return - version of the game the player changed last, 0 if there is none
+     */
+    public long versionOfPlayer(String name) {
+        return versionOf(playerGames.get(name));
+    }
+
+    /**
+     * @param name - name of a player
+     * @param listener - called with the new version when a game of the player changes
+     * @return - removes the listener
+     */
+    public Runnable listenToPlayer(String name, Consumer<Long> listener) {
+        return listen(playerListeners, name, listener);
+    }
+
+    /**
+     * @param gameId - unique identifier of a game
+     * @param listener - called with the new version when the game changes
+     * @return - removes the listener
+     */
+    public Runnable listenToGame(Long gameId, Consumer<Long> listener) {
+        return listen(gameListeners, gameId, listener);
+    }
+
+    private static <K> Runnable listen(Map<K, Set<Consumer<Long>>> listeners, K key, Consumer<Long> listener) {
+        listeners.compute(key, (k, set) -> {
+            Set<Consumer<Long>> listenersOfKey = set == null ? new CopyOnWriteArraySet<>() : set;
+            listenersOfKey.add(listener);
+            return listenersOfKey;
+        });
+        return () -> listeners.computeIfPresent(key, (k, set) -> {
+            set.remove(listener);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+}
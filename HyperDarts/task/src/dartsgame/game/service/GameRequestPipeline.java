@@ -0,0 +1,51 @@
+package dartsgame.game.service;
+
+import dartsgame.game.dto.GameResponse;
+import org.springframework.http.HttpStatus;
+
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Checks the rules of a request one after the other against a single snapshot. The first broken rule decides the
+ * response, otherwise the mutation is applied to the same snapshot.
+ */
+public class GameRequestPipeline {
+    private final GameSnapshot snapshot;
+    private GameResponse rejection;
+
+    private GameRequestPipeline(GameSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public static GameRequestPipeline of(GameSnapshot snapshot) {
+        return new GameRequestPipeline(snapshot);
+    }
+
+    /**
+     * Adds a rule to the pipeline. Rules after a broken one are not evaluated.
+     * @param rule - condition that has to hold for the snapshot
+     * @param status - response status if the rule is broken
+     * @param message - response message if the rule is broken
+     * @return - this pipeline
+     */
+    public GameRequestPipeline require(Predicate<GameSnapshot> rule, HttpStatus status, String message) {
+        if (rejection == null && !rule.test(snapshot)) {
+            rejection = GameResponse.error(status, message);
+        }
+        return this;
+    }
+
+    /**
+     * Applies the mutation if every rule held.
+     * @param mutation - changes the game of the snapshot and returns its map representation
+     * @return - the response of the mutation or of the first broken rule
+     */
+    public GameResponse apply(Function<GameSnapshot, Map> mutation) {
+        if (rejection != null) {
+            return rejection;
+        }
+        return GameResponse.ok(mutation.apply(snapshot));
+    }
+}
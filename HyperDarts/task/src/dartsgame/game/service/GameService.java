@@ -1,15 +1,35 @@
 package dartsgame.game.service;
 
+import dartsgame.cluster.GameOwnership;
+import dartsgame.game.dto.DartsThrowForm;
+import dartsgame.game.dto.GameResponse;
+import dartsgame.game.dto.MoveDarts;
 import dartsgame.game.persistance.dao.Game;
 import dartsgame.game.persistance.dao.GameHistory;
 import dartsgame.game.dto.ThrownDart;
 import dartsgame.game.persistance.GameHistoryRepository;
 import dartsgame.game.persistance.dao.GameState;
 import dartsgame.game.persistance.GameRepository;
+import dartsgame.game.persistance.GameStateRepository;
+import dartsgame.game.persistance.PlayerDirectory;
+import dartsgame.game.journal.JournalRecord;
+import dartsgame.game.journal.MoveJournal;
+import dartsgame.game.odds.WinProbabilityService;
+import dartsgame.game.rules.GamePhase;
+import dartsgame.game.rules.Visit;
+import dartsgame.game.rules.VisitOutcome;
+import dartsgame.game.rules.X01Rules;
+import dartsgame.game.rules.X01State;
+import dartsgame.telemetry.GameOperationEvent;
+import dartsgame.tournament.TournamentService;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.*;
 
 /**
@@ -21,21 +41,158 @@ public class GameService {
     private final GameRepository gameRepository;
     private final ObjectMapper objectMapper;
     private final GameHistoryRepository gameHistoryRepository;
-
-
+    private final Validator validator;
+    private final FinishedHistoryCache finishedHistoryCache;
+    private final GameStateRepository gameStateRepository;
+    private final MoveJournal moveJournal;
+    private final GameOwnership gameOwnership;
+    private final PlayerDirectory playerDirectory;
+    private final GameChangeNotifier gameChangeNotifier;
+    private final WinProbabilityService winProbabilityService;
+    private final TournamentService tournamentService;
 
     @Autowired
-    public GameService(GameRepository gameRepository, GameHistoryRepository gameHistoryRepository) {
+    public GameService(GameRepository gameRepository,
+                       GameHistoryRepository gameHistoryRepository,
+                       Validator validator,
+                       FinishedHistoryCache finishedHistoryCache,
+                       GameStateRepository gameStateRepository,
+                       MoveJournal moveJournal,
+                       GameOwnership gameOwnership,
+                       PlayerDirectory playerDirectory,
+                       GameChangeNotifier gameChangeNotifier,
+                       WinProbabilityService winProbabilityService,
+                       TournamentService tournamentService) {
         this.gameRepository = gameRepository;
         this.gameHistoryRepository = gameHistoryRepository;
+        this.validator = validator;
+        this.finishedHistoryCache = finishedHistoryCache;
+        this.gameStateRepository = gameStateRepository;
+        this.moveJournal = moveJournal;
+        this.gameOwnership = gameOwnership;
+        this.playerDirectory = playerDirectory;
+        this.gameChangeNotifier = gameChangeNotifier;
+        this.winProbabilityService = winProbabilityService;
+        this.tournamentService = tournamentService;
         this.objectMapper = new ObjectMapper();
     }
 
+    /**
+     * Adds a player to the players table if it is not there yet. Called before the transaction of a game request,
+     * the request then finds the player's id in the cache of the directory.
+     * @param name - name of the player
+     */
+    public void registerPlayer(String name) {
+        playerDirectory.register(name);
+    }
+
+    /**
+     * Creates a new game if the player doesn't have any ongoing or created games.
+     * @param name - name of the game creator player
+     * @param targetScore - starting score of the game
+     * @return - the created game, or the reason why it cannot be created
+     */
+    @Transactional
+    public GameResponse createGame(String name, Integer targetScore) {
+        GameSnapshot snapshot = new GameSnapshot(name, null, findActiveGame(name), null);
+        return GameRequestPipeline.of(snapshot)
+                .require(s -> !s.isPlayerInGame(), HttpStatus.BAD_REQUEST, "You have an unfinished game!")
+                //Checks if user provided a valid game mode (101, 301 or 501)
+                .require(s -> validator.validateTargetScore(targetScore), HttpStatus.BAD_REQUEST, "Wrong target score!")
+                .apply(s -> addNewGame(name, targetScore));
+    }
+
+    /**
+     * Lets a player join to a created game. The game and the player's active game are loaded once and the join
+     * happens in the same transaction as the checks.
+     * @param name - name of the joining player
+     * @param id - unique identifier of the requested game
+     * @return - the joined game, or the reason why the player couldn't join
+     */
+    @Transactional
+    public GameResponse joinGame(String name, Long id) {
+        GameSnapshot snapshot = new GameSnapshot(name, findGame(id), findActiveGame(name), null);
+        return GameRequestPipeline.of(snapshot)
+                .require(GameSnapshot::hasGame, HttpStatus.NOT_FOUND, "Game not found!")
+                .require(s -> !s.isCreatedByPlayer(), HttpStatus.BAD_REQUEST, "You can't play alone!")
+                .require(GameSnapshot::isAvailableToJoin, HttpStatus.BAD_REQUEST, "You can't join the game!")
+                .require(s -> !s.isPlayerInGame(), HttpStatus.BAD_REQUEST, "You have an unfinished game!")
+                .apply(s -> joinGame(name, s.getGame()));
+    }
+
+    /**
+     * Validates and applies a visit of the player to their active game. The game is loaded once, under the lock
+     * taken for the id the request found before, see {@link #findActiveGameId}.
+     * @param name - name of the throwing player
+     * @param lockedGameId - the game the caller holds the lock of, null if the player had no game
+     * @param dartsThrowForm - the form containing the thrown darts
+     * @return - the modified game, or the reason why the throws could not be applied
+     */
+    @Transactional
+    public GameResponse postThrows(String name, Long lockedGameId, DartsThrowForm dartsThrowForm) {
+        Game activeGame = findActiveGame(name);
+        GameSnapshot snapshot = new GameSnapshot(name, activeGame, activeGame, null);
+        //The player's game changed since the lock was taken, the visit would be applied without its lock
+        if (snapshot.hasGame() && !activeGame.getGameId().equals(lockedGameId)) {
+            return GameResponse.error(HttpStatus.CONFLICT, "Your game changed, try again!");
+        }
+
+        //Creates ThrownDart objects from provided text if input data is valid
+        ThrownDart[] thrownDarts = snapshot.hasGame()
+                ? validator.validateThrows(activeGame, name, dartsThrowForm)
+                : new ThrownDart[0];
+
+        return GameRequestPipeline.of(snapshot)
+                .require(GameSnapshot::hasGame, HttpStatus.NOT_FOUND, "There are no games available!")
+                .require(s -> thrownDarts.length != 0, HttpStatus.BAD_REQUEST, "Wrong throws!")
+                .require(GameSnapshot::isPlayersTurn, HttpStatus.BAD_REQUEST, "Wrong turn!")
+                .apply(s -> applyThrows(s.getGame(), name, thrownDarts));
+    }
+
+    /**
+     * Finishes a not finished game with the provided status.
+     * @param id - unique identifier of a game
+     * @param status - provided new status, e.g. playerName wins! or Nobody wins!
+     * @return - the modified game, or the reason why it could not be cancelled
+     */
+    @Transactional
+    public GameResponse cancelGame(Long id, String status) {
+        moveJournal.awaitMaterialized(id);
+        GameSnapshot snapshot = new GameSnapshot(null, findGame(id), null, null);
+        return GameRequestPipeline.of(snapshot)
+                .require(GameSnapshot::hasGame, HttpStatus.NOT_FOUND, "Game not found!")
+                .require(s -> validator.validateFinishedGameStatus(status, s.getGame()), HttpStatus.BAD_REQUEST, "Wrong status!")
+                .require(s -> !s.isFinished(), HttpStatus.BAD_REQUEST, "The game is already over!")
+                .apply(s -> changeGameStatus(s.getGame(), status));
+    }
+
+    /**
+     * Reverts a game to a previous move if it is not finished yet.
+     * @param id - unique identifier of a game
+     * @param move - the move number of a game to revert to
+     * @return - the modified game, or the reason why it could not be reverted
+     */
+    @Transactional
+    public GameResponse revertGame(Long id, Integer move) {
+        moveJournal.awaitMaterialized(id);
+        GameHistory gameHistory = gameHistoryRepository.findById(id).orElse(null);
+        Game game = gameHistory == null ? null : findGame(id);
+        GameSnapshot snapshot = new GameSnapshot(null, game, null, gameHistory);
+        return GameRequestPipeline.of(snapshot)
+                .require(GameSnapshot::hasGameHistory, HttpStatus.NOT_FOUND, "Game not found!")
+                .require(s -> s.hasGame() && !s.isAvailableToJoin(), HttpStatus.NOT_FOUND, "Game not found!")
+                .require(s -> s.getGameHistory().getHistoryList().size() > move, HttpStatus.BAD_REQUEST, "Move not found!")
+                .require(s -> move + 1 != s.getGameHistory().getHistoryList().size(), HttpStatus.BAD_REQUEST, "There is nothing to revert!")
+                .require(s -> !FinishedHistoryCache.isFinished(s.getGameHistory()), HttpStatus.BAD_REQUEST, "The game is over!")
+                .apply(s -> setGameBackToGameState(s.getGame(), s.getGameHistory(), move));
+    }
+
     /**
      * Retrieves a game from the repository by its unique identifier.
      * @param id - unique identifier of a game to retrieve
      * @return - a Game object with the specified id or null if no such game exists
      */
+    @Transactional(readOnly = true)
     public Game getGame(Long id) {
         return gameRepository.getById(id);
     }
@@ -45,10 +202,11 @@ public class GameService {
      * @param name - name of the player in the game to retrieve
      * @return - map representation of the found game or an empty map if no such game exists
      */
+    @Transactional(readOnly = true)
     public Map getGameByName(String name) {
         Optional<Game> gameByPlayer = gameRepository.findGameByPlayerName(name);
         if (gameByPlayer.isPresent()) {
-            return objectMapper.convertValue(gameByPlayer.get(), Map.class);
+            return toMap(moveJournal.overlay(gameByPlayer.get()));
         } else {
             return Collections.emptyMap();
         }
@@ -59,15 +217,37 @@ public class GameService {
      * @param id - unique identifier of the game to retrieve history for
      * @return - a GameHistory object of the specified game or null if no such game history exists
      */
+    @Transactional(readOnly = true)
     public GameHistory getGameHistory(Long id) {
-        Optional<GameHistory> gameHistoryOptional = gameHistoryRepository.getGameHistoryById(id);
-        return gameHistoryOptional.orElse(null);
+        moveJournal.awaitMaterialized(id);
+        return gameHistoryRepository.findById(id).orElse(null);
+    }
+
+    /**
+     * Retrieves the darts of every visit of a game.
+     * @param id - unique identifier of the game
+     * @return - the visits in move order, or null if no such game history exists
+     */
+    @Transactional(readOnly = true)
+    public List<MoveDarts> getMoveDarts(Long id) {
+        GameHistory gameHistory = getGameHistory(id);
+        if (gameHistory == null) {
+            return null;
+        }
+        List<MoveDarts> moves = new ArrayList<>();
+        for (GameState gameState : gameHistory.getHistoryList()) {
+            if (gameState.getDarts() != null) {
+                moves.add(new MoveDarts(gameState.getMove(), Visit.fromPacked(gameState.getDarts()).toThrownDarts()));
+            }
+        }
+        return moves;
     }
 
     /**
      * Retrieves all the games from repository as a list.
      * @return - a list with all the retrieved games or an empty list if no games exists
      */
+    @Transactional(readOnly = true)
     public List<Game> getAllGames() {
         List<Game> list = gameRepository.findAll();
         Collections.reverse(list);
@@ -75,51 +255,23 @@ public class GameService {
     }
 
     /**
-     * Determines if player is in any game.
-     * @param name - name of the player to check
-     * @return - true if the player is in a game, false otherwise
+     * Finds the game a player would change with a request, so the request can be run on the game's owner.
+     * @param name - name of the player
+     * @return - unique identifier of the player's ongoing or created game, or null if there is none
      */
-    public boolean isInGame(String name) {
-        return gameRepository.findGameByPlayerName(name).isPresent();
-    }
-
-    /**
-     * Determines if game with the provided id is created by this player.
-     * @param name - name of the player to check
-     * @param id - id of the game to check
-     * @return - true if player created this game, false otherwise
-     */
-    public boolean isCreatedByThisPlayer(String name, Long id) {
-        return getGame(id).getPlayerOne().equals(name);
+    public Long findActiveGameId(String name) {
+        //Only the id, the game itself is loaded once under its lock
+        return gameRepository.findGameIdByPlayerName(name).orElse(null);
     }
 
     /**
-     * Determines if any game exists with provided id.
-     * @param id - id of the game to check
-     * @return - true if a game exists with provided id, false otherwise
-     */
-    public boolean isGame(Long id) {
-        return gameRepository.findById(id).isPresent();
-    }
-
-    /**
-     * Determines if a player can join to the game with provided id by checking its status
-     * Player can only join to a game with "created" status
-     * @param id - id of the game to check
-     * @return - true if status of the game is "created", false otherwise
-     */
-    public boolean isAvailableToJoin(Long id) {
-        return getGame(id).getGameStatus().equals("created");
-    }
-
-    /**
-     * Determines if it is the player's turn
-     * @param id - id of the game to check
+     * Determines if player is in any game.
      * @param name - name of the player to check
-     * @return - true if name in turn field is same as the provided player name
+     * @return - true if the player is in a game, false otherwise
      */
-    public boolean isTheirTurn(Long id, String name) {
-        return (getGame(id).getTurn().equals(name));
+    @Transactional(readOnly = true)
+    public boolean isInGame(String name) {
+        return gameRepository.findGameByPlayerName(name).isPresent();
     }
 
     /**
@@ -129,20 +281,19 @@ public class GameService {
      * @return - map representation is the created game
      */
     public Map addNewGame(String name, Integer targetScore) {
-        Long id = gameRepository.save(new Game(name, targetScore)).getGameId();
-        GameHistory gameHistory = new GameHistory(id);
-        gameHistoryRepository.save(gameHistory);
-        return objectMapper.convertValue(getGame(id), Map.class);
+        Game game = gameRepository.save(new Game(name, targetScore));
+        gameHistoryRepository.save(new GameHistory(game.getGameId()));
+        gameChangeNotifier.gameChangedAfterCommit(game);
+        return toMap(game);
     }
 
     /**
      * Adds user to a game and modifies that game's status
      * @param name - name of the joining player
-     * @param id - unique identifier of a game
+     * @param game - the game to join
      * @return - map representation of the modified game
      */
-    public Map joinGame(String name, Long id) {
-        Game game = getGame(id);
+    public Map joinGame(String name, Game game) {
         if (game.getPlayerOne().equals("")) {
             game.setPlayerOne(name);
         } else if (game.getPlayerTwo().equals("")) {
@@ -151,153 +302,241 @@ public class GameService {
         game.setGameStatus("started");
         gameRepository.save(game);
         addNewGameStatusToExistingGameHistory(game);
-        return objectMapper.convertValue(getGame(id), Map.class);
+        gameChangeNotifier.gameChangedAfterCommit(game);
+        return toMap(game);
     }
 
     /**
      * It makes changes in the game according to darts rules. Subtract thrown score, changes game status if needed,
      * handles checkout and bust and at the end changes turn to the other player.
-     * @param id - unique identifier of a game
+     * @param currentGame - the game the darts were thrown in
      * @param name - name of the actual player
      * @param darts - array of thrown darts
      * @return - map representation of the modified game
      */
-    public Map applyThrows(Long id, String name, ThrownDart[] darts) {
-        Game currentGame = getGame(id);
-
-        Integer playerScore;
-        if (currentGame.getPlayerOne().equals(name)) {
-            playerScore = currentGame.getPlayerOneScores();
-        } else {
-            playerScore = currentGame.getPlayerTwoScores();
-        }
-
-        for (ThrownDart dart : darts) {
-            if (dart.getScore() != null) {
-                playerScore -= dart.getMultiplicator() * dart.getScore();
+    public Map applyThrows(Game currentGame, String name, ThrownDart[] darts) {
+        GameOperationEvent event = GameOperationEvent.start(GameOperationEvent.APPLY_THROWS);
+        int historyLength = 0;
+        try {
+            Visit visit = Visit.of(darts);
+            X01State nextState = X01Rules.apply(toX01State(currentGame), visit);
+            winProbabilityService.recordVisit(name, visit);
+
+            //With the journal the visit is acknowledged once appended, the tables are updated by the materializer
+            if (moveJournal.isEnabled()) {
+                int move = nextMove(currentGame.getGameId());
+                moveJournal.append(JournalRecord.of(currentGame.getGameId(), move, nextState, visit));
+                historyLength = move + 1;
+                gameChangeNotifier.gameChangedAfterCommit(currentGame);
+                return toMap(moveJournal.overlay(currentGame));
             }
 
-            if (playerScore == 0 && dart.getMultiplicator() == 2) {
-                setPlayerScore(currentGame, name, playerScore);
+            currentGame.setPlayerOneScores(nextState.getPlayerOneScore());
+            currentGame.setPlayerTwoScores(nextState.getPlayerTwoScore());
+            if (nextState.getOutcome() == VisitOutcome.CHECKOUT) {
                 currentGame.setGameStatus(name + " wins!");
-                gameRepository.save(currentGame);
-                addNewGameStatusToExistingGameHistory(currentGame);
-                return objectMapper.convertValue(currentGame, Map.class);
-            } else if (playerScore < 0 || playerScore == 1 || (playerScore == 0 && dart.getMultiplicator() != 2)) {
-                setNextPlayer(currentGame, name);
+            } else {
+                currentGame.setTurn(nextState.getTurn() == X01State.PLAYER_ONE
+                        ? currentGame.getPlayerOne() : currentGame.getPlayerTwo());
                 if (currentGame.getGameStatus().equals("started")) {
                     currentGame.setGameStatus("playing");
                 }
-                gameRepository.save(currentGame);
-                addNewGameStatusToExistingGameHistory(currentGame);
-                return objectMapper.convertValue(currentGame, Map.class);
             }
+            gameRepository.save(currentGame);
+            historyLength = addNewGameStatusToExistingGameHistory(currentGame, visit.toPacked());
+            if (nextState.isFinished()) {
+                finishedHistoryCache.putIfFinishedAfterCommit(getGameHistory(currentGame.getGameId()));
+                tournamentService.gameFinishedAfterCommit(currentGame);
+            }
+            gameChangeNotifier.gameChangedAfterCommit(currentGame);
+            return toMap(currentGame);
+        } finally {
+            event.finish(currentGame.getGameId(), historyLength);
         }
-
-        setPlayerScore(currentGame, name, playerScore);
-        setNextPlayer(currentGame, name);
-        if (currentGame.getGameStatus().equals("started")) {
-            currentGame.setGameStatus("playing");
-        }
-        gameRepository.save(currentGame);
-        addNewGameStatusToExistingGameHistory(currentGame);
-        return objectMapper.convertValue(currentGame, Map.class);
     }
 
+
     /**
      * For status API, if there are no active games, it finds the last finished game (game with the highest ID)
      * @param name - Name of the actual player
      * @return - map representation of the found game or an empty map if such a game not exists
      */
+    @Transactional(readOnly = true)
     public Map findLastFinishedGame(String name) {
-        List<Game> finishedGameList = gameRepository.findFinishedGamesByPlayerName(name);
+        List<Game> finishedGameList = gameRepository.findFinishedGamesByPlayerName(name, PageRequest.of(0, 1));
         if (finishedGameList.isEmpty()) {
             return Collections.emptyMap();
         } else {
-            Collections.reverse(finishedGameList);
-            return objectMapper.convertValue(finishedGameList.get(0), Map.class);
+            return toMap(finishedGameList.get(0));
         }
     }
 
     /**
      * Changes the status of a game
-     * @param id - unique identifier of a game
+     * @param game - the game to modify
      * @param status - provided new status that will replace the previous
      * @return - map representation of the modified game
      */
-    public Map changeGameStatus(Long id, String status) {
-        Game game = getGame(id);
+    public Map changeGameStatus(Game game, String status) {
         game.setGameStatus(status);
         gameRepository.save(game);
-        return objectMapper.convertValue(game, Map.class);
+        gameChangeNotifier.gameChangedAfterCommit(game);
+        tournamentService.gameFinishedAfterCommit(game);
+        return toMap(game);
     }
 
     /**
      * Reverts a game to a previous state
-     * @param id - unique identifier of a game
+     * @param game - the game to revert
+     * @param gameHistory - history of the game
      * @param move - the move number of a game to revert to
      * @return map representation of the modified game
      */
-    public Map setGameBackToGameState(Long id, Integer move) {
-        Game game = getGame(id);
-        GameHistory gameHistory = getGameHistory(id);
-        GameState gameState = gameHistory.getHistoryList().get(move);
-
-        game.setGameId(gameState.getGameId());
-        game.setPlayerOne(gameState.getPlayerOne());
-        game.setPlayerTwo(game.getPlayerTwo());
-        game.setGameStatus(gameState.getGameStatus());
-        game.setPlayerOneScores(gameState.getPlayerOneScores());
-        game.setPlayerTwoScores(gameState.getPlayerTwoScores());
-        game.setTurn(gameState.getTurn());
-
-        gameHistory.deleteGameStatesAfterRevert(gameState.getMove());
+    public Map setGameBackToGameState(Game game, GameHistory gameHistory, Integer move) {
+        GameOperationEvent event = GameOperationEvent.start(GameOperationEvent.REVERT);
+        try {
+            GameState gameState = gameHistory.getHistoryList().get(move);
+
+            game.setGameId(gameState.getGameId());
+            game.setPlayerOne(gameState.getPlayerOne());
+            game.setPlayerTwo(game.getPlayerTwo());
+            game.setGameStatus(gameState.getGameStatus());
+            game.setPlayerOneScores(gameState.getPlayerOneScores());
+            game.setPlayerTwoScores(gameState.getPlayerTwoScores());
+            game.setTurn(gameState.getTurn());
+
+            //Two bulk deletes instead of Hibernate deleting and reinserting every link of the history list
+            gameHistoryRepository.unlinkGameStatesAfter(game.getGameId(), gameState.getMove());
+            gameStateRepository.deleteGameStatesAfter(game.getGameId(), gameState.getMove());
+
+            gameRepository.save(game);
+            gameChangeNotifier.gameChangedAfterCommit(game);
+
+            return game.toMap();
+        } finally {
+            event.finish(game.getGameId(), move + 1);
+        }
+    }
 
-        gameHistoryRepository.save(gameHistory);
-        gameRepository.save(game);
+    /**
+     * Finds a batch of games that were created or played but had no activity since the given time.
+     * @param idleSince - games last changed before this time are idle
+     * @param batchSize - maximum number of games found
+     * @param skipped - games left alone by earlier batches, not read again
+     * @return - unique identifiers of the idle games this node owns, the least recently changed first
+     */
+    @Transactional(readOnly = true)
+    public List<Long> findIdleGameIds(Instant idleSince, int batchSize, Set<Long> skipped) {
+        //An empty NOT IN list is not valid SQL, no game has a negative id
+        Set<Long> excluded = skipped.isEmpty() ? Collections.singleton(-1L) : skipped;
+        List<Game> idleGames;
+        if (!gameOwnership.isEnabled()) {
+            idleGames = gameRepository.findIdleGames(idleSince, excluded, PageRequest.of(0, batchSize));
+        } else {
+            //Only the owner may change a game, the other partitions are swept by their nodes
+            Set<Long> partitions = new HashSet<>();
+            gameOwnership.ownedPartitions().forEach(partition -> partitions.add(partition.longValue()));
+            if (partitions.isEmpty()) {
+                return Collections.emptyList();
+            }
+            idleGames = gameRepository.findIdleGamesInPartitions(
+                    idleSince, partitions, GameOwnership.PARTITIONS, excluded, PageRequest.of(0, batchSize));
+        }
+        List<Long> ids = new ArrayList<>();
+        idleGames.forEach(game -> ids.add(game.getGameId()));
+        return ids;
+    }
 
-        return game.toMap();
+    /**
+     * Finishes an idle game as if a referee cancelled it with "Nobody wins!", and records the final state in its
+     * history. Has to run under the lock of the game, see {@link GameOwnership#execute}; the game is checked again
+     * there, a visit accepted since it was found keeps it alive.
+     * @param id - unique identifier of a game found by {@link #findIdleGameIds}
+     * @param idleSince - the game is abandoned only if it was last changed before this time
+     * @return - true if the game was abandoned
+     */
+    @Transactional
+    public boolean abandonIdleGame(Long id, Instant idleSince) {
+        Game game = findGame(id);
+        //A game with journaled visits is not idle, its row is just not materialized yet
+        if (game == null || moveJournal.pendingMove(id) != null || !game.getLastActivity().isBefore(idleSince)) {
+            return false;
+        }
+        GameSnapshot snapshot = new GameSnapshot(null, game, null, null);
+        if (snapshot.isFinished()) {
+            return false;
+        }
+        changeGameStatus(game, "Nobody wins!");
+        addNewGameStatusToExistingGameHistory(game);
+        return true;
     }
 
     /**
-     * Deletes a game from repository.
+     * Deletes a game from repository together with its history, so the history API no longer finds it.
      * @param gameID - ID of the game
      * @return - true or false
      */
+    @Transactional
     public boolean deleteGame(Long gameID) {
-        if (gameRepository.existsById(gameID)) {
-            gameRepository.deleteById(gameID);
-            return true;
-        } else {
+        moveJournal.awaitMaterialized(gameID);
+        //Every move is after -1, the links go first, they reference the states and the history
+        gameHistoryRepository.unlinkGameStatesAfter(gameID, -1);
+        gameStateRepository.deleteGameStatesAfter(gameID, -1);
+        gameHistoryRepository.deleteGameHistory(gameID);
+        if (gameRepository.deleteGame(gameID) == 0) {
             return false;
         }
+        finishedHistoryCache.invalidateAfterCommit(gameID);
+        return true;
     }
 
     /**
-     * Sets actual player's score
-     * @param game - actual game to modify
-     * @param name - name of the actual player
-     * @param score - new score that needs to be applied to the game
+     * Loads a game by its unique identifier.
+     * @param id - unique identifier of a game
+     * @return - the game or null if no such game exists
      */
-    private void setPlayerScore(Game game, String name, Integer score) {
-        if (game.getPlayerOne().equals(name)) {
-            game.setPlayerOneScores(score);
-        } else {
-            game.setPlayerTwoScores(score);
-        }
+    private Game findGame(Long id) {
+        return gameRepository.findById(id).orElse(null);
     }
 
     /**
-     * Sets turn to next player
-     * @param game - actual game
-     * @param name - name of the actual player
+     * Loads the created or ongoing game of a player. A game finished by a visit that is only journaled yet is waited
+     * for, otherwise the player could start another game while its row still says playing, and the player would have
+     * two active games until the materializer catches up.
+     * @param name - name of the player
+     * @return - the game or null if the player is not in a game
      */
-    private void setNextPlayer(Game game, String name) {
-        if (game.getPlayerOne().equals(name)) {
-            game.setTurn(game.getPlayerTwo());
-        } else {
-            game.setTurn(game.getPlayerOne());
+    private Game findActiveGame(String name) {
+        Game game = gameRepository.findGameByPlayerName(name).orElse(null);
+        if (game == null) {
+            return null;
         }
+        if (moveJournal.isFinishedPending(game.getGameId())) {
+            moveJournal.awaitMaterialized(game.getGameId());
+            return null;
+        }
+        return moveJournal.overlay(game);
+    }
+
+    /**
+     * Determines the move number of the next visit in a game's history.
+     * @param gameId - unique identifier of a game
+     * @return - the move after the latest acknowledged visit
+     */
+    private int nextMove(Long gameId) {
+        Integer pendingMove = moveJournal.pendingMove(gameId);
+        return pendingMove != null ? pendingMove + 1 : (int) gameStateRepository.countByGameId(gameId);
+    }
+
+    /**
+     * Converts a game to the state the rules kernel works on.
+     * @param game - a started or ongoing game
+     * @return - the scores, turn and phase of the game
+     */
+    private X01State toX01State(Game game) {
+        int turn = game.getTurn().equals(game.getPlayerOne()) ? X01State.PLAYER_ONE : X01State.PLAYER_TWO;
+        GamePhase phase = game.getGameStatus().equals("started") ? GamePhase.STARTED : GamePhase.PLAYING;
+        return new X01State(game.getPlayerOneScores(), game.getPlayerTwoScores(), turn, phase, null);
     }
 
     /**
@@ -305,16 +544,50 @@ public class GameService {
      * @param game - actual game that's state has to be saved
      */
     private void addNewGameStatusToExistingGameHistory(Game game) {
-        GameHistory gameHistory = getGameHistory(game.getGameId());
-                gameHistory.addNewGameState(
-                        game.getGameId(),
-                        gameHistory.getHistoryList().size(),
-                        game.getPlayerOne(),
-                        game.getPlayerTwo(),
-                        game.getGameStatus(),
-                        game.getPlayerOneScores(),
-                        game.getPlayerTwoScores(),
-                        game.getTurn());
-        gameHistoryRepository.save(gameHistory);
+        addNewGameStatusToExistingGameHistory(game, null);
+    }
+
+    /**
+     * Adds a new state to the game's history list together with the darts of the visit that led to it
+     * @param game - actual game that's state has to be saved
+     * @param darts - the visit packed by {@link Visit#toPacked()}, or null if the state is not a result of a visit
+     * @return - length of the history with the new state
+     */
+    private int addNewGameStatusToExistingGameHistory(Game game, Integer darts) {
+        GameOperationEvent event = GameOperationEvent.start(GameOperationEvent.ADD_GAME_STATE);
+        int move = 0;
+        try {
+            //The history list only grows by one state, so it is not loaded
+            move = (int) gameStateRepository.countByGameId(game.getGameId());
+            GameState gameState = gameStateRepository.save(
+                    new GameState(
+                            game.getGameId(),
+                            move,
+                            game.getPlayerOne(),
+                            game.getPlayerTwo(),
+                            game.getGameStatus(),
+                            game.getPlayerOneScores(),
+                            game.getPlayerTwoScores(),
+                            game.getTurn(),
+                            darts));
+            gameHistoryRepository.appendGameState(game.getGameId(), gameState.getDatabaseId());
+            return move + 1;
+        } finally {
+            event.finish(game.getGameId(), move + 1);
+        }
+    }
+
+    /**
+     * Converts a game to the map representation of the responses.
+     * @param game - the game to convert
+     * @return - map representation of the game
+     */
+    private Map toMap(Game game) {
+        GameOperationEvent event = GameOperationEvent.start(GameOperationEvent.TO_MAP);
+        try {
+            return objectMapper.convertValue(game, Map.class);
+        } finally {
+            event.finish(game.getGameId(), 0);
+        }
     }
 }
@@ -0,0 +1,81 @@
+package dartsgame.game.service;
+
+import dartsgame.game.persistance.dao.Game;
+import dartsgame.game.persistance.dao.GameHistory;
+
+/**
+ * The requested game, its history and the requesting player's active game, loaded once per request.
+ * Every rule of a request is checked against this snapshot instead of reloading the game.
+ */
+public class GameSnapshot {
+    private final String playerName;
+    private final Game game;
+    private final Game activeGame;
+    private final GameHistory gameHistory;
+
+    public GameSnapshot(String playerName, Game game, Game activeGame, GameHistory gameHistory) {
+        this.playerName = playerName;
+        this.game = game;
+        this.activeGame = activeGame;
+        this.gameHistory = gameHistory;
+    }
+
+    public String getPlayerName() {
+        return playerName;
+    }
+
+    public Game getGame() {
+        return game;
+    }
+
+    public Game getActiveGame() {
+        return activeGame;
+    }
+
+    public GameHistory getGameHistory() {
+        return gameHistory;
+    }
+
+    public boolean hasGame() {
+        return game != null;
+    }
+
+    public boolean hasGameHistory() {
+        return gameHistory != null;
+    }
+
+    /**
+     * Determines if the requested game is created by this player.
+     */
+    public boolean isCreatedByPlayer() {
+        return game.getPlayerOne().equals(playerName);
+    }
+
+    /**
+     * Player can only join to a game with "created" status.
+     */
+    public boolean isAvailableToJoin() {
+        return game.getGameStatus().equals("created");
+    }
+
+    /**
+     * Determines if the player has any created or ongoing game.
+     */
+    public boolean isPlayerInGame() {
+        return activeGame != null;
+    }
+
+    /**
+     * Determines if it is the player's turn in the requested game.
+     */
+    public boolean isPlayersTurn() {
+        return game.getTurn().equals(playerName);
+    }
+
+    /**
+     * Determines if the requested game already has a winner.
+     */
+    public boolean isFinished() {
+        return game.getGameStatus().matches("\\S*\\swins!");
+    }
+}
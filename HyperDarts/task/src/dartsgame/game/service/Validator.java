@@ -3,6 +3,9 @@ package dartsgame.game.service;
 import dartsgame.game.persistance.dao.Game;
 import dartsgame.game.dto.DartsThrowForm;
 import dartsgame.game.dto.ThrownDart;
+import dartsgame.game.rules.Visit;
+import dartsgame.game.rules.X01Rules;
+import dartsgame.telemetry.GameOperationEvent;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -84,6 +87,22 @@ public class Validator {
      * @return - an array of thrown darts if provided values were correct, or an empty array otherwise
      */
     public ThrownDart[] validateThrows(Game game, String name, DartsThrowForm dartsThrowForm) {
+        GameOperationEvent event = GameOperationEvent.start(GameOperationEvent.VALIDATE_THROWS);
+        try {
+            int playerScore = game.getPlayerOne().equals(name) ? game.getPlayerOneScores() : game.getPlayerTwoScores();
+            return validateThrows(playerScore, dartsThrowForm);
+        } finally {
+            event.finish(game.getGameId(), 0);
+        }
+    }
+
+    /**
+     * Validates the thrown darts of a visit against the remaining score of the thrower.
+     * @param playerScore - remaining score of the thrower before the visit
+     * @param dartsThrowForm - a form containing the throw parameters
+     * @return - the thrown darts, or an empty array if the throws are not valid
+     */
+    public ThrownDart[] validateThrows(int playerScore, DartsThrowForm dartsThrowForm) {
 
         ThrownDart[] darts = new ThrownDart[]{
                 extractThrow(1, dartsThrowForm.getFirst()),
@@ -96,31 +115,8 @@ public class Validator {
             }
         }
 
-        for (ThrownDart dart : darts) {
-            assert dart != null;
-            if (dart.getNumberOfDart() == 1 && dart.getScore() == null) {
-                return new ThrownDart[0];
-            }
-        }
-
-        Integer playerScore;
-        if (game.getPlayerOne().equals(name)) {
-            playerScore = game.getPlayerOneScores();
-        } else {
-            playerScore = game.getPlayerTwoScores();
-        }
-
-        for (ThrownDart dart : darts) {
-            if (playerScore > 1 && (dart.getScore() == null || dart.getMultiplicator() == null)) {
-                return new ThrownDart[0];
-            }
-            if (playerScore <= 1 && (dart.getScore() != null || dart.getMultiplicator() != null)) {
-                return new ThrownDart[0];
-            }
-
-            if (dart.getScore() != null && dart.getMultiplicator() != null) {
-                playerScore -= dart.getMultiplicator() * dart.getScore();
-            }
+        if (!X01Rules.isValidVisit(playerScore, Visit.of(darts))) {
+            return new ThrownDart[0];
         }
 
         return darts;
@@ -0,0 +1,57 @@
+package dartsgame.game.verify;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An inconsistency of one game or one move of its history.
+ */
+public class Discrepancy {
+    private final long gameId;
+    private final Integer move;
+    private final DiscrepancyKind kind;
+    private final String detail;
+
+    /**
+     * @param gameId - unique identifier of the game
+     * @param move - the move the inconsistency was found at, null if it concerns the whole game
+     * @param kind - kind of the inconsistency
+     * @param detail - readable description
+     */
+    public Discrepancy(long gameId, Integer move, DiscrepancyKind kind, String detail) {
+        this.gameId = gameId;
+        this.move = move;
+        this.kind = kind;
+        this.detail = detail;
+    }
+
+    public long getGameId() {
+        return gameId;
+    }
+
+    public Integer getMove() {
+        return move;
+    }
+
+    public DiscrepancyKind getKind() {
+        return kind;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    public Map toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("gameId", gameId);
+        map.put("move", move);
+        map.put("kind", kind);
+        map.put("detail", detail);
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "game " + gameId + (move == null ? "" : " move " + move) + ": " + kind + " " + detail;
+    }
+}
@@ -0,0 +1,27 @@
+package dartsgame.game.verify;
+
+/**
+ * Kinds of inconsistencies the history verifier finds.
+ */
+public enum DiscrepancyKind {
+    //The game has no game_history row
+    MISSING_HISTORY,
+    //A game_history row or game states remained after their game was deleted
+    ORPHAN_HISTORY,
+    ORPHAN_STATE,
+    //Moves are not numbered 0, 1, 2, ... or a state is not linked to the history of its game
+    MOVE_NUMBERING,
+    NOT_IN_HISTORY,
+    //The first state is not a just started game of two players with equal scores
+    INVALID_START,
+    PLAYERS_CHANGED,
+    //A score grew, or the player who was not throwing lost points
+    SCORE,
+    TURN_ORDER,
+    //The recorded darts do not lead to the recorded state
+    REPLAY_MISMATCH,
+    //A state follows a finished one, or a winner did not check out
+    TERMINAL_STATUS,
+    //The game row differs from the last state of its history
+    GAME_ROW_MISMATCH
+}
@@ -0,0 +1,226 @@
+package dartsgame.game.verify;
+
+import dartsgame.game.rules.GamePhase;
+import dartsgame.game.rules.Visit;
+import dartsgame.game.rules.VisitOutcome;
+import dartsgame.game.rules.X01Rules;
+import dartsgame.game.rules.X01State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Replays the stored history of one game with the x01 rules. Works on the stored columns, so players are ids and a
+ * winner is stored as "#&lt;player_id&gt; wins!".
+ */
+class GameHistoryCheck {
+
+    private static final String WINS = " wins!";
+    private static final String NOBODY_WINS = "Nobody wins!";
+
+    private final long gameId;
+    private final Consumer<Discrepancy> discrepancies;
+    private final List<StoredState> states = new ArrayList<>();
+    private StoredState game;
+    private boolean hasHistory;
+
+    GameHistoryCheck(long gameId, Consumer<Discrepancy> discrepancies) {
+        this.gameId = gameId;
+        this.discrepancies = discrepancies;
+    }
+
+    void setGame(StoredState game, boolean hasHistory) {
+        this.game = game;
+        this.hasHistory = hasHistory;
+    }
+
+    void addState(StoredState state) {
+        states.add(state);
+    }
+
+    void run() {
+        if (!hasHistory) {
+            report(null, DiscrepancyKind.MISSING_HISTORY, "no game_history row");
+        }
+        for (int i = 0; i < states.size(); i++) {
+            StoredState state = states.get(i);
+            if (state.move != i) {
+                report(state.move, DiscrepancyKind.MOVE_NUMBERING, "expected move " + i);
+            }
+            if (!state.linked) {
+                report(state.move, DiscrepancyKind.NOT_IN_HISTORY, "state " + state.databaseId + " is not linked");
+            }
+            if (!Objects.equals(state.playerOne, game.playerOne) || !Objects.equals(state.playerTwo, game.playerTwo)) {
+                report(state.move, DiscrepancyKind.PLAYERS_CHANGED, "players differ from the game");
+            }
+            if (i == 0) {
+                checkStart(state);
+            } else {
+                checkVisit(states.get(i - 1), state);
+            }
+        }
+        checkGameRow();
+    }
+
+    private void checkStart(StoredState state) {
+        //An abandoned game that nobody joined only has the "Nobody wins!" state
+        boolean abandoned = NOBODY_WINS.equals(state.status);
+        if (!abandoned && !"started".equals(state.status)
+                || !Objects.equals(state.playerOneScore, state.playerTwoScore)
+                || !Objects.equals(state.turn, state.playerOne)) {
+            report(state.move, DiscrepancyKind.INVALID_START, "first state is " + state);
+        }
+    }
+
+    private void checkVisit(StoredState previous, StoredState state) {
+        if (phaseOf(previous) == GamePhase.FINISHED) {
+            report(state.move, DiscrepancyKind.TERMINAL_STATUS, "state after the game was finished");
+            return;
+        }
+        if (NOBODY_WINS.equals(state.status)) {
+            //Abandoned for inactivity, the state is otherwise unchanged
+            if (!sameScoresAndTurn(previous, state)) {
+                report(state.move, DiscrepancyKind.TERMINAL_STATUS, "abandoned state changed the game");
+            }
+            return;
+        }
+        if (!hasScores(previous) || !hasScores(state)) {
+            report(state.move, DiscrepancyKind.SCORE, "scores are missing");
+            return;
+        }
+        X01State before = toX01State(previous);
+        if (before == null || toX01State(state) == null) {
+            report(state.move, DiscrepancyKind.TURN_ORDER, "turn is not one of the players");
+            return;
+        }
+        boolean playerOneThrew = before.getTurn() == X01State.PLAYER_ONE;
+        int throwerBefore = before.getScoreOfTurn();
+        int throwerAfter = playerOneThrew ? state.playerOneScore : state.playerTwoScore;
+        int otherBefore = playerOneThrew ? before.getPlayerTwoScore() : before.getPlayerOneScore();
+        int otherAfter = playerOneThrew ? state.playerTwoScore : state.playerOneScore;
+        if (throwerAfter > throwerBefore || otherAfter != otherBefore) {
+            report(state.move, DiscrepancyKind.SCORE, "scores went from " + scores(previous) + " to " + scores(state));
+        }
+
+        if (state.darts != null) {
+            X01State expected = X01Rules.apply(before, Visit.fromPacked(state.darts));
+            if (expected.getOutcome() == VisitOutcome.REJECTED) {
+                report(state.move, DiscrepancyKind.REPLAY_MISMATCH, "the recorded darts are not a valid visit");
+            } else if (expected.getPlayerOneScore() != state.playerOneScore
+                    || expected.getPlayerTwoScore() != state.playerTwoScore
+                    || expected.getTurn() != toX01State(state).getTurn()
+                    || expected.getPhase() != phaseOf(state)) {
+                report(state.move, DiscrepancyKind.REPLAY_MISMATCH, "the recorded darts lead to scores "
+                        + expected.getPlayerOneScore() + "/" + expected.getPlayerTwoScore() + ", " + expected.getPhase());
+            }
+            return;
+        }
+
+        //Without recorded darts only the shape of the visit can be checked
+        if (phaseOf(state) == GamePhase.FINISHED) {
+            if (throwerAfter != 0 || !Objects.equals(state.turn, previous.turn)
+                    || !state.status.equals("#" + previous.turn + WINS)) {
+                report(state.move, DiscrepancyKind.TERMINAL_STATUS, "the winner did not check out: " + state.status);
+            }
+        } else {
+            if (Objects.equals(state.turn, previous.turn)) {
+                report(state.move, DiscrepancyKind.TURN_ORDER, "the same player threw twice");
+            }
+            if (!"playing".equals(state.status)) {
+                report(state.move, DiscrepancyKind.TERMINAL_STATUS, "status after a visit is " + state.status);
+            }
+        }
+    }
+
+    private void checkGameRow() {
+        if (states.isEmpty()) {
+            //Nobody joined yet, or a referee cancelled the game before anybody did
+            if (!"created".equals(game.status) && !isPlayerOrNobody(game.status)) {
+                report(null, DiscrepancyKind.GAME_ROW_MISMATCH, "game is " + game.status + " without history");
+            }
+            return;
+        }
+        StoredState last = states.get(states.size() - 1);
+        if (Objects.equals(game.status, last.status) && sameScoresAndTurn(game, last)) {
+            return;
+        }
+        //A referee cancels a game by its status only, without a new state
+        boolean cancelled = phaseOf(game) == GamePhase.FINISHED && phaseOf(last) != GamePhase.FINISHED
+                && sameScoresAndTurn(game, last) && isPlayerOrNobody(game.status);
+        if (!cancelled) {
+            report(null, DiscrepancyKind.GAME_ROW_MISMATCH, "game is " + game + ", last state is " + last);
+        }
+    }
+
+    private boolean isPlayerOrNobody(String status) {
+        if (status == null) {
+            return false;
+        }
+        return NOBODY_WINS.equals(status)
+                || status.equals("#" + game.playerOne + WINS)
+                || status.equals("#" + game.playerTwo + WINS);
+    }
+
+    private static boolean sameScoresAndTurn(StoredState a, StoredState b) {
+        return Objects.equals(a.playerOneScore, b.playerOneScore)
+                && Objects.equals(a.playerTwoScore, b.playerTwoScore)
+                && Objects.equals(a.turn, b.turn);
+    }
+
+    private static boolean hasScores(StoredState state) {
+        return state.playerOneScore != null && state.playerTwoScore != null;
+    }
+
+    private static String scores(StoredState state) {
+        return state.playerOneScore + "/" + state.playerTwoScore;
+    }
+
+    private static GamePhase phaseOf(StoredState state) {
+        if (state.status != null && state.status.endsWith(WINS)) {
+            return GamePhase.FINISHED;
+        }
+        return "playing".equals(state.status) ? GamePhase.PLAYING : GamePhase.STARTED;
+    }
+
+    /**
+     * @return - the state for the rules kernel, or null if the turn is not one of the players
+     */
+    private static X01State toX01State(StoredState state) {
+        int turn;
+        if (state.turn != null && state.turn.equals(state.playerOne)) {
+            turn = X01State.PLAYER_ONE;
+        } else if (state.turn != null && state.turn.equals(state.playerTwo)) {
+            turn = X01State.PLAYER_TWO;
+        } else {
+            return null;
+        }
+        return new X01State(state.playerOneScore, state.playerTwoScore, turn, phaseOf(state), null);
+    }
+
+    private void report(Integer move, DiscrepancyKind kind, String detail) {
+        discrepancies.accept(new Discrepancy(gameId, move, kind, detail));
+    }
+
+    /**
+     * A games row or a game_state row, as stored.
+     */
+    static class StoredState {
+        long databaseId;
+        int move;
+        Integer playerOne;
+        Integer playerTwo;
+        String status;
+        Integer playerOneScore;
+        Integer playerTwoScore;
+        Integer turn;
+        Integer darts;
+        boolean linked;
+
+        @Override
+        public String toString() {
+            return status + " " + playerOneScore + "/" + playerTwoScore + " turn #" + turn;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package dartsgame.game.verify;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Checks that every stored game history is consistent with the x01 rules and with its game row, see
+ * {@link GameHistoryCheck}, and looks for histories and states left behind by deleted games.
+ * <p>
+ * Games are read in id ranges of a fixed number of games, every range by one worker with its own query. At most two
+ * ranges per worker are in flight, so memory use depends on the batch size and the parallelism, not on the number of
+ * games. The verifier only reads; a game changed while it is verified may be reported and should be checked again.
+ */
+@Service
+public class HistoryVerifier {
+
+    private static final String RANGE_QUERY = "SELECT g.game_id, g.player_one_id, g.player_two_id, g.game_status, " +
+            "g.player_one_score, g.player_two_score, g.turn_id, h.game_id AS history_id, s.database_id, s.move, " +
+            "s.player_one_id AS state_player_one_id, s.player_two_id AS state_player_two_id, " +
+            "s.game_status AS state_game_status, s.player_one_scores, s.player_two_scores, " +
+            "s.turn_id AS state_turn_id, s.darts, l.game_history_game_id AS linked_to " +
+            "FROM games g " +
+            "LEFT JOIN game_history h ON h.game_id = g.game_id " +
+            "LEFT JOIN game_state s ON s.game_id = g.game_id " +
+            "LEFT JOIN game_history_history_list l ON l.history_list_database_id = s.database_id " +
+            "WHERE g.game_id BETWEEN ? AND ? ORDER BY g.game_id, s.move, s.database_id";
+    private static final String ORPHAN_HISTORY_QUERY = "SELECT h.game_id FROM game_history h " +
+            "WHERE NOT EXISTS (SELECT 1 FROM games g WHERE g.game_id = h.game_id) ORDER BY h.game_id";
+    private static final String ORPHAN_STATE_QUERY = "SELECT s.game_id, COUNT(*) AS states FROM game_state s " +
+            "WHERE NOT EXISTS (SELECT 1 FROM games g WHERE g.game_id = s.game_id) GROUP BY s.game_id ORDER BY s.game_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    public HistoryVerifier(DataSource dataSource,
+                           @Value("${verify.batch-size:500}") int batchSize,
+                           @Value("${verify.fetch-size:1000}") int fetchSize) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Verifies every game.
+     * @param parallelism - number of workers
+     * @param maxListed - number of discrepancies reported with their details
+     * @return - the report of the verification
+     */
+    public VerificationReport verify(int parallelism, int maxListed) {
+        long start = System.currentTimeMillis();
+        VerificationReport report = new VerificationReport(maxListed);
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "history-verifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Semaphore inFlight = new Semaphore(2 * parallelism);
+        List<Future<?>> ranges = new ArrayList<>();
+        try {
+            long after = 0;
+            List<Long> ids;
+            while (!(ids = nextGameIds(after)).isEmpty()) {
+                long first = ids.get(0);
+                long last = ids.get(ids.size() - 1);
+                inFlight.acquire();
+                ranges.add(workers.submit(() -> {
+                    try {
+                        verifyRange(first, last, report);
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+                after = last;
+            }
+            findOrphans(report);
+            for (Future<?> range : ranges) {
+                range.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Verification was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Verification failed", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+        report.finish(System.currentTimeMillis() - start);
+        return report;
+    }
+
+    private List<Long> nextGameIds(long after) {
+        return jdbcTemplate.queryForList("SELECT game_id FROM games WHERE game_id > ? ORDER BY game_id LIMIT ?",
+                Long.class, after, batchSize);
+    }
+
+    private void verifyRange(long first, long last, VerificationReport report) {
+        RangeReader reader = new RangeReader(report);
+        jdbcTemplate.query(RANGE_QUERY, reader::processRow, first, last);
+        reader.finishGame();
+        report.addVerified(reader.games, reader.states);
+    }
+
+    private void findOrphans(VerificationReport report) {
+        jdbcTemplate.query(ORPHAN_HISTORY_QUERY, (ResultSet rs) -> {
+            report.add(new Discrepancy(rs.getLong("game_id"), null, DiscrepancyKind.ORPHAN_HISTORY,
+                    "history of a deleted game"));
+        });
+        jdbcTemplate.query(ORPHAN_STATE_QUERY, (ResultSet rs) -> {
+            report.add(new Discrepancy(rs.getLong("game_id"), null, DiscrepancyKind.ORPHAN_STATE,
+                    rs.getLong("states") + " states of a deleted game"));
+        });
+    }
+
+    /**
+     * Groups the rows of the ordered join by game and checks each game once all of its rows are read.
+     */
+    private static class RangeReader {
+        private final VerificationReport report;
+        private GameHistoryCheck check;
+        private long currentGameId = -1;
+        private long games;
+        private long states;
+
+        private RangeReader(VerificationReport report) {
+            this.report = report;
+        }
+
+        private void processRow(ResultSet rs) throws SQLException {
+            long gameId = rs.getLong("game_id");
+            if (gameId != currentGameId) {
+                finishGame();
+                currentGameId = gameId;
+                games++;
+                check = new GameHistoryCheck(gameId, report::add);
+                GameHistoryCheck.StoredState game = new GameHistoryCheck.StoredState();
+                game.playerOne = rs.getObject("player_one_id", Integer.class);
+                game.playerTwo = rs.getObject("player_two_id", Integer.class);
+                game.status = rs.getString("game_status");
+                game.playerOneScore = rs.getObject("player_one_score", Integer.class);
+                game.playerTwoScore = rs.getObject("player_two_score", Integer.class);
+                game.turn = rs.getObject("turn_id", Integer.class);
+                check.setGame(game, rs.getObject("history_id") != null);
+            }
+            Integer move = rs.getObject("move", Integer.class);
+            if (move != null) {
+                states++;
+                GameHistoryCheck.StoredState state = new GameHistoryCheck.StoredState();
+                state.databaseId = rs.getLong("database_id");
+                state.move = move;
+                state.playerOne = rs.getObject("state_player_one_id", Integer.class);
+                state.playerTwo = rs.getObject("state_player_two_id", Integer.class);
+                state.status = rs.getString("state_game_status");
+                state.playerOneScore = rs.getObject("player_one_scores", Integer.class);
+                state.playerTwoScore = rs.getObject("player_two_scores", Integer.class);
+                state.turn = rs.getObject("state_turn_id", Integer.class);
+                state.darts = rs.getObject("darts", Integer.class);
+                Long linkedTo = rs.getObject("linked_to", Long.class);
+                state.linked = linkedTo != null && linkedTo == gameId;
+                check.addState(state);
+            }
+        }
+
+        private void finishGame() {
+            if (check != null) {
+                check.run();
+                check = null;
+            }
+        }
+    }
+}
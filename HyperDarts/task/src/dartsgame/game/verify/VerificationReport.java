@@ -0,0 +1,78 @@
+package dartsgame.game.verify;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a history verification: counts of every kind of discrepancy and the first discrepancies found.
+ * Filled concurrently by the verifying workers.
+ */
+public class VerificationReport {
+
+    private final int maxListed;
+    private final Map<DiscrepancyKind, Long> counts = new EnumMap<>(DiscrepancyKind.class);
+    private final List<Discrepancy> listed = new ArrayList<>();
+    private long games;
+    private long states;
+    private long elapsedMillis;
+
+    /**
+     * @param maxListed - number of discrepancies kept with their details, the others are only counted
+     */
+    public VerificationReport(int maxListed) {
+        this.maxListed = maxListed;
+    }
+
+    synchronized void add(Discrepancy discrepancy) {
+        counts.merge(discrepancy.getKind(), 1L, Long::sum);
+        if (listed.size() < maxListed) {
+            listed.add(discrepancy);
+        }
+    }
+
+    synchronized void addVerified(long games, long states) {
+        this.games += games;
+        this.states += states;
+    }
+
+    synchronized void finish(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public synchronized long getDiscrepancies() {
+        return counts.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public synchronized boolean isConsistent() {
+        return counts.isEmpty();
+    }
+
+    /**
+     * @return - the first discrepancies found, at most as many as the report was created for
+     */
+    public synchronized List<Discrepancy> getListedDiscrepancies() {
+        return new ArrayList<>(listed);
+    }
+
+    public synchronized Map toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("games", games);
+        map.put("states", states);
+        map.put("elapsedMillis", elapsedMillis);
+        map.put("consistent", counts.isEmpty());
+        map.put("counts", new EnumMap<>(counts));
+        List<Map> details = new ArrayList<>();
+        listed.forEach(discrepancy -> details.add(discrepancy.toMap()));
+        map.put("discrepancies", details);
+        return map;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return games + " games with " + states + " states verified in " + elapsedMillis + " ms, "
+                + (counts.isEmpty() ? "no discrepancies" : "discrepancies " + counts);
+    }
+}
@@ -0,0 +1,41 @@
+package dartsgame.game.verify;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/verify")
+public class VerifyController {
+
+    private static final int MAX_PARALLELISM = 32;
+
+    private final HistoryVerifier historyVerifier;
+
+    @Autowired
+    public VerifyController(HistoryVerifier historyVerifier) {
+        this.historyVerifier = historyVerifier;
+    }
+
+    /**
+     * Verifies every stored game history.
+     * @param parallelism - number of workers, the number of processors by default
+     * @param limit - number of discrepancies listed with their details
+     * @return - the verification report, or BAD_REQUEST if a parameter is out of range
+     */
+    @GetMapping
+    public ResponseEntity<Map> verifyHistories(@RequestParam(name = "parallelism", defaultValue = "0") int parallelism,
+                                               @RequestParam(name = "limit", defaultValue = "100") int limit) {
+        if (parallelism < 0 || parallelism > MAX_PARALLELISM || limit < 0) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong request!"));
+        }
+        int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return ResponseEntity.ok(historyVerifier.verify(workers, limit).toMap());
+    }
+}
@@ -0,0 +1,45 @@
+package dartsgame.game.verify;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Command line verification: start with --verify.run=true [--verify.parallelism=N] [--verify.limit=N]
+ * and --spring.main.web-application-type=none. The application exits with 1 if a discrepancy was found.
+ */
+@Component
+@ConditionalOnProperty(name = "verify.run", havingValue = "true")
+public class VerifyRunner implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(VerifyRunner.class);
+
+    private final HistoryVerifier historyVerifier;
+    private final ConfigurableApplicationContext context;
+    private final int parallelism;
+    private final int limit;
+
+    public VerifyRunner(HistoryVerifier historyVerifier,
+                        ConfigurableApplicationContext context,
+                        @Value("${verify.parallelism:0}") int parallelism,
+                        @Value("${verify.limit:100}") int limit) {
+        this.historyVerifier = historyVerifier;
+        this.context = context;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.limit = limit;
+    }
+
+    @Override
+    public void run(String... args) {
+        VerificationReport report = historyVerifier.verify(parallelism, limit);
+        report.getListedDiscrepancies().forEach(discrepancy -> log.warn("{}", discrepancy));
+        log.info("History verification: {}", report);
+        int exitCode = report.isConsistent() ? 0 : 1;
+        System.exit(SpringApplication.exit(context, () -> exitCode));
+    }
+}
@@ -0,0 +1,200 @@
+package dartsgame.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives a running server with many concurrent clients and reports throughput, latency percentiles, errors and the
+ * number of live server threads. Scenarios:
+ * <ul>
+ *     <li>status - every client asks the status API again as soon as it got an answer</li>
+ *     <li>longpoll - every client keeps one status long-poll open, the way a waiting opponent does</li>
+ *     <li>token - every client logs in through the password grant again and again, like a login peak</li>
+ * </ul>
+ * Arguments are system properties: loadtest.url, loadtest.scenario, loadtest.clients, loadtest.seconds,
+ * loadtest.user and loadtest.password. The report is also written to build/reports/loadtest-&lt;scenario&gt;.txt.
+ */
+public class LoadHarness {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String baseUrl;
+    private final int clients;
+    private final Duration duration;
+    private final HttpClient httpClient;
+    private final AtomicLong errors = new AtomicLong();
+    private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+
+    public LoadHarness(String baseUrl, int clients, Duration duration) {
+        this.baseUrl = baseUrl;
+        this.clients = clients;
+        this.duration = duration;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String scenario = System.getProperty("loadtest.scenario", "status");
+        LoadHarness harness = new LoadHarness(
+                System.getProperty("loadtest.url", "http://localhost:28852"),
+                Integer.getInteger("loadtest.clients", 1000),
+                Duration.ofSeconds(Integer.getInteger("loadtest.seconds", 30)));
+        String user = System.getProperty("loadtest.user", "ivanhoe@acme.com");
+        String password = System.getProperty("loadtest.password", "oMoa3VvqnLxW");
+
+        String report;
+        switch (scenario) {
+            case "status":
+                report = harness.status(harness.passwordToken(user, password));
+                break;
+            case "longpoll":
+                report = harness.longPoll(harness.passwordToken(user, password));
+                break;
+            case "token":
+                report = harness.token(user, password);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown scenario " + scenario);
+        }
+        report = scenario + ": " + report;
+        Path file = Paths.get("build", "reports", "loadtest-" + scenario + ".txt");
+        Files.createDirectories(file.getParent());
+        Files.write(file, (report + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        System.out.println(report);
+    }
+
+    /**
+     * Gets an access token through the password grant of the hyperdarts client.
+     */
+    String passwordToken(String user, String password) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(tokenRequest(user, password),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Token request failed with " + response.statusCode()
+                    + ": " + response.body());
+        }
+        return MAPPER.readTree(response.body()).get("access_token").asText();
+    }
+
+    HttpRequest tokenRequest(String user, String password) {
+        String form = "grant_type=password&scope=read%20write"
+                + "&username=" + URLEncoder.encode(user, StandardCharsets.UTF_8)
+                + "&password=" + URLEncoder.encode(password, StandardCharsets.UTF_8);
+        String client = Base64.getEncoder().encodeToString("hyperdarts:secret".getBytes(StandardCharsets.UTF_8));
+        return HttpRequest.newBuilder(URI.create(baseUrl + "/oauth/token"))
+                .header("Authorization", "Basic " + client)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form))
+                .build();
+    }
+
+    private String status(String token) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/game/status"))
+                .header("Authorization", "Bearer " + token).GET().build();
+        return run(() -> request, token);
+    }
+
+    private String longPoll(String token) throws Exception {
+        //Nothing changes the game during the run, so every poll waits for its full timeout
+        long timeout = Math.max(1, duration.getSeconds() / 2);
+        URI uri = URI.create(baseUrl + "/api/game/status/poll?since=-1&timeout=" + timeout);
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Authorization", "Bearer " + token).GET().build();
+        return run(() -> request, token);
+    }
+
+    private String token(String user, String password) throws Exception {
+        //The same user logs in again and again, so after the first login every check is a cached one
+        return run(() -> tokenRequest(user, password), passwordToken(user, password));
+    }
+
+    /**
+     * Runs the clients until the duration is over, each sending its next request when the previous one is answered.
+     * @param requests - builds the next request of a client
+     * @param token - access token to read the server metrics with
+     * @return - the report of the run
+     */
+    String run(RequestSource requests, String token) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            running.add(client(requests, deadline));
+        }
+        //Sampled while the clients are waiting, the server is the busiest then
+        Thread.sleep(duration.toMillis() / 2);
+        long serverThreads = serverThreads(token);
+        CompletableFuture.allOf(running.toArray(new CompletableFuture[0])).join();
+        return report((System.nanoTime() - start) / 1_000_000, serverThreads);
+    }
+
+    private CompletableFuture<Void> client(RequestSource requests, long deadline) {
+        if (System.nanoTime() - deadline >= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long sent = System.nanoTime();
+        return httpClient.sendAsync(requests.next(), HttpResponse.BodyHandlers.discarding())
+                .handle((response, failure) -> {
+                    if (failure != null || response.statusCode() >= 400) {
+                        errors.incrementAndGet();
+                    }
+                    latencies.add((System.nanoTime() - sent) / 1_000);
+                    return null;
+                })
+                .thenCompose(ignored -> client(requests, deadline));
+    }
+
+    private long serverThreads(String token) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/metrics/jvm.threads.live"))
+                    .header("Authorization", "Bearer " + token).GET().build();
+            JsonNode metric = MAPPER.readTree(httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body());
+            return metric.get("measurements").get(0).get("value").asLong();
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private String report(long elapsedMillis, long serverThreads) {
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        return String.format("clients=%d requests=%d throughput=%.1f/s p50=%.1fms p99=%.1fms errors=%d "
+                        + "server-threads=%d",
+                clients, sorted.size(), sorted.size() * 1000.0 / Math.max(1, elapsedMillis),
+                percentile(sorted, 0.50), percentile(sorted, 0.99), errors.get(), serverThreads);
+    }
+
+    private static double percentile(List<Long> sortedMicros, double percentile) {
+        if (sortedMicros.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sortedMicros.size()) - 1;
+        return sortedMicros.get(Math.max(0, index)) / 1000.0;
+    }
+
+    @FunctionalInterface
+    interface RequestSource {
+        HttpRequest next();
+    }
+}
@@ -0,0 +1,80 @@
+package dartsgame.practice;
+
+import dartsgame.game.dto.CreateGameForm;
+import dartsgame.game.dto.DartsThrowForm;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/practice")
+public class PracticeController {
+
+    private final PracticeService practiceService;
+
+    @Autowired
+    public PracticeController(PracticeService practiceService) {
+        this.practiceService = practiceService;
+    }
+
+    /**
+     * Starts a solo practice session.
+     * @param auth - currently logged-in user
+     * @param createGameForm - the form containing the target score of the legs
+     * @return - a response entity containing the new session, or a BAD_REQUEST status if it cannot be started
+     */
+    @PostMapping("/start")
+    public ResponseEntity<Map> startPractice(Authentication auth, @RequestBody CreateGameForm createGameForm) {
+        return practiceService.startSession(auth.getName(), createGameForm.getTargetScore()).toResponseEntity();
+    }
+
+    /**
+     * Handles a visit of the practice session, in the same format as the game throws.
+     * @param auth - currently logged-in user
+     * @param dartsThrowForm - a form containing the throw parameters
+     * @return - a response entity containing the session after the visit, or different error messages
+     */
+    @PostMapping("/throws")
+    public ResponseEntity<Map> postThrows(Authentication auth, @RequestBody DartsThrowForm dartsThrowForm) {
+        return practiceService.postThrows(auth.getName(), dartsThrowForm).toResponseEntity();
+    }
+
+    /**
+     * Shows the running practice session of the user.
+     * @param auth - currently logged-in user
+     * @return - a response entity containing the session, or a NOT_FOUND status
+     */
+    @GetMapping("/status")
+    public ResponseEntity<Map> getPracticeStatus(Authentication auth) {
+        return practiceService.getSession(auth.getName()).toResponseEntity();
+    }
+
+    /**
+     * Ends the practice session and stores its summary.
+     * @param auth - currently logged-in user
+     * @return - a response entity containing the summary, or a NOT_FOUND status
+     */
+    @PostMapping("/finish")
+    public ResponseEntity<Map> finishPractice(Authentication auth) {
+        return practiceService.finishSession(auth.getName()).toResponseEntity();
+    }
+
+    /**
+     * Lists the summaries of the user's finished practice sessions.
+     * @param auth - currently logged-in user
+     * @return - a response entity containing the newest summaries, or a NOT_FOUND status if there are none
+     */
+    @GetMapping("/summaries")
+    public ResponseEntity<List<Map>> getSummaries(Authentication auth) {
+        List<Map> summaries = practiceService.getSummaries(auth.getName(), 50);
+        if (summaries.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(summaries);
+        }
+        return ResponseEntity.ok(summaries);
+    }
+}
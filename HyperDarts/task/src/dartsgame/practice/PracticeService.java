@@ -0,0 +1,165 @@
+package dartsgame.practice;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import dartsgame.game.dto.DartsThrowForm;
+import dartsgame.game.dto.GameResponse;
+import dartsgame.game.dto.ThrownDart;
+import dartsgame.game.persistance.PlayerDirectory;
+import dartsgame.game.rules.Visit;
+import dartsgame.game.rules.VisitOutcome;
+import dartsgame.game.service.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Solo practice sessions of players. A session is kept in memory only, a visit never touches the database; the
+ * summary is written once when the player finishes the session or when it expires after being idle.
+ * Sessions are local to the node that started them.
+ */
+@Service
+public class PracticeService {
+
+    private static final Logger log = LoggerFactory.getLogger(PracticeService.class);
+
+    private final Validator validator;
+    private final PracticeSummaryRepository practiceSummaryRepository;
+    private final PlayerDirectory playerDirectory;
+    private final Cache<String, PracticeSession> sessions;
+
+    @Autowired
+    public PracticeService(Validator validator,
+                           PracticeSummaryRepository practiceSummaryRepository,
+                           PlayerDirectory playerDirectory,
+                           @Value("${practice.idle-timeout:PT30M}") Duration idleTimeout) {
+        this.validator = validator;
+        this.practiceSummaryRepository = practiceSummaryRepository;
+        this.playerDirectory = playerDirectory;
+        this.sessions = Caffeine.newBuilder()
+                .expireAfterAccess(idleTimeout)
+                .scheduler(Scheduler.systemScheduler())
+                .<String, PracticeSession>removalListener((name, session, cause) -> {
+                    if (cause == RemovalCause.EXPIRED && session != null) {
+                        saveSummary(session);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Starts a practice session if the player doesn't have one.
+     * @param name - name of the player
+     * @param targetScore - starting score of every leg
+     * @return - the new session, or the reason why it cannot be started
+     */
+    public GameResponse startSession(String name, Integer targetScore) {
+        if (targetScore == null || !validator.validateTargetScore(targetScore)) {
+            return GameResponse.error(HttpStatus.BAD_REQUEST, "Wrong target score!");
+        }
+        PracticeSession session = new PracticeSession(name, targetScore);
+        if (sessions.asMap().putIfAbsent(name, session) != null) {
+            return GameResponse.error(HttpStatus.BAD_REQUEST, "You have an unfinished practice!");
+        }
+        return GameResponse.ok(session.toMap());
+    }
+
+    /**
+     * Applies a visit to the player's session.
+     * @param name - name of the player
+     * @param dartsThrowForm - the form containing the thrown darts
+     * @return - the session after the visit, or the reason why the throws could not be applied; a visit racing the
+     * end of the session is either in its summary or answered with NOT_FOUND
+     */
+    public GameResponse postThrows(String name, DartsThrowForm dartsThrowForm) {
+        PracticeSession session = sessions.getIfPresent(name);
+        if (session == null) {
+            return GameResponse.error(HttpStatus.NOT_FOUND, "There is no practice session!");
+        }
+        //Validated and applied under the lock of the session, so concurrent visits can't both see the same score
+        synchronized (session) {
+            if (session.isFinished()) {
+                return GameResponse.error(HttpStatus.NOT_FOUND, "There is no practice session!");
+            }
+            ThrownDart[] thrownDarts = validator.validateThrows(session.getRemaining(), dartsThrowForm);
+            if (thrownDarts.length == 0 || session.throwVisit(Visit.of(thrownDarts)) == VisitOutcome.REJECTED) {
+                return GameResponse.error(HttpStatus.BAD_REQUEST, "Wrong throws!");
+            }
+            return GameResponse.ok(session.toMap());
+        }
+    }
+
+    /**
+     * @param name - name of the player
+     * @return - the player's running session, or NOT_FOUND
+     */
+    public GameResponse getSession(String name) {
+        PracticeSession session = sessions.getIfPresent(name);
+        if (session == null) {
+            return GameResponse.error(HttpStatus.NOT_FOUND, "There is no practice session!");
+        }
+        return GameResponse.ok(session.toMap());
+    }
+
+    /**
+     * Ends the player's session and stores its summary.
+     * @param name - name of the player
+     * @return - the stored summary, or NOT_FOUND
+     */
+    public GameResponse finishSession(String name) {
+        PracticeSession session = sessions.asMap().remove(name);
+        if (session == null) {
+            return GameResponse.error(HttpStatus.NOT_FOUND, "There is no practice session!");
+        }
+        return GameResponse.ok(saveSummary(session).toMap());
+    }
+
+    /**
+     * @param name - name of the player
+     * @param limit - maximum number of summaries
+     * @return - summaries of the player's latest finished sessions, newest first
+     */
+    public List<Map> getSummaries(String name, int limit) {
+        return practiceSummaryRepository.findLatestByPlayer(name, PageRequest.of(0, limit)).stream()
+                .map(PracticeSummary::toMap)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Keeps the summaries of the sessions running at shutdown.
+     */
+    @PreDestroy
+    public void saveRunningSessions() {
+        for (PracticeSession session : sessions.asMap().values()) {
+            try {
+                saveSummary(session);
+            } catch (RuntimeException e) {
+                //Already logged, the other sessions are still saved
+            }
+        }
+    }
+
+    private PracticeSummary saveSummary(PracticeSession session) {
+        PracticeSummary summary = session.finish(Instant.now());
+        playerDirectory.register(summary.getPlayer());
+        try {
+            return practiceSummaryRepository.save(summary);
+        } catch (RuntimeException e) {
+            log.error("Summary of the practice of {} could not be saved", summary.getPlayer(), e);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package dartsgame.practice;
+
+import dartsgame.game.rules.GamePhase;
+import dartsgame.game.rules.Visit;
+import dartsgame.game.rules.VisitOutcome;
+import dartsgame.game.rules.X01Rules;
+import dartsgame.game.rules.X01State;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A solo practice that only lives in memory. Visits follow the x01 rules; after a checkout the next leg starts
+ * from the target score again. Only the running totals are kept, they become the summary when the session ends.
+ */
+public class PracticeSession {
+
+    private final String player;
+    private final int targetScore;
+    private final Instant startedAt;
+    private int remaining;
+    private int visits;
+    private int darts;
+    private int points;
+    private int busts;
+    private int checkouts;
+    private int highestCheckout;
+    private boolean finished;
+
+    public PracticeSession(String player, int targetScore) {
+        this.player = player;
+        this.targetScore = targetScore;
+        this.remaining = targetScore;
+        this.startedAt = Instant.now();
+    }
+
+    public synchronized int getRemaining() {
+        return remaining;
+    }
+
+    /**
+     * Applies a visit to the current leg.
+     * @param visit - the thrown darts
+     * @return - outcome of the visit, REJECTED if it is not valid for the remaining score or the session is finished
+     */
+    public synchronized VisitOutcome throwVisit(Visit visit) {
+        if (finished) {
+            return VisitOutcome.REJECTED;
+        }
+        X01State state = X01Rules.apply(
+                new X01State(remaining, remaining, X01State.PLAYER_ONE, GamePhase.PLAYING, null), visit);
+        VisitOutcome outcome = state.getOutcome();
+        if (outcome == VisitOutcome.REJECTED) {
+            return outcome;
+        }
+        visits++;
+        for (int i = 0; i < Visit.DARTS && !visit.isNone(i); i++) {
+            darts++;
+        }
+        if (outcome == VisitOutcome.CHECKOUT) {
+            points += remaining;
+            checkouts++;
+            highestCheckout = Math.max(highestCheckout, remaining);
+            remaining = targetScore;
+        } else if (outcome == VisitOutcome.BUST) {
+            busts++;
+        } else {
+            points += remaining - state.getPlayerOneScore();
+            remaining = state.getPlayerOneScore();
+        }
+        return outcome;
+    }
+
+    /**
+     * @return - true once the summary was taken, no visit is applied after that
+     */
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Ends the session, the visits applied until now are all in the summary.
+     * @param finishedAt - end of the session
+     * @return - totals of the session to persist
+     */
+    public synchronized PracticeSummary finish(Instant finishedAt) {
+        finished = true;
+        return new PracticeSummary(null, player, targetScore, visits, darts, points, busts, checkouts,
+                highestCheckout, startedAt, finishedAt);
+    }
+
+    public synchronized Map toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("player", player);
+        map.put("targetScore", targetScore);
+        map.put("remaining", remaining);
+        map.put("visits", visits);
+        map.put("darts", darts);
+        map.put("threeDartAverage", PracticeSummary.threeDartAverage(points, darts));
+        map.put("busts", busts);
+        map.put("checkouts", checkouts);
+        map.put("highestCheckout", highestCheckout);
+        return map;
+    }
+}
@@ -0,0 +1,78 @@
+package dartsgame.practice;
+
+import dartsgame.game.persistance.PlayerIdConverter;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Entity
+@Table(name = "practice_summary")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PracticeSummary {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "summary_id")
+    private Long summaryId;
+
+    @Convert(converter = PlayerIdConverter.class)
+    @Column(name = "player_id")
+    private String player;
+
+    @Column(name = "target_score")
+    private Integer targetScore;
+
+    @Column(name = "visits")
+    private Integer visits;
+
+    @Column(name = "darts")
+    private Integer darts;
+
+    @Column(name = "points")
+    private Integer points;
+
+    @Column(name = "busts")
+    private Integer busts;
+
+    @Column(name = "checkouts")
+    private Integer checkouts;
+
+    @Column(name = "highest_checkout")
+    private Integer highestCheckout;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    /**
+     * @return - average points of three darts, rounded to two decimals
+     */
+    public static double threeDartAverage(int points, int darts) {
+        return darts == 0 ? 0 : Math.round(points * 300.0 / darts) / 100.0;
+    }
+
+    public Map toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("player", player);
+        map.put("targetScore", targetScore);
+        map.put("visits", visits);
+        map.put("darts", darts);
+        map.put("threeDartAverage", threeDartAverage(points, darts));
+        map.put("busts", busts);
+        map.put("checkouts", checkouts);
+        map.put("highestCheckout", highestCheckout);
+        map.put("startedAt", startedAt.toString());
+        map.put("durationSeconds", Duration.between(startedAt, finishedAt).getSeconds());
+        return map;
+    }
+}
@@ -0,0 +1,15 @@
+package dartsgame.practice;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PracticeSummaryRepository extends JpaRepository<PracticeSummary, Long> {
+
+    @Query("SELECT s FROM PracticeSummary s WHERE s.player = ?1 ORDER BY s.summaryId DESC")
+    List<PracticeSummary> findLatestByPlayer(String player, Pageable pageable);
+}
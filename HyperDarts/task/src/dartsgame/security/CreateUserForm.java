@@ -0,0 +1,43 @@
+package dartsgame.security;
+
+/**
+ * Object of body for /api/admin/users API
+ */
+public class CreateUserForm {
+    private String email;
+    private String password;
+    private String role;
+
+    public CreateUserForm() {
+    }
+
+    public CreateUserForm(String email, String password, String role) {
+        this.email = email;
+        this.password = password;
+        this.role = role;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+}
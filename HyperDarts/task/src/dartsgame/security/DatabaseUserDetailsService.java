@@ -0,0 +1,96 @@
+package dartsgame.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Users of the authorization server, stored in the user_account table. Users with their roles are cached for a short
+ * time, so issuing and refreshing tokens does not read the table every time; a role change shows up once the entry
+ * expired. Passwords stored with an outdated encoding are stored as bcrypt after the next successful login.
+ */
+@Service
+public class DatabaseUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+
+    public static final List<String> ROLES = Arrays.asList("GAMER", "ADMIN", "REFEREE");
+
+    private final UserAccountRepository userAccountRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final Cache<String, UserDetails> users;
+
+    public DatabaseUserDetailsService(UserAccountRepository userAccountRepository,
+                                      PasswordEncoder passwordEncoder,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${user-store.user-cache-ttl:PT1M}") Duration ttl) {
+        this.userAccountRepository = userAccountRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.users = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(100_000)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "userDetails");
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) {
+        UserDetails user = users.get(username, this::load);
+        if (user == null) {
+            throw new UsernameNotFoundException(username);
+        }
+        //The authentication manager erases the password of the user it returns, the cached one has to stay intact
+        return User.withUserDetails(user).build();
+    }
+
+    private UserDetails load(String email) {
+        return userAccountRepository.findByEmail(email)
+                .map(account -> User.withUsername(account.getEmail())
+                        .password(account.getPassword())
+                        .roles(account.getRole())
+                        .disabled(!account.getEnabled())
+                        .build())
+                .orElse(null);
+    }
+
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userAccountRepository.findByEmail(user.getUsername()).ifPresent(account -> {
+            account.setPassword(newPassword);
+            userAccountRepository.save(account);
+        });
+        users.invalidate(user.getUsername());
+        return User.withUserDetails(user).password(newPassword).build();
+    }
+
+    /**
+     * Adds a user.
+     * @param email - login of the user
+     * @param rawPassword - password of the user, stored as bcrypt
+     * @param role - one of {@link #ROLES}
+     * @return - false if a user with this email already exists
+     */
+    @Transactional
+    public boolean createUser(String email, String rawPassword, String role) {
+        if (userAccountRepository.findByEmail(email).isPresent()) {
+            return false;
+        }
+        userAccountRepository.save(new UserAccount(null, email, passwordEncoder.encode(rawPassword), role, true));
+        users.invalidate(email);
+        return true;
+    }
+}
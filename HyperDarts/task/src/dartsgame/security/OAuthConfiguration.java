@@ -16,6 +16,7 @@ import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenCo
 public class OAuthConfiguration extends AuthorizationServerConfigurerAdapter {
 
     private final AuthenticationManager authenticationManager;
+    private final DatabaseUserDetailsService userDetailsService;
     private final String clientId;
     private final String clientSecret;
     private final String jwtSigningKey;
@@ -23,9 +24,11 @@ public class OAuthConfiguration extends AuthorizationServerConfigurerAdapter {
     private final String[] authorizedGrantTypes;
     private final int refreshTokenValiditySeconds;
 
-    public OAuthConfiguration(AuthenticationConfiguration authenticationConfiguration) throws Exception {
+    public OAuthConfiguration(AuthenticationConfiguration authenticationConfiguration,
+                              DatabaseUserDetailsService userDetailsService) throws Exception {
         this.authenticationManager =
                 authenticationConfiguration.getAuthenticationManager();
+        this.userDetailsService = userDetailsService;
         this.clientId = "hyperdarts";
         this.clientSecret = "secret";
         this.accessTokenValiditySeconds = 3600;
@@ -65,7 +68,9 @@ public class OAuthConfiguration extends AuthorizationServerConfigurerAdapter {
     public void configure(final AuthorizationServerEndpointsConfigurer endpoints) {
         endpoints
                 .accessTokenConverter(accessTokenConverter())
-                .authenticationManager(authenticationManager);
+                .authenticationManager(authenticationManager)
+                //Refreshing a token reloads the user, so a disabled user or a changed role takes effect
+                .userDetailsService(userDetailsService);
     }
 
     @Bean
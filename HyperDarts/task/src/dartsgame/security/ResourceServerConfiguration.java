@@ -45,6 +45,11 @@ public class ResourceServerConfiguration extends ResourceServerConfigurerAdapter
         http
                 .authorizeRequests()
                 .antMatchers("/actuator/shutdown").permitAll() // needs to run test
+                //Only admins manage accounts, a referee could otherwise create an admin
+                .antMatchers("/api/admin/users/**")
+                .access("#oauth2.hasScope('update') and hasRole('ROLE_ADMIN')")
+                .antMatchers("/api/admin/**")
+                .access("(#oauth2.hasScope('update') and (hasRole('ROLE_ADMIN') or hasRole('ROLE_REFEREE')))")
                 .antMatchers(HttpMethod.GET, "/**")
                 .access("(#oauth2.hasScope('read') and hasRole('ROLE_GAMER') or hasRole('ROLE_REFEREE'))")
                 .antMatchers(HttpMethod.POST, "/**")
@@ -0,0 +1,33 @@
+package dartsgame.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+@Entity
+@Table(name = "user_account")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserAccount {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "email")
+    private String email;
+
+    //Encoded with its id prefix, e.g. {bcrypt}
+    @Column(name = "password")
+    private String password;
+
+    @Column(name = "role")
+    private String role;
+
+    @Column(name = "enabled")
+    private Boolean enabled;
+}
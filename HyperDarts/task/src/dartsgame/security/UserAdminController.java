@@ -0,0 +1,48 @@
+package dartsgame.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/users")
+public class UserAdminController {
+
+    private static final int MIN_PASSWORD_LENGTH = 8;
+
+    private final DatabaseUserDetailsService userDetailsService;
+
+    @Autowired
+    public UserAdminController(DatabaseUserDetailsService userDetailsService) {
+        this.userDetailsService = userDetailsService;
+    }
+
+    /**
+     * Onboards a user who can then get tokens through the password grant.
+     * @param form - email, password (at least 8 characters) and role (GAMER, ADMIN or REFEREE) of the user
+     * @return - email and role of the new user, BAD_REQUEST if the form is invalid or CONFLICT if the email is taken
+     */
+    @PostMapping
+    public ResponseEntity<Map> createUser(@RequestBody CreateUserForm form) {
+        if (form.getEmail() == null || !form.getEmail().contains("@")
+                || form.getPassword() == null || form.getPassword().length() < MIN_PASSWORD_LENGTH
+                || !DatabaseUserDetailsService.ROLES.contains(form.getRole())) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong user!"));
+        }
+        if (!userDetailsService.createUser(form.getEmail(), form.getPassword(), form.getRole())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Collections.singletonMap("result", "User already exists!"));
+        }
+        Map<String, String> user = new LinkedHashMap<>();
+        user.put("email", form.getEmail());
+        user.put("role", form.getRole());
+        return ResponseEntity.ok(user);
+    }
+}
@@ -0,0 +1,90 @@
+package dartsgame.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+/**
+ * Encodes new passwords with bcrypt and checks stored passwords by the id prefix of their encoding. A bcrypt check
+ * costs tens of milliseconds of CPU, which makes the password grant CPU-bound when many players log in at once,
+ * so successful checks are remembered for a short time.
+ * <p>
+ * Only successes are remembered, under an HMAC of the stored hash and the presented password with a key that never
+ * leaves the process: the cache holds no password, a wrong password is always checked with bcrypt, and a changed
+ * password no longer matches any remembered check.
+ */
+@Component
+public class VerificationCachingPasswordEncoder implements PasswordEncoder {
+
+    private static final String HMAC = "HmacSHA256";
+
+    private final PasswordEncoder delegate = PasswordEncoderFactories.createDelegatingPasswordEncoder();
+    private final SecretKeySpec key;
+    private final Cache<String, Boolean> verified;
+
+    public VerificationCachingPasswordEncoder(MeterRegistry meterRegistry,
+                                              @Value("${user-store.verification-cache-ttl:PT5M}") Duration ttl,
+                                              @Value("${user-store.verification-cache-size:100000}") long size) {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        this.key = new SecretKeySpec(secret, HMAC);
+        this.verified = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(size)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "passwordVerifications");
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return delegate.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (rawPassword == null || encodedPassword == null) {
+            return false;
+        }
+        String check = check(rawPassword, encodedPassword);
+        if (verified.getIfPresent(check) != null) {
+            return true;
+        }
+        boolean matches = delegate.matches(rawPassword, encodedPassword);
+        if (matches) {
+            verified.put(check, Boolean.TRUE);
+        }
+        return matches;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    private String check(CharSequence rawPassword, String encodedPassword) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(key);
+            mac.update(encodedPassword.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(rawPassword.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(mac.doFinal());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(HMAC + " is not available", e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package dartsgame.simulation;
+
+import java.util.SplittableRandom;
+
+/**
+ * Decides where a simulated dart lands for a given remaining score.
+ */
+public interface AccuracyModel {
+
+    /**
+     * Throws one dart.
+     * @param remaining - score of the thrower before this dart, always greater than 1
+     * @param random - source of randomness of the calling worker
+     * @return - the dart packed by {@link dartsgame.game.rules.Visit#dart(int, int)}
+     */
+    int throwDart(int remaining, SplittableRandom random);
+}
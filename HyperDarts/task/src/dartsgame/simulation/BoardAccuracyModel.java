@@ -0,0 +1,73 @@
+package dartsgame.simulation;
+
+import dartsgame.game.rules.Visit;
+
+import java.util.SplittableRandom;
+
+/**
+ * A player who aims like a club player (treble 20 for scoring, a double to finish, a single to set up a double)
+ * and hits the aimed sector with a fixed probability. A missed dart lands in the single of the aimed segment,
+ * a neighbouring single or, when aiming at a double, outside the board.
+ */
+public class BoardAccuracyModel implements AccuracyModel {
+
+    private static final int[] BOARD_ORDER = {20, 1, 18, 4, 13, 6, 10, 15, 2, 17, 3, 19, 7, 16, 8, 11, 14, 9, 12, 5};
+    private static final int[] POSITION = new int[21];
+
+    static {
+        for (int i = 0; i < BOARD_ORDER.length; i++) {
+            POSITION[BOARD_ORDER[i]] = i;
+        }
+    }
+
+    private final double accuracy;
+
+    /**
+     * @param accuracy - probability of hitting the aimed sector, between 0 and 1
+     */
+    public BoardAccuracyModel(double accuracy) {
+        if (accuracy < 0 || accuracy > 1) {
+            throw new IllegalArgumentException("Accuracy must be between 0 and 1");
+        }
+        this.accuracy = accuracy;
+    }
+
+    @Override
+    public int throwDart(int remaining, SplittableRandom random) {
+        int aimed = aim(remaining);
+        if (random.nextDouble() < accuracy) {
+            return aimed;
+        }
+        return miss(aimed, random);
+    }
+
+    private static int aim(int remaining) {
+        if (remaining == 50) {
+            return Visit.dart(2, 25);
+        }
+        if (remaining <= 40) {
+            return remaining % 2 == 0 ? Visit.dart(2, remaining / 2) : Visit.dart(1, 1);
+        }
+        if (remaining <= 60) {
+            return Visit.dart(1, remaining - 40);
+        }
+        return Visit.dart(3, 20);
+    }
+
+    private static int miss(int aimed, SplittableRandom random) {
+        int multiplicator = Visit.dartMultiplicator(aimed);
+        int score = Visit.dartScore(aimed);
+        if (score == 25) {
+            return random.nextBoolean() ? Visit.dart(1, 25) : Visit.dart(1, BOARD_ORDER[random.nextInt(20)]);
+        }
+        int roll = random.nextInt(3);
+        if (roll == 0 && multiplicator == 2) {
+            return Visit.dart(1, 0);
+        }
+        if (roll == 0 || multiplicator != 1 && roll == 1) {
+            return Visit.dart(1, score);
+        }
+        int neighbour = (POSITION[score] + (random.nextBoolean() ? 1 : 19)) % 20;
+        return Visit.dart(1, BOARD_ORDER[neighbour]);
+    }
+}
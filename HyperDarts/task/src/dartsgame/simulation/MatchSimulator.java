@@ -0,0 +1,79 @@
+package dartsgame.simulation;
+
+import dartsgame.game.rules.Visit;
+import dartsgame.game.rules.X01Rules;
+import dartsgame.game.rules.X01State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+
+/**
+ * Plays synthetic x01 games with the same rules kernel as GameService.applyThrows.
+ * Games are split into fixed-size chunks, each with its own seed derived from the config seed, so the report does
+ * not depend on the number of workers or on their scheduling.
+ */
+public class MatchSimulator {
+    private static final int GAMES_PER_CHUNK = 10_000;
+
+    /**
+     * Runs a simulation on a dedicated fork/join pool.
+     * @param config - parameters of the run
+     * @return - the merged report of every simulated game
+     */
+    public SimulationReport run(SimulationConfig config) {
+        long start = System.currentTimeMillis();
+        long chunks = (config.getGames() + GAMES_PER_CHUNK - 1) / GAMES_PER_CHUNK;
+        ForkJoinPool pool = new ForkJoinPool(config.getParallelism());
+        try {
+            SimulationStats stats = pool.submit(() -> LongStream.range(0, chunks)
+                    .parallel()
+                    .mapToObj(chunk -> simulateChunk(config, chunk))
+                    .collect(SimulationStats::new, SimulationStats::merge, SimulationStats::merge)).get();
+            return new SimulationReport(stats, System.currentTimeMillis() - start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulation was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private SimulationStats simulateChunk(SimulationConfig config, long chunk) {
+        SplittableRandom random = new SplittableRandom(config.getSeed() + chunk * 0x9E3779B97F4A7C15L);
+        long games = Math.min(GAMES_PER_CHUNK, config.getGames() - chunk * GAMES_PER_CHUNK);
+        SimulationStats stats = new SimulationStats();
+        for (long i = 0; i < games; i++) {
+            simulateGame(config, random, stats);
+        }
+        return stats;
+    }
+
+    private void simulateGame(SimulationConfig config, SplittableRandom random, SimulationStats stats) {
+        X01State state = X01State.start(config.getTargetScore());
+        int visits = 0;
+        while (!state.isFinished() && visits < SimulationStats.MAX_VISITS) {
+            AccuracyModel model = state.getTurn() == X01State.PLAYER_ONE ? config.getPlayerOne() : config.getPlayerTwo();
+            int remainingBefore = state.getScoreOfTurn();
+            state = X01Rules.apply(state, throwVisit(model, remainingBefore, random));
+            stats.recordVisit(remainingBefore, state.getOutcome());
+            visits++;
+        }
+        stats.recordGame(state, visits);
+    }
+
+    /**
+     * Throws darts until three are thrown or the remaining score drops to 1 or below, the rest are "none".
+     */
+    public static Visit throwVisit(AccuracyModel model, int remaining, SplittableRandom random) {
+        int[] darts = new int[Visit.DARTS];
+        for (int i = 0; i < Visit.DARTS && remaining > 1; i++) {
+            darts[i] = model.throwDart(remaining, random);
+            remaining -= Visit.dartMultiplicator(darts[i]) * Visit.dartScore(darts[i]);
+        }
+        return Visit.ofDarts(darts[0], darts[1], darts[2]);
+    }
+}
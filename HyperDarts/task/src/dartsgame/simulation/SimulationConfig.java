@@ -0,0 +1,51 @@
+package dartsgame.simulation;
+
+/**
+ * Parameters of a simulation run. Runs with the same config (except parallelism) produce the same report.
+ */
+public class SimulationConfig {
+    private final int targetScore;
+    private final long games;
+    private final long seed;
+    private final AccuracyModel playerOne;
+    private final AccuracyModel playerTwo;
+    private final int parallelism;
+
+    public SimulationConfig(int targetScore,
+                            long games,
+                            long seed,
+                            AccuracyModel playerOne,
+                            AccuracyModel playerTwo,
+                            int parallelism) {
+        this.targetScore = targetScore;
+        this.games = games;
+        this.seed = seed;
+        this.playerOne = playerOne;
+        this.playerTwo = playerTwo;
+        this.parallelism = parallelism;
+    }
+
+    public int getTargetScore() {
+        return targetScore;
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public AccuracyModel getPlayerOne() {
+        return playerOne;
+    }
+
+    public AccuracyModel getPlayerTwo() {
+        return playerTwo;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+}
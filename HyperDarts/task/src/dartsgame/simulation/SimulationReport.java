@@ -0,0 +1,99 @@
+package dartsgame.simulation;
+
+/**
+ * Distribution of visits per game and checkout figures of a finished simulation run.
+ */
+public class SimulationReport {
+    private final long[] visitsPerGame;
+    private final long games;
+    private final long unfinishedGames;
+    private final long playerOneWins;
+    private final long visits;
+    private final long busts;
+    private final long visitsInCheckoutRange;
+    private final long checkouts;
+    private final long elapsedMillis;
+
+    SimulationReport(SimulationStats stats, long elapsedMillis) {
+        this.visitsPerGame = stats.visitsPerGame.clone();
+        this.games = stats.games;
+        this.unfinishedGames = stats.unfinishedGames;
+        this.playerOneWins = stats.playerOneWins;
+        this.visits = stats.visits;
+        this.busts = stats.busts;
+        this.visitsInCheckoutRange = stats.visitsInCheckoutRange;
+        this.checkouts = stats.checkouts;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return - number of games by visit count, the last bucket holds every game that hit the visit limit
+     */
+    public long[] getVisitsPerGame() {
+        return visitsPerGame.clone();
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getUnfinishedGames() {
+        return unfinishedGames;
+    }
+
+    public long getPlayerOneWins() {
+        return playerOneWins;
+    }
+
+    public long getVisits() {
+        return visits;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getMeanVisitsPerGame() {
+        return games == 0 ? 0 : (double) visits / games;
+    }
+
+    /**
+     * @param percentile - between 0 and 100
+     * @return - the smallest visit count that covers the given percentage of games
+     */
+    public int getVisitsPerGamePercentile(double percentile) {
+        long threshold = (long) Math.ceil(games * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < visitsPerGame.length; i++) {
+            seen += visitsPerGame[i];
+            if (seen >= threshold && seen > 0) {
+                return i;
+            }
+        }
+        return visitsPerGame.length - 1;
+    }
+
+    /**
+     * @return - share of visits started at 170 or below that ended with a checkout
+     */
+    public double getCheckoutRate() {
+        return visitsInCheckoutRange == 0 ? 0 : (double) checkouts / visitsInCheckoutRange;
+    }
+
+    public double getBustRate() {
+        return visits == 0 ? 0 : (double) busts / visits;
+    }
+
+    public double getVisitsPerSecond() {
+        return elapsedMillis == 0 ? visits : visits * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("games=%d unfinished=%d playerOneWins=%d visits=%d visitsPerGame[mean=%.2f p50=%d p90=%d p99=%d] "
+                        + "checkoutRate=%.4f bustRate=%.4f elapsed=%dms visitsPerSecond=%.0f",
+                games, unfinishedGames, playerOneWins, visits, getMeanVisitsPerGame(),
+                getVisitsPerGamePercentile(50), getVisitsPerGamePercentile(90), getVisitsPerGamePercentile(99),
+                getCheckoutRate(), getBustRate(), elapsedMillis, getVisitsPerSecond());
+    }
+}
@@ -0,0 +1,41 @@
+package dartsgame.simulation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs a simulation at startup when started with --simulation.games=N and logs its report.
+ */
+@Component
+@ConditionalOnProperty(name = "simulation.games")
+public class SimulationRunner implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SimulationRunner.class);
+
+    private final SimulationConfig config;
+
+    public SimulationRunner(@Value("${simulation.games}") long games,
+                            @Value("${simulation.target-score:501}") int targetScore,
+                            @Value("${simulation.seed:42}") long seed,
+                            @Value("${simulation.player-one-accuracy:0.4}") double playerOneAccuracy,
+                            @Value("${simulation.player-two-accuracy:0.4}") double playerTwoAccuracy,
+                            @Value("${simulation.parallelism:0}") int parallelism) {
+        this.config = new SimulationConfig(
+                targetScore,
+                games,
+                seed,
+                new BoardAccuracyModel(playerOneAccuracy),
+                new BoardAccuracyModel(playerTwoAccuracy),
+                parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Override
+    public void run(String... args) {
+        log.info("Simulating {} games of {}", config.getGames(), config.getTargetScore());
+        log.info("Simulation finished: {}", new MatchSimulator().run(config));
+    }
+}
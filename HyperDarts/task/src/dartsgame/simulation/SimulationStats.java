@@ -0,0 +1,57 @@
+package dartsgame.simulation;
+
+import dartsgame.game.rules.VisitOutcome;
+import dartsgame.game.rules.X01State;
+
+/**
+ * Counters of one simulation worker. Workers never share an instance, their results are merged at the end.
+ */
+class SimulationStats {
+    static final int MAX_VISITS = 500;
+    static final int CHECKOUT_RANGE = 170;
+
+    final long[] visitsPerGame = new long[MAX_VISITS + 1];
+    long games;
+    long unfinishedGames;
+    long playerOneWins;
+    long visits;
+    long busts;
+    long visitsInCheckoutRange;
+    long checkouts;
+
+    void recordVisit(int remainingBefore, VisitOutcome outcome) {
+        visits++;
+        if (remainingBefore <= CHECKOUT_RANGE) {
+            visitsInCheckoutRange++;
+        }
+        if (outcome == VisitOutcome.BUST) {
+            busts++;
+        } else if (outcome == VisitOutcome.CHECKOUT) {
+            checkouts++;
+        }
+    }
+
+    void recordGame(X01State finalState, int gameVisits) {
+        games++;
+        visitsPerGame[Math.min(gameVisits, MAX_VISITS)]++;
+        if (!finalState.isFinished()) {
+            unfinishedGames++;
+        } else if (finalState.getTurn() == X01State.PLAYER_ONE) {
+            playerOneWins++;
+        }
+    }
+
+    SimulationStats merge(SimulationStats other) {
+        for (int i = 0; i < visitsPerGame.length; i++) {
+            visitsPerGame[i] += other.visitsPerGame[i];
+        }
+        games += other.games;
+        unfinishedGames += other.unfinishedGames;
+        playerOneWins += other.playerOneWins;
+        visits += other.visits;
+        busts += other.busts;
+        visitsInCheckoutRange += other.visitsInCheckoutRange;
+        checkouts += other.checkouts;
+        return this;
+    }
+}
@@ -0,0 +1,70 @@
+package dartsgame.sqlbudget;
+
+/**
+ * Statements and entity loads of the request handled by the current thread.
+ */
+class RequestStatements {
+
+    private static final ThreadLocal<RequestStatements> CURRENT = new ThreadLocal<>();
+
+    private final String endpoint;
+    private final SqlBudget budget;
+    private final boolean enforced;
+    private int statements;
+    private int entityLoads;
+
+    private RequestStatements(String endpoint, SqlBudget budget, boolean enforced) {
+        this.endpoint = endpoint;
+        this.budget = budget;
+        this.enforced = enforced;
+    }
+
+    static RequestStatements start(String endpoint, SqlBudget budget, boolean enforced) {
+        RequestStatements requestStatements = new RequestStatements(endpoint, budget, enforced);
+        CURRENT.set(requestStatements);
+        return requestStatements;
+    }
+
+    static RequestStatements current() {
+        return CURRENT.get();
+    }
+
+    static void finish() {
+        CURRENT.remove();
+    }
+
+    void statementExecuted() {
+        statements++;
+        if (enforced && isOver(statements, budget == null ? SqlBudget.UNLIMITED : budget.statements())) {
+            throw new SqlBudgetExceededException(endpoint + " exceeded its budget of " + budget.statements() + " statements");
+        }
+    }
+
+    void entityLoaded() {
+        entityLoads++;
+        if (enforced && isOver(entityLoads, budget == null ? SqlBudget.UNLIMITED : budget.entityLoads())) {
+            throw new SqlBudgetExceededException(endpoint + " exceeded its budget of " + budget.entityLoads() + " entity loads");
+        }
+    }
+
+    boolean isOverBudget() {
+        return budget != null
+                && (isOver(statements, budget.statements()) || isOver(entityLoads, budget.entityLoads()));
+    }
+
+    private static boolean isOver(int count, int limit) {
+        return limit != SqlBudget.UNLIMITED && count > limit;
+    }
+
+    String getEndpoint() {
+        return endpoint;
+    }
+
+    int getStatements() {
+        return statements;
+    }
+
+    int getEntityLoads() {
+        return entityLoads;
+    }
+}
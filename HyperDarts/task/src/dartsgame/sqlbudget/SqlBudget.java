@@ -0,0 +1,27 @@
+package dartsgame.sqlbudget;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares how many SQL statements and entity loads an endpoint may need for one request.
+ * Checked by {@link SqlBudgetInterceptor}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface SqlBudget {
+
+    int UNLIMITED = -1;
+
+    /**
+     * @return - maximum number of statements sent through Hibernate
+     */
+    int statements();
+
+    /**
+     * @return - maximum number of entities loaded from result sets, UNLIMITED for endpoints returning lists
+     */
+    int entityLoads() default UNLIMITED;
+}
@@ -0,0 +1,44 @@
+package dartsgame.sqlbudget;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Wires the statement and entity load counting into Hibernate and Spring MVC. Set sql-budget.enforced=true to
+ * make requests fail on the first statement over their endpoint's budget, e.g. when running the API tests.
+ */
+@Configuration
+public class SqlBudgetConfiguration implements WebMvcConfigurer {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enforced;
+
+    public SqlBudgetConfiguration(EntityManagerFactory entityManagerFactory,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${sql-budget.enforced:false}") boolean enforced) {
+        this.meterRegistry = meterRegistry;
+        this.enforced = enforced;
+        entityManagerFactory.unwrap(SessionFactoryImpl.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_LOAD, event -> {
+                    RequestStatements requestStatements = RequestStatements.current();
+                    if (requestStatements != null) {
+                        requestStatements.entityLoaded();
+                    }
+                });
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new SqlBudgetInterceptor(meterRegistry, enforced));
+    }
+}
@@ -0,0 +1,11 @@
+package dartsgame.sqlbudget;
+
+/**
+ * Thrown by the statement that goes over the budget of an endpoint when the budgets are enforced.
+ */
+public class SqlBudgetExceededException extends RuntimeException {
+
+    public SqlBudgetExceededException(String message) {
+        super(message);
+    }
+}
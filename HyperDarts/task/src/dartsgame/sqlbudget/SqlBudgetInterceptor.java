@@ -0,0 +1,69 @@
+package dartsgame.sqlbudget;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Counts the statements and entity loads of every controller request and publishes them as the
+ * "http.sql.statements" and "http.sql.entity-loads" metrics per endpoint. A request over the {@link SqlBudget} of
+ * its endpoint is counted in "http.sql.budget.exceeded" and logged; when the budgets are enforced the statement
+ * going over the budget fails instead, which makes the request fail.
+ * <p>
+ * A suspended long-poll or stream request is finished on another thread, only the statements of its first dispatch
+ * are counted.
+ */
+public class SqlBudgetInterceptor implements AsyncHandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlBudgetInterceptor.class);
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enforced;
+
+    public SqlBudgetInterceptor(MeterRegistry meterRegistry, boolean enforced) {
+        this.meterRegistry = meterRegistry;
+        this.enforced = enforced;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod handlerMethod = (HandlerMethod) handler;
+            String endpoint = handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+            RequestStatements.start(endpoint, handlerMethod.getMethodAnnotation(SqlBudget.class), enforced);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        //afterCompletion() is not called for the dispatch that suspended the request
+        afterCompletion(request, response, handler, null);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestStatements requestStatements = RequestStatements.current();
+        if (requestStatements == null) {
+            return;
+        }
+        RequestStatements.finish();
+
+        String endpoint = requestStatements.getEndpoint();
+        DistributionSummary.builder("http.sql.statements").tag("endpoint", endpoint)
+                .register(meterRegistry).record(requestStatements.getStatements());
+        DistributionSummary.builder("http.sql.entity-loads").tag("endpoint", endpoint)
+                .register(meterRegistry).record(requestStatements.getEntityLoads());
+        if (requestStatements.isOverBudget()) {
+            meterRegistry.counter("http.sql.budget.exceeded", "endpoint", endpoint).increment();
+            log.warn("{} used {} statements and {} entity loads, over its SQL budget",
+                    endpoint, requestStatements.getStatements(), requestStatements.getEntityLoads());
+        }
+    }
+}
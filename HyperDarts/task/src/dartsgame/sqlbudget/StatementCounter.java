@@ -0,0 +1,30 @@
+package dartsgame.sqlbudget;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts every statement Hibernate prepares for the current request. Hibernate creates this class itself
+ * (hibernate.session_factory.statement_inspector), so the counts are kept in {@link RequestStatements}. Statements
+ * sent through plain JDBC on behalf of a request are counted with {@link #countJdbcStatement()}.
+ */
+public class StatementCounter implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        RequestStatements requestStatements = RequestStatements.current();
+        if (requestStatements != null) {
+            requestStatements.statementExecuted();
+        }
+        return sql;
+    }
+
+    /**
+     * Counts a statement sent without Hibernate, e.g. through a JdbcTemplate.
+     */
+    public static void countJdbcStatement() {
+        RequestStatements requestStatements = RequestStatements.current();
+        if (requestStatements != null) {
+            requestStatements.statementExecuted();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package dartsgame.telemetry;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Flight Recorder event of a game operation: its duration, the game, the length of the game's history and the
+ * bytes allocated by the thread while it ran, nested operations included. Recorded by any JFR recording that
+ * enables it and by {@link GameOperationSummaries}.
+ * <pre>
+ *     GameOperationEvent event = GameOperationEvent.start(GameOperationEvent.APPLY_THROWS);
+ *     try {
+ *         ...
+ *     } finally {
+ *         event.finish(gameId, historyLength);
+ *     }
+ * </pre>
+ * When the event is not enabled both calls return at once and nothing is measured.
+ */
+@Name(GameOperationEvent.NAME)
+@Label("Game Operation")
+@Category({"HyperDarts", "Game"})
+@StackTrace(false)
+public class GameOperationEvent extends Event {
+
+    public static final String NAME = "dartsgame.GameOperation";
+    public static final String APPLY_THROWS = "applyThrows";
+    public static final String ADD_GAME_STATE = "addGameState";
+    public static final String REVERT = "revert";
+    public static final String VALIDATE_THROWS = "validateThrows";
+    public static final String TO_MAP = "toMap";
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Game Id")
+    long gameId;
+
+    @Label("History Length")
+    @Description("States in the history of the game, 0 if the operation does not know it")
+    int historyLength;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocated;
+
+    private transient long allocatedAtStart;
+
+    /**
+     * Starts timing an operation on the current thread.
+     * @param operation - name of the operation, one of the constants of this class
+     * @return - the started event
+     */
+    public static GameOperationEvent start(String operation) {
+        GameOperationEvent event = new GameOperationEvent();
+        if (event.isEnabled()) {
+            event.operation = operation;
+            event.allocatedAtStart = THREADS.getCurrentThreadAllocatedBytes();
+            event.begin();
+        }
+        return event;
+    }
+
+    /**
+     * Ends the operation and commits the event if it passes the threshold of the recordings.
+     * @param gameId - unique identifier of the game, null if there is none
+     * @param historyLength - states in the history of the game, 0 if not known
+     */
+    public void finish(Long gameId, int historyLength) {
+        if (!isEnabled()) {
+            return;
+        }
+        end();
+        if (shouldCommit()) {
+            long allocatedAtEnd = THREADS.getCurrentThreadAllocatedBytes();
+            //-1 when the JVM does not measure thread allocation
+            this.allocated = allocatedAtStart < 0 || allocatedAtEnd < 0 ? 0 : allocatedAtEnd - allocatedAtStart;
+            this.gameId = gameId == null ? 0 : gameId;
+            this.historyLength = historyLength;
+            commit();
+        }
+    }
+}
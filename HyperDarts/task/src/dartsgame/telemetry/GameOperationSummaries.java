@@ -0,0 +1,160 @@
+package dartsgame.telemetry;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Consumes the game operation events of the running JVM with an in-process Flight Recorder stream and keeps a
+ * rolling summary of the last window per operation: count, duration, allocation and history length. The window is
+ * split in buckets, a bucket is reset when its time comes round again, so the summaries use constant memory.
+ * Events reach the stream about once a second.
+ */
+@Component
+//The event stream is started at startup, the summaries of the first window are not lost to lazy initialization
+@Lazy(false)
+public class GameOperationSummaries {
+
+    private static final Logger log = LoggerFactory.getLogger(GameOperationSummaries.class);
+    private static final int BUCKETS = 12;
+
+    private final boolean enabled;
+    private final Duration window;
+    private final long bucketMillis;
+    private final Map<String, RollingWindow> operations = new ConcurrentHashMap<>();
+    private RecordingStream stream;
+
+    public GameOperationSummaries(@Value("${telemetry.jfr.enabled:true}") boolean enabled,
+                                  @Value("${telemetry.jfr.window:PT1M}") Duration window) {
+        this.enabled = enabled;
+        this.window = window;
+        this.bucketMillis = Math.max(1, window.toMillis() / BUCKETS);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        stream = new RecordingStream();
+        stream.enable(GameOperationEvent.NAME).withoutStackTrace();
+        //The stream keeps its chunks on disk until they are older than this
+        stream.setMaxAge(window);
+        stream.onEvent(GameOperationEvent.NAME, this::record);
+        stream.onError(e -> log.warn("Game operation event stream failed", e));
+        stream.startAsync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void record(RecordedEvent event) {
+        operations.computeIfAbsent(event.getString("operation"), operation -> new RollingWindow())
+                .add(event.getEndTime().toEpochMilli() / bucketMillis,
+                        event.getDuration().toNanos(),
+                        event.getLong("allocated"),
+                        event.getInt("historyLength"));
+    }
+
+    /**
+     * @return - the summary of every operation seen in the last window, by operation name
+     */
+    public Map<String, Object> toMap() {
+        long now = System.currentTimeMillis() / bucketMillis;
+        Map<String, Object> summaries = new TreeMap<>();
+        operations.forEach((operation, rollingWindow) -> {
+            Map<String, Object> summary = rollingWindow.summarize(now);
+            if (summary != null) {
+                summaries.put(operation, summary);
+            }
+        });
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("recording", stream != null);
+        map.put("windowSeconds", window.getSeconds());
+        map.put("operations", summaries);
+        return map;
+    }
+
+    /**
+     * Totals of one operation per bucket of the window, filled by the stream thread and read by the endpoint.
+     */
+    private static class RollingWindow {
+        private final long[] buckets = new long[BUCKETS];
+        private final long[] count = new long[BUCKETS];
+        private final long[] durationNanos = new long[BUCKETS];
+        private final long[] maxDurationNanos = new long[BUCKETS];
+        private final long[] allocated = new long[BUCKETS];
+        private final long[] maxAllocated = new long[BUCKETS];
+        private final int[] maxHistoryLength = new int[BUCKETS];
+
+        private synchronized void add(long bucket, long duration, long allocatedBytes, int historyLength) {
+            int i = (int) (bucket % BUCKETS);
+            if (buckets[i] != bucket) {
+                buckets[i] = bucket;
+                count[i] = 0;
+                durationNanos[i] = 0;
+                maxDurationNanos[i] = 0;
+                allocated[i] = 0;
+                maxAllocated[i] = 0;
+                maxHistoryLength[i] = 0;
+            }
+            count[i]++;
+            durationNanos[i] += duration;
+            maxDurationNanos[i] = Math.max(maxDurationNanos[i], duration);
+            allocated[i] += allocatedBytes;
+            maxAllocated[i] = Math.max(maxAllocated[i], allocatedBytes);
+            maxHistoryLength[i] = Math.max(maxHistoryLength[i], historyLength);
+        }
+
+        /**
+         * @param now - the current bucket
+         * @return - the summary of the buckets of the window, or null if there was no event in it
+         */
+        private synchronized Map<String, Object> summarize(long now) {
+            long totalCount = 0;
+            long totalDuration = 0;
+            long maxDuration = 0;
+            long totalAllocated = 0;
+            long maxAllocatedBytes = 0;
+            int maxHistory = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                if (buckets[i] > now - BUCKETS && buckets[i] <= now) {
+                    totalCount += count[i];
+                    totalDuration += durationNanos[i];
+                    maxDuration = Math.max(maxDuration, maxDurationNanos[i]);
+                    totalAllocated += allocated[i];
+                    maxAllocatedBytes = Math.max(maxAllocatedBytes, maxAllocated[i]);
+                    maxHistory = Math.max(maxHistory, maxHistoryLength[i]);
+                }
+            }
+            if (totalCount == 0) {
+                return null;
+            }
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", totalCount);
+            summary.put("meanMillis", totalDuration / totalCount / 1_000_000.0);
+            summary.put("maxMillis", maxDuration / 1_000_000.0);
+            summary.put("allocatedBytes", totalAllocated);
+            summary.put("meanAllocatedBytes", totalAllocated / totalCount);
+            summary.put("maxAllocatedBytes", maxAllocatedBytes);
+            summary.put("maxHistoryLength", maxHistory);
+            return summary;
+        }
+    }
+}
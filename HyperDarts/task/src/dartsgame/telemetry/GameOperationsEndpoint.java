@@ -0,0 +1,26 @@
+package dartsgame.telemetry;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * /actuator/gameoperations: rolling summaries of the game operation events, see {@link GameOperationSummaries}.
+ */
+@Component
+@Endpoint(id = "gameoperations")
+public class GameOperationsEndpoint {
+
+    private final GameOperationSummaries gameOperationSummaries;
+
+    public GameOperationsEndpoint(GameOperationSummaries gameOperationSummaries) {
+        this.gameOperationSummaries = gameOperationSummaries;
+    }
+
+    @ReadOperation
+    public Map<String, Object> gameOperations() {
+        return gameOperationSummaries.toMap();
+    }
+}
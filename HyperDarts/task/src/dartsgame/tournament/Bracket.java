@@ -0,0 +1,217 @@
+package dartsgame.tournament;
+
+import dartsgame.game.persistance.PlayerDirectory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Knockout bracket of a tournament, a complete binary tree stored in arrays: node 1 is the final, the children of
+ * node n are 2n and 2n + 1 and the leaves hold the entrants. A node holds the player who won its subtree once it is
+ * decided. A match whose two players are known waits in a queue until it gets a board, a missing opponent (a bye,
+ * or a match that nobody won) lets the other player through without a game.
+ * <p>
+ * Entrant i of the first half of the seeds meets entrant i of the second half, so byes only go to the top seeds.
+ * Not thread safe, {@link TournamentService} guards every bracket.
+ */
+class Bracket {
+
+    static final int UNDECIDED = 0;
+    static final int NOBODY = -1;
+
+    private final long tournamentId;
+    private final String name;
+    private final int targetScore;
+    private final int boards;
+    private final int entrants;
+    private final int leaves;
+    private final int[] players;
+    private final long[] games;
+    private final Map<Long, Integer> nodesOfGames = new HashMap<>();
+    private final ArrayDeque<Integer> waiting = new ArrayDeque<>();
+    private int activeGames;
+
+    /**
+     * @param tournamentId - unique identifier of the tournament
+     * @param name - name of the tournament
+     * @param targetScore - starting score of every game
+     * @param boards - number of games played at the same time
+     * @param seeds - player ids of the entrants in seed order, at least two
+     */
+    Bracket(long tournamentId, String name, int targetScore, int boards, int[] seeds) {
+        this.tournamentId = tournamentId;
+        this.name = name;
+        this.targetScore = targetScore;
+        this.boards = boards;
+        this.entrants = seeds.length;
+        this.leaves = Integer.highestOneBit(seeds.length - 1) << 1;
+        this.players = new int[2 * leaves];
+        this.games = new long[2 * leaves];
+        int half = leaves / 2;
+        for (int i = 0; i < half; i++) {
+            decide(leaves + 2 * i, seeds[i]);
+            decide(leaves + 2 * i + 1, half + i < seeds.length ? seeds[half + i] : NOBODY);
+        }
+    }
+
+    /**
+     * Takes the waiting matches that get a board now, in the order they became ready.
+     * @param canPlay - tells if both players of a match are free to play it
+     * @return - the nodes of the matches to start, they are started by {@link #started(int, long)}
+     */
+    List<Integer> takeWaiting(IntPredicate canPlay) {
+        List<Integer> taken = new ArrayList<>();
+        Iterator<Integer> iterator = waiting.iterator();
+        while (iterator.hasNext() && activeGames + taken.size() < boards) {
+            int node = iterator.next();
+            if (canPlay.test(node)) {
+                iterator.remove();
+                taken.add(node);
+            }
+        }
+        return taken;
+    }
+
+    /**
+     * @param action - called with the node of every waiting match
+     */
+    void forEachWaiting(IntConsumer action) {
+        waiting.forEach(action::accept);
+    }
+
+    /**
+     * Puts matches taken by {@link #takeWaiting(IntPredicate)} back in front of the queue, e.g. when their games
+     * could not be created.
+     */
+    void putBack(List<Integer> nodes) {
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            waiting.addFirst(nodes.get(i));
+        }
+    }
+
+    void started(int node, long gameId) {
+        games[node] = gameId;
+        nodesOfGames.put(gameId, node);
+        waiting.remove(node);
+        activeGames++;
+    }
+
+    /**
+     * Advances the winner of a finished game of the bracket.
+     * @param gameId - unique identifier of a started game of the bracket
+     * @param winner - player id of the winner, or NOBODY
+     */
+    void finished(long gameId, int winner) {
+        Integer node = nodesOfGames.remove(gameId);
+        if (node != null) {
+            activeGames--;
+            decide(node, winner);
+        }
+    }
+
+    private void decide(int node, int player) {
+        players[node] = player;
+        if (node == 1) {
+            return;
+        }
+        int parent = node / 2;
+        int left = players[2 * parent];
+        int right = players[2 * parent + 1];
+        if (left == UNDECIDED || right == UNDECIDED) {
+            return;
+        }
+        if (left == NOBODY) {
+            decide(parent, right);
+        } else if (right == NOBODY) {
+            decide(parent, left);
+        } else {
+            waiting.add(parent);
+        }
+    }
+
+    long getTournamentId() {
+        return tournamentId;
+    }
+
+    int getTargetScore() {
+        return targetScore;
+    }
+
+    int playerOneOf(int node) {
+        return players[2 * node];
+    }
+
+    int playerTwoOf(int node) {
+        return players[2 * node + 1];
+    }
+
+    boolean hasWaitingMatches() {
+        return !waiting.isEmpty() && activeGames < boards;
+    }
+
+    boolean isFinished() {
+        return players[1] != UNDECIDED;
+    }
+
+    /**
+     * @param playerDirectory - names of the players
+     * @return - map representation of the tournament with every match of every round
+     */
+    Map<String, Object> toMap(PlayerDirectory playerDirectory) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("tournamentId", tournamentId);
+        map.put("name", name);
+        map.put("targetScore", targetScore);
+        map.put("boards", boards);
+        map.put("players", entrants);
+        map.put("status", isFinished() ? "finished" : "playing");
+        map.put("activeGames", activeGames);
+        map.put("champion", nameOf(players[1], playerDirectory));
+        List<Map<String, Object>> rounds = new ArrayList<>();
+        //The first round is the deepest level above the leaves, the final is node 1
+        int round = 1;
+        for (int first = leaves / 2; first >= 1; first /= 2, round++) {
+            List<Map<String, Object>> matches = new ArrayList<>();
+            for (int node = first; node < 2 * first; node++) {
+                Map<String, Object> match = new LinkedHashMap<>();
+                match.put("match", node - first + 1);
+                match.put("playerOne", nameOf(playerOneOf(node), playerDirectory));
+                match.put("playerTwo", nameOf(playerTwoOf(node), playerDirectory));
+                match.put("gameId", games[node] == 0 ? null : games[node]);
+                match.put("winner", nameOf(players[node], playerDirectory));
+                match.put("status", statusOf(node));
+                matches.add(match);
+            }
+            Map<String, Object> roundMap = new LinkedHashMap<>();
+            roundMap.put("round", round);
+            roundMap.put("matches", matches);
+            rounds.add(roundMap);
+        }
+        map.put("rounds", rounds);
+        return map;
+    }
+
+    private String statusOf(int node) {
+        if (players[node] != UNDECIDED) {
+            return games[node] != 0 ? "finished" : "walkover";
+        }
+        if (games[node] != 0) {
+            return "playing";
+        }
+        return playerOneOf(node) != UNDECIDED && playerTwoOf(node) != UNDECIDED ? "waiting for a board" : "open";
+    }
+
+    private static String nameOf(int player, PlayerDirectory playerDirectory) {
+        if (player == NOBODY) {
+            return "Nobody";
+        }
+        return player == UNDECIDED ? "" : playerDirectory.nameOf(player);
+    }
+}
@@ -0,0 +1,54 @@
+package dartsgame.tournament;
+
+import java.util.List;
+
+/**
+ * Object of body for /api/admin/tournaments API
+ */
+public class CreateTournamentForm {
+    private String name;
+    private Integer targetScore;
+    private Integer boards;
+    private List<String> players;
+
+    public CreateTournamentForm() {
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Integer getTargetScore() {
+        return targetScore;
+    }
+
+    public void setTargetScore(Integer targetScore) {
+        this.targetScore = targetScore;
+    }
+
+    /**
+     * @return - number of games played at the same time, null for as many as there are matches
+     */
+    public Integer getBoards() {
+        return boards;
+    }
+
+    public void setBoards(Integer boards) {
+        this.boards = boards;
+    }
+
+    /**
+     * @return - names of the players in seed order
+     */
+    public List<String> getPlayers() {
+        return players;
+    }
+
+    public void setPlayers(List<String> players) {
+        this.players = players;
+    }
+}
@@ -0,0 +1,47 @@
+package dartsgame.tournament;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.Map;
+
+@RestController
+public class TournamentController {
+
+    private final TournamentService tournamentService;
+
+    @Autowired
+    public TournamentController(TournamentService tournamentService) {
+        this.tournamentService = tournamentService;
+    }
+
+    /**
+     * Creates a knockout tournament and starts the games of its first round.
+     * @param createTournamentForm - the form containing the name, target score, boards and players in seed order
+     * @return - a response entity containing the tournament, or a BAD_REQUEST status if it cannot be created
+     */
+    @PostMapping("/api/admin/tournaments")
+    public ResponseEntity<Map> createTournament(@RequestBody CreateTournamentForm createTournamentForm) {
+        return tournamentService.createTournament(createTournamentForm).toResponseEntity();
+    }
+
+    /**
+     * Shows a tournament with every match of every round.
+     * @param id - unique identifier of the tournament
+     * @return - a response entity containing the tournament, or different error messages
+     */
+    @GetMapping("/api/tournaments/{tournamentID}")
+    public ResponseEntity<Map> getTournament(@PathVariable("tournamentID") String id) {
+        try {
+            return tournamentService.getTournament(Long.parseLong(id)).toResponseEntity();
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("result", "Wrong request!"));
+        }
+    }
+}
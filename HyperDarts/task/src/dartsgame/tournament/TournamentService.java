@@ -0,0 +1,534 @@
+package dartsgame.tournament;
+
+import dartsgame.cluster.GameNotOwnedException;
+import dartsgame.cluster.GameOwnership;
+import dartsgame.game.dto.GameResponse;
+import dartsgame.game.persistance.PlayerDirectory;
+import dartsgame.game.persistance.dao.Game;
+import dartsgame.game.service.GameChangeNotifier;
+import dartsgame.game.service.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Knockout tournaments. A tournament is split into partitions by its id like a game, and only the node owning its
+ * partition (see GameOwnership) holds its bracket, starts its matches and serves it; the other nodes redirect to
+ * the owner. The brackets are held in memory and read from the database when the node gains their partition; every
+ * change of a bracket happens under the lock of this service.
+ * <p>
+ * When a game finishes, GameService reports it after the commit and the winner advances on a scheduler thread.
+ * Games of a tournament may be played on any node, so the scheduler also reads the status of the running games of
+ * the held brackets every tournament.refresh-ms. Every finished game frees a board or a player, so the waiting
+ * matches of all brackets are then started: the games of all matches that get a board are created in one
+ * transaction with JDBC batches, already joined by both players. A match waits while one of its players is in
+ * another game.
+ */
+@Service
+//The brackets are refreshed on a schedule, even before the first request needs this service
+@Lazy(false)
+public class TournamentService {
+
+    private static final Logger log = LoggerFactory.getLogger(TournamentService.class);
+
+    private static final int MAX_PLAYERS = 4096;
+    private static final String WINS = " wins!";
+    private static final String INSERT_TOURNAMENT = "INSERT INTO tournament (name, target_score, boards) " +
+            "VALUES (?, ?, ?)";
+    private static final String INSERT_ENTRY = "INSERT INTO tournament_entry (tournament_id, seed, player_id) " +
+            "VALUES (?, ?, ?)";
+    private static final String INSERT_GAME = "INSERT INTO games (player_one_id, player_two_id, game_status, " +
+            "player_one_score, player_two_score, turn_id) VALUES (?, ?, 'started', ?, ?, ?)";
+    private static final String INSERT_HISTORY = "INSERT INTO game_history (game_id) VALUES (?)";
+    private static final String INSERT_STATE = "INSERT INTO game_state (game_id, move, player_one_id, player_two_id, " +
+            "game_status, player_one_scores, player_two_scores, turn_id) VALUES (?, 0, ?, ?, 'started', ?, ?, ?)";
+    private static final String LINK_STATE = "INSERT INTO game_history_history_list " +
+            "(game_history_game_id, history_list_database_id) SELECT game_id, database_id FROM game_state " +
+            "WHERE game_id = ?";
+    private static final String INSERT_TOURNAMENT_GAME = "INSERT INTO tournament_game (tournament_id, node, game_id) " +
+            "VALUES (?, ?, ?)";
+    private static final String BUSY_PLAYERS = "SELECT player_one_id, player_two_id FROM games " +
+            "WHERE game_status IN ('created', 'started', 'playing') " +
+            "AND (player_one_id IN (:players) OR player_two_id IN (:players))";
+    private static final String SELECT_TOURNAMENT_IDS = "SELECT tournament_id FROM tournament ORDER BY tournament_id";
+    private static final String SELECT_TOURNAMENT = "SELECT name, target_score, boards FROM tournament " +
+            "WHERE tournament_id = ?";
+    private static final String SELECT_ENTRIES = "SELECT player_id FROM tournament_entry WHERE tournament_id = ? " +
+            "ORDER BY seed";
+    //Children are restored before their parents, a deleted game counts as won by nobody
+    private static final String SELECT_GAMES = "SELECT t.node, t.game_id, g.game_status FROM tournament_game t " +
+            "LEFT JOIN games g ON g.game_id = t.game_id WHERE t.tournament_id = ? ORDER BY t.node DESC";
+    private static final String SELECT_STARTED_NODES = "SELECT node FROM tournament_game " +
+            "WHERE tournament_id = :tournament AND node IN (:nodes)";
+    private static final String SELECT_GAME_STATUSES = "SELECT game_id, game_status FROM games " +
+            "WHERE game_id IN (:games)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PlayerDirectory playerDirectory;
+    private final Validator validator;
+    private final GameChangeNotifier gameChangeNotifier;
+    //GameOwnership waits for the journal materializer, which reports finished games to this service
+    private final ObjectProvider<GameOwnership> gameOwnership;
+    private final Map<Long, Bracket> brackets = new LinkedHashMap<>();
+    private final Map<Long, Bracket> bracketsOfGames = new HashMap<>();
+    private final ExecutorService scheduler = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tournament-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public TournamentService(DataSource dataSource,
+                             PlatformTransactionManager transactionManager,
+                             PlayerDirectory playerDirectory,
+                             Validator validator,
+                             GameChangeNotifier gameChangeNotifier,
+                             ObjectProvider<GameOwnership> gameOwnership) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        //Games finish in the afterCommit phase of another transaction
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.playerDirectory = playerDirectory;
+        this.validator = validator;
+        this.gameChangeNotifier = gameChangeNotifier;
+        this.gameOwnership = gameOwnership;
+    }
+
+    /**
+     * Follows the brackets of the partitions this node owns and the games of their running matches.
+     */
+    @Scheduled(fixedDelayString = "${tournament.refresh-ms:2000}")
+    public void refresh() {
+        scheduler.execute(this::refreshBrackets);
+    }
+
+    private synchronized void refreshBrackets() {
+        GameOwnership ownership = gameOwnership.getObject();
+        //The new owner of a partition reads its brackets from the database
+        Iterator<Bracket> held = brackets.values().iterator();
+        while (held.hasNext()) {
+            Bracket bracket = held.next();
+            if (!ownership.owns(bracket.getTournamentId())) {
+                held.remove();
+                bracketsOfGames.values().removeIf(bracket::equals);
+            }
+        }
+        for (Long tournamentId : jdbcTemplate.queryForList(SELECT_TOURNAMENT_IDS, Long.class)) {
+            if (!brackets.containsKey(tournamentId) && ownership.owns(tournamentId)) {
+                loadBracket(tournamentId);
+            }
+        }
+
+        if (!bracketsOfGames.isEmpty()) {
+            Map<Long, String> statuses = new HashMap<>();
+            namedJdbcTemplate.query(SELECT_GAME_STATUSES, new MapSqlParameterSource("games", bracketsOfGames.keySet()),
+                    (ResultSet rs) -> { statuses.put(rs.getLong("game_id"), rs.getString("game_status")); });
+            Iterator<Map.Entry<Long, Bracket>> running = bracketsOfGames.entrySet().iterator();
+            while (running.hasNext()) {
+                Map.Entry<Long, Bracket> game = running.next();
+                String status = statuses.get(game.getKey());
+                if (status == null || status.endsWith(WINS)) {
+                    running.remove();
+                    game.getValue().finished(game.getKey(), winnerOfStoredStatus(status));
+                }
+            }
+        }
+        startWaitingMatches();
+    }
+
+    /**
+     * Reads a bracket from the database, replacing the held one.
+     * @param tournamentId - unique identifier of a tournament
+     * @return - the bracket, or null if there is no such tournament
+     */
+    private Bracket loadBracket(long tournamentId) {
+        List<Map<String, Object>> found = jdbcTemplate.queryForList(SELECT_TOURNAMENT, tournamentId);
+        if (found.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> tournament = found.get(0);
+        int[] seeds = jdbcTemplate.queryForList(SELECT_ENTRIES, Integer.class, tournamentId).stream()
+                .mapToInt(Integer::intValue).toArray();
+        Bracket bracket = new Bracket(tournamentId, (String) tournament.get("NAME"),
+                ((Number) tournament.get("TARGET_SCORE")).intValue(), ((Number) tournament.get("BOARDS")).intValue(),
+                seeds);
+        Bracket previous = brackets.put(tournamentId, bracket);
+        if (previous != null) {
+            bracketsOfGames.values().removeIf(previous::equals);
+        }
+        jdbcTemplate.query(SELECT_GAMES, (ResultSet game) -> {
+            long gameId = game.getLong("game_id");
+            String status = game.getString("game_status");
+            bracket.started(game.getInt("node"), gameId);
+            if (status == null || status.endsWith(WINS)) {
+                bracket.finished(gameId, winnerOfStoredStatus(status));
+            } else {
+                bracketsOfGames.put(gameId, bracket);
+            }
+        }, tournamentId);
+        return bracket;
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Creates a tournament and starts the games of its first round, as many as there are boards. If another node
+     * owns the new tournament, that node starts the games with its next refresh.
+     * @param form - name, target score, boards and players of the tournament
+     * @return - the created tournament, or the reason why it cannot be created
+     */
+    public GameResponse createTournament(CreateTournamentForm form) {
+        List<String> names = form.getPlayers();
+        if (form.getName() == null || form.getName().trim().isEmpty()) {
+            return GameResponse.error(HttpStatus.BAD_REQUEST, "Wrong name!");
+        }
+        if (form.getTargetScore() == null || !validator.validateTargetScore(form.getTargetScore())) {
+            return GameResponse.error(HttpStatus.BAD_REQUEST, "Wrong target score!");
+        }
+        if (names == null || names.size() < 2 || names.size() > MAX_PLAYERS || names.contains(null)
+                || names.contains("") || new HashSet<>(names).size() != names.size()) {
+            return GameResponse.error(HttpStatus.BAD_REQUEST, "Wrong players!");
+        }
+        if (form.getBoards() != null && form.getBoards() < 1) {
+            return GameResponse.error(HttpStatus.BAD_REQUEST, "Wrong boards!");
+        }
+
+        int[] seeds = new int[names.size()];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = playerDirectory.register(names.get(i));
+        }
+        //Without a limit every match of the first round gets a board
+        int boards = form.getBoards() != null ? form.getBoards() : Integer.highestOneBit(seeds.length - 1);
+        synchronized (this) {
+            long tournamentId = transactionTemplate.execute(status -> {
+                long id = insertTournament(form.getName(), form.getTargetScore(), boards);
+                jdbcTemplate.batchUpdate(INSERT_ENTRY, seedRows(id, seeds));
+                return id;
+            });
+            Bracket bracket = new Bracket(tournamentId, form.getName(), form.getTargetScore(), boards, seeds);
+            if (gameOwnership.getObject().owns(tournamentId)) {
+                brackets.put(tournamentId, bracket);
+                startWaitingMatches(Collections.singletonList(bracket));
+            }
+            return GameResponse.ok(bracket.toMap(playerDirectory));
+        }
+    }
+
+    /**
+     * @param tournamentId - unique identifier of a tournament
+     * @return - the tournament with every match of every round, or NOT_FOUND
+     * @throws GameNotOwnedException - if another node owns the tournament
+     */
+    public synchronized GameResponse getTournament(Long tournamentId) {
+        GameOwnership ownership = gameOwnership.getObject();
+        if (!ownership.owns(tournamentId)) {
+            throw new GameNotOwnedException("Tournament " + tournamentId, ownership.ownerUrlOf(tournamentId));
+        }
+        //The partition may have been gained since the last refresh
+        Bracket bracket = brackets.containsKey(tournamentId) ? brackets.get(tournamentId) : loadBracket(tournamentId);
+        if (bracket == null) {
+            return GameResponse.error(HttpStatus.NOT_FOUND, "Tournament not found!");
+        }
+        return GameResponse.ok(bracket.toMap(playerDirectory));
+    }
+
+    /**
+     * Advances the winner of a finished game once the current transaction is committed, if the game is a match of
+     * a tournament, and starts the waiting matches that can be played now.
+     * @param game - a game with a "wins!" status
+     */
+    public void gameFinishedAfterCommit(Game game) {
+        long gameId = game.getGameId();
+        String status = game.getGameStatus();
+        Runnable finished = () -> scheduler.execute(() -> gameFinished(gameId, status));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            finished.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                finished.run();
+            }
+        });
+    }
+
+    private synchronized void gameFinished(long gameId, String status) {
+        Bracket bracket = bracketsOfGames.remove(gameId);
+        if (bracket != null) {
+            bracket.finished(gameId, winnerOf(status));
+        }
+        startWaitingMatches();
+    }
+
+    private synchronized void startWaitingMatches() {
+        List<Bracket> waiting = new ArrayList<>();
+        for (Bracket bracket : brackets.values()) {
+            if (bracket.hasWaitingMatches()) {
+                waiting.add(bracket);
+            }
+        }
+        startWaitingMatches(waiting);
+    }
+
+    /**
+     * Creates the games of every waiting match that has a board and two free players, in one transaction.
+     */
+    private void startWaitingMatches(List<Bracket> waiting) {
+        if (waiting.isEmpty()) {
+            return;
+        }
+        Set<Integer> busy = busyPlayers(waiting);
+        Map<Bracket, List<Integer>> taken = new LinkedHashMap<>();
+        for (Bracket bracket : waiting) {
+            List<Integer> nodes = bracket.takeWaiting(node -> {
+                int playerOne = bracket.playerOneOf(node);
+                int playerTwo = bracket.playerTwoOf(node);
+                if (busy.contains(playerOne) || busy.contains(playerTwo)) {
+                    return false;
+                }
+                busy.add(playerOne);
+                busy.add(playerTwo);
+                return true;
+            });
+            if (!nodes.isEmpty()) {
+                taken.put(bracket, nodes);
+            }
+        }
+        if (taken.isEmpty()) {
+            return;
+        }
+
+        List<Bracket> bracketOfGame = new ArrayList<>();
+        List<Integer> nodeOfGame = new ArrayList<>();
+        taken.forEach((bracket, nodes) -> nodes.forEach(node -> {
+            bracketOfGame.add(bracket);
+            nodeOfGame.add(node);
+        }));
+        Set<Bracket> stale = new HashSet<>();
+        long[] gameIds;
+        try {
+            gameIds = transactionTemplate.execute(status -> {
+                dropStartedMatches(taken, stale, bracketOfGame, nodeOfGame);
+                return jdbcTemplate.execute(
+                        (ConnectionCallback<long[]>) connection -> insertGames(connection, bracketOfGame, nodeOfGame));
+            });
+        } catch (RuntimeException e) {
+            taken.forEach(Bracket::putBack);
+            log.error("Tournament games could not be created", e);
+            return;
+        }
+
+        //The brackets only change once the games are committed, a failed insert leaves the matches waiting
+        for (int i = 0; i < gameIds.length; i++) {
+            Bracket bracket = bracketOfGame.get(i);
+            int node = nodeOfGame.get(i);
+            bracket.started(node, gameIds[i]);
+            bracketsOfGames.put(gameIds[i], bracket);
+            String playerOne = playerDirectory.nameOf(bracket.playerOneOf(node));
+            String playerTwo = playerDirectory.nameOf(bracket.playerTwoOf(node));
+            gameChangeNotifier.gameChangedAfterCommit(new Game(gameIds[i], playerOne, playerTwo, "started",
+                    bracket.getTargetScore(), bracket.getTargetScore(), playerOne, null));
+        }
+        //Another node started matches of these brackets while it owned them
+        stale.forEach(bracket -> loadBracket(bracket.getTournamentId()));
+    }
+
+    /**
+     * Removes the matches that already have a game in the database from the matches to start, e.g. because the
+     * previous owner of the partition started them after this node read the bracket.
+     * @param stale - collects the brackets with such a match, they have to be read again
+     */
+    private void dropStartedMatches(Map<Bracket, List<Integer>> taken, Set<Bracket> stale,
+                                    List<Bracket> bracketOfGame, List<Integer> nodeOfGame) {
+        Set<List<Long>> started = new HashSet<>();
+        taken.forEach((bracket, nodes) -> {
+            MapSqlParameterSource parameters = new MapSqlParameterSource("tournament", bracket.getTournamentId())
+                    .addValue("nodes", nodes);
+            for (Integer node : namedJdbcTemplate.queryForList(SELECT_STARTED_NODES, parameters, Integer.class)) {
+                started.add(Arrays.asList(bracket.getTournamentId(), node.longValue()));
+                stale.add(bracket);
+            }
+        });
+        for (int i = nodeOfGame.size() - 1; i >= 0; i--) {
+            long tournamentId = bracketOfGame.get(i).getTournamentId();
+            if (started.contains(Arrays.asList(tournamentId, nodeOfGame.get(i).longValue()))) {
+                bracketOfGame.remove(i);
+                nodeOfGame.remove(i);
+            }
+        }
+    }
+
+    /**
+     * @return - the players of the waiting matches who are in a created or ongoing game
+     */
+    private Set<Integer> busyPlayers(List<Bracket> waiting) {
+        Set<Integer> players = new HashSet<>();
+        for (Bracket bracket : waiting) {
+            bracket.forEachWaiting(node -> {
+                players.add(bracket.playerOneOf(node));
+                players.add(bracket.playerTwoOf(node));
+            });
+        }
+        Set<Integer> busy = new HashSet<>();
+        namedJdbcTemplate.query(BUSY_PLAYERS, new MapSqlParameterSource("players", players), (ResultSet rs) -> {
+            busy.add(rs.getInt("player_one_id"));
+            busy.add(rs.getInt("player_two_id"));
+        });
+        return busy;
+    }
+
+    /**
+     * Inserts the started games of matches with their history and their place in the tournament.
+     * @param bracketOfGame - bracket of each match
+     * @param nodeOfGame - node of each match in its bracket
+     * @return - ids of the games, in the order of the matches
+     */
+    private long[] insertGames(Connection connection, List<Bracket> bracketOfGame, List<Integer> nodeOfGame)
+            throws SQLException {
+        long[] gameIds = new long[nodeOfGame.size()];
+        if (gameIds.length == 0) {
+            return gameIds;
+        }
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_GAME, Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < gameIds.length; i++) {
+                Bracket bracket = bracketOfGame.get(i);
+                int node = nodeOfGame.get(i);
+                insert.setInt(1, bracket.playerOneOf(node));
+                insert.setInt(2, bracket.playerTwoOf(node));
+                insert.setInt(3, bracket.getTargetScore());
+                insert.setInt(4, bracket.getTargetScore());
+                insert.setInt(5, bracket.playerOneOf(node));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            try (ResultSet keys = insert.getGeneratedKeys()) {
+                int i = 0;
+                while (keys.next() && i < gameIds.length) {
+                    gameIds[i++] = keys.getLong(1);
+                }
+                if (i != gameIds.length) {
+                    throw new IllegalStateException("The driver returned " + i + " ids for " + gameIds.length
+                            + " games");
+                }
+            }
+        }
+
+        try (PreparedStatement history = connection.prepareStatement(INSERT_HISTORY);
+             PreparedStatement state = connection.prepareStatement(INSERT_STATE);
+             PreparedStatement link = connection.prepareStatement(LINK_STATE);
+             PreparedStatement tournamentGame = connection.prepareStatement(INSERT_TOURNAMENT_GAME)) {
+            for (int i = 0; i < gameIds.length; i++) {
+                Bracket bracket = bracketOfGame.get(i);
+                int node = nodeOfGame.get(i);
+                history.setLong(1, gameIds[i]);
+                history.addBatch();
+                state.setLong(1, gameIds[i]);
+                state.setInt(2, bracket.playerOneOf(node));
+                state.setInt(3, bracket.playerTwoOf(node));
+                state.setInt(4, bracket.getTargetScore());
+                state.setInt(5, bracket.getTargetScore());
+                state.setInt(6, bracket.playerOneOf(node));
+                state.addBatch();
+                link.setLong(1, gameIds[i]);
+                link.addBatch();
+                tournamentGame.setLong(1, bracket.getTournamentId());
+                tournamentGame.setInt(2, node);
+                tournamentGame.setLong(3, gameIds[i]);
+                tournamentGame.addBatch();
+            }
+            history.executeBatch();
+            state.executeBatch();
+            link.executeBatch();
+            tournamentGame.executeBatch();
+        }
+        return gameIds;
+    }
+
+    private long insertTournament(String name, int targetScore, int boards) {
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try (PreparedStatement insert = connection.prepareStatement(INSERT_TOURNAMENT,
+                    Statement.RETURN_GENERATED_KEYS)) {
+                insert.setString(1, name);
+                insert.setInt(2, targetScore);
+                insert.setInt(3, boards);
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    keys.next();
+                    return keys.getLong(1);
+                }
+            }
+        });
+    }
+
+    private static List<Object[]> seedRows(long tournamentId, int[] seeds) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int seed = 0; seed < seeds.length; seed++) {
+            rows.add(new Object[]{tournamentId, seed, seeds[seed]});
+        }
+        return rows;
+    }
+
+    /**
+     * @param status - status of a finished game, e.g. "playerName wins!"
+     * @return - player id of the winner, or NOBODY
+     */
+    private int winnerOf(String status) {
+        if (status == null || !status.endsWith(WINS)) {
+            return Bracket.NOBODY;
+        }
+        Integer id = playerDirectory.idOf(status.substring(0, status.length() - WINS.length()));
+        return id == null ? Bracket.NOBODY : id;
+    }
+
+    /**
+     * @param storedStatus - status of a game as stored, the winner as "#" and its id
+     * @return - player id of the winner, or NOBODY
+     */
+    private static int winnerOfStoredStatus(String storedStatus) {
+        if (storedStatus == null || !storedStatus.startsWith("#") || !storedStatus.endsWith(WINS)) {
+            return Bracket.NOBODY;
+        }
+        return Integer.parseInt(storedStatus.substring(1, storedStatus.length() - WINS.length()));
+    }
+}
@@ -0,0 +1,64 @@
+package dartsgame.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * JSON converter that keeps the configured (indented) output by default, writes without indentation when the
+ * request asks for compact output and drops the properties that are not in the requested fields.
+ * The "result" message of error responses is always kept.
+ */
+public class NegotiatingJsonConverter extends MappingJackson2HttpMessageConverter {
+
+    private final NegotiatingJsonConverter compact;
+
+    public NegotiatingJsonConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+        this.compact = new NegotiatingJsonConverter(objectMapper.copy().disable(SerializationFeature.INDENT_OUTPUT), null);
+    }
+
+    private NegotiatingJsonConverter(ObjectMapper objectMapper, NegotiatingJsonConverter compact) {
+        super(objectMapper);
+        this.compact = compact;
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        Set<String> fields = ResponseFormat.requestedFields();
+        if (!fields.isEmpty()) {
+            object = retainFields(getObjectMapper().valueToTree(object), fields);
+            type = null;
+        }
+        if (compact != null && ResponseFormat.isCompactRequested()) {
+            compact.writeInternal(object, type, outputMessage);
+        } else {
+            super.writeInternal(object, type, outputMessage);
+        }
+    }
+
+    private static JsonNode retainFields(JsonNode node, Set<String> fields) {
+        Set<String> retained = new HashSet<>(fields);
+        retained.add("result");
+        if (node.isObject()) {
+            ((ObjectNode) node).retain(retained);
+        } else if (node.isArray()) {
+            for (JsonNode element : node) {
+                if (element.isObject()) {
+                    ((ObjectNode) element).retain(retained);
+                }
+            }
+        }
+        return node;
+    }
+}
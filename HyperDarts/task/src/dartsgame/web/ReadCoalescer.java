@@ -0,0 +1,113 @@
+package dartsgame.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import dartsgame.datasource.DataSourceRole;
+import dartsgame.datasource.ReadWriteRoutingDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Lets identical reads that arrive while the same read is running wait for its result instead of loading and
+ * serializing again. The first request of a key runs the load, the others share its result; nothing is kept once the
+ * load is done, so this is not a cache. Keys contain the version of the game (see GameChangeNotifier), a read that
+ * starts after a change therefore never joins a load of the previous version. They also contain where the read goes
+ * (see ReadWriteRoutingDataSource): a player who has just thrown reads from the primary and never joins a replica
+ * read of a spectator that may miss the throw.
+ * <p>
+ * Published as "http.coalesced.loads" (reads that ran) and "http.coalesced.requests" (reads that shared the result of
+ * another one) per endpoint.
+ */
+@Component
+public class ReadCoalescer {
+
+    private final ConcurrentMap<List<Object>, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper compactObjectMapper;
+    //Null without a replica, every read then goes to the primary
+    private final ReadWriteRoutingDataSource routingDataSource;
+
+    @Autowired
+    public ReadCoalescer(MeterRegistry meterRegistry, ObjectMapper objectMapper, DataSource dataSource) {
+        this.meterRegistry = meterRegistry;
+        this.objectMapper = objectMapper;
+        this.compactObjectMapper = objectMapper.copy().disable(SerializationFeature.INDENT_OUTPUT);
+        try {
+            this.routingDataSource = dataSource.isWrapperFor(ReadWriteRoutingDataSource.class)
+                    ? dataSource.unwrap(ReadWriteRoutingDataSource.class) : null;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Data source could not be inspected", e);
+        }
+    }
+
+    /**
+     * Runs a read, or waits for the identical read that is already running.
+     * @param endpoint - name of the endpoint, part of the key and tag of the metrics
+     * @param key - everything the result depends on, e.g. game id, version and format; the role of the data source
+     * the read goes to is added
+     * @param load - the read, it must not depend on anything but the key
+     * @return - the result of the read, shared by every request that joined it
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T load(String endpoint, Object key, Supplier<T> load) {
+        DataSourceRole role = routingDataSource == null ? DataSourceRole.PRIMARY : routingDataSource.readRole();
+        List<Object> flightKey = Arrays.asList(endpoint, key, role);
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(flightKey, flight);
+        if (running != null) {
+            counter("http.coalesced.requests", endpoint).increment();
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+        counter("http.coalesced.loads", endpoint).increment();
+        try {
+            T result = load.get();
+            flight.complete(result);
+            return result;
+        } catch (Throwable t) {
+            //Errors too, or the requests waiting for this flight would wait forever
+            flight.completeExceptionally(t);
+            throw t;
+        } finally {
+            inFlight.remove(flightKey, flight);
+        }
+    }
+
+    /**
+     * Serializes a response body once for all requests sharing it, the way the JSON converter would.
+     * @param body - the response body
+     * @param compact - true for JSON without indentation
+     * @return - the JSON bytes
+     */
+    public byte[] toJson(Object body, boolean compact) {
+        try {
+            return (compact ? compactObjectMapper : objectMapper).writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response could not be serialized", e);
+        }
+    }
+
+    private Counter counter(String name, String endpoint) {
+        return meterRegistry.counter(name, "endpoint", endpoint);
+    }
+}
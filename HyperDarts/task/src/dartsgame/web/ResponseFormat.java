@@ -0,0 +1,54 @@
+package dartsgame.web;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Output options a client can ask for on any API request:
+ *  - compact=true: JSON without indentation
+ *  - fields=a,b: only the listed properties of the returned game(s) or game states
+ *  - winProbability=true: the win probability of both players with the status, throws and history APIs
+ */
+public final class ResponseFormat {
+
+    private ResponseFormat() {
+    }
+
+    public static boolean isCompactRequested() {
+        HttpServletRequest request = currentRequest();
+        return request != null && "true".equalsIgnoreCase(request.getParameter("compact"));
+    }
+
+    public static boolean isWinProbabilityRequested() {
+        HttpServletRequest request = currentRequest();
+        return request != null && "true".equalsIgnoreCase(request.getParameter("winProbability"));
+    }
+
+    public static Set<String> requestedFields() {
+        HttpServletRequest request = currentRequest();
+        String fields = request == null ? null : request.getParameter("fields");
+        if (fields == null || fields.isBlank()) {
+            return Collections.emptySet();
+        }
+        return Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            return ((ServletRequestAttributes) attributes).getRequest();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,18 @@
+package dartsgame.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+/**
+ * Replaces the default JSON converter of Spring Boot with one that honours the compact and fields options.
+ */
+@Configuration
+public class ResponseFormatConfiguration {
+
+    @Bean
+    public MappingJackson2HttpMessageConverter negotiatingJsonConverter(ObjectMapper objectMapper) {
+        return new NegotiatingJsonConverter(objectMapper);
+    }
+}
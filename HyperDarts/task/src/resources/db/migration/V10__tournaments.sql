@@ -0,0 +1,26 @@
+-- Knockout tournaments. The bracket itself is not stored: it follows from the entries in seed order and from the
+-- games played for its matches, a match being a node of the bracket tree (1 is the final).
+
+CREATE TABLE IF NOT EXISTS tournament (
+    tournament_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name          VARCHAR(255) NOT NULL,
+    target_score  INTEGER NOT NULL,
+    boards        INTEGER NOT NULL,
+    created_at    TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS tournament_entry (
+    tournament_id BIGINT NOT NULL,
+    seed          INTEGER NOT NULL,
+    player_id     INTEGER NOT NULL,
+    PRIMARY KEY (tournament_id, seed),
+    CONSTRAINT fk_tournament_entry_tournament FOREIGN KEY (tournament_id) REFERENCES tournament (tournament_id)
+);
+
+CREATE TABLE IF NOT EXISTS tournament_game (
+    tournament_id BIGINT NOT NULL,
+    node          INTEGER NOT NULL,
+    game_id       BIGINT NOT NULL,
+    PRIMARY KEY (tournament_id, node),
+    CONSTRAINT fk_tournament_game_tournament FOREIGN KEY (tournament_id) REFERENCES tournament (tournament_id)
+);
@@ -0,0 +1,36 @@
+-- Schema previously generated by spring.jpa.hibernate.ddl-auto=update.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate).
+
+CREATE TABLE IF NOT EXISTS games (
+    game_id          BIGINT AUTO_INCREMENT PRIMARY KEY,
+    player_one       VARCHAR(255),
+    player_two       VARCHAR(255),
+    game_status      VARCHAR(255),
+    player_one_score INTEGER,
+    player_two_score INTEGER,
+    turn             VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS game_history (
+    game_id BIGINT NOT NULL PRIMARY KEY
+);
+
+CREATE TABLE IF NOT EXISTS game_state (
+    database_id       BIGINT AUTO_INCREMENT PRIMARY KEY,
+    game_id           BIGINT,
+    move              INTEGER,
+    player_one        VARCHAR(255),
+    player_two        VARCHAR(255),
+    game_status       VARCHAR(255),
+    player_one_scores INTEGER,
+    player_two_scores INTEGER,
+    turn              VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS game_history_history_list (
+    game_history_game_id     BIGINT NOT NULL,
+    history_list_database_id BIGINT NOT NULL,
+    CONSTRAINT uk_game_history_history_list_state UNIQUE (history_list_database_id),
+    CONSTRAINT fk_game_history_history_list_state FOREIGN KEY (history_list_database_id) REFERENCES game_state (database_id),
+    CONSTRAINT fk_game_history_history_list_history FOREIGN KEY (game_history_game_id) REFERENCES game_history (game_id)
+);
@@ -0,0 +1,4 @@
+-- Active and finished game lookups filter on both player columns.
+
+CREATE INDEX IF NOT EXISTS idx_games_player_one ON games (player_one);
+CREATE INDEX IF NOT EXISTS idx_games_player_two ON games (player_two);
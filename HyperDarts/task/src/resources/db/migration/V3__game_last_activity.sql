@@ -0,0 +1,5 @@
+-- Last change of a game, used to find abandoned games. Existing games count as active since the migration.
+
+ALTER TABLE games ADD COLUMN IF NOT EXISTS last_activity TIMESTAMP DEFAULT CURRENT_TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS idx_games_status_last_activity ON games (game_status, last_activity);
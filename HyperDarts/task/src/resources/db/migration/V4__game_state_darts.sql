@@ -0,0 +1,4 @@
+-- The three darts of a visit packed into one value (7 bits per dart, see dartsgame.game.rules.Visit).
+-- Null for states that are not the result of a visit (join, sweep).
+
+ALTER TABLE game_state ADD COLUMN IF NOT EXISTS darts INTEGER;
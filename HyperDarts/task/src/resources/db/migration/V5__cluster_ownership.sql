@@ -0,0 +1,17 @@
+-- Nodes of a cluster and the owner of each game partition (game_id modulo 64, see dartsgame.cluster.GameOwnership).
+-- A node renews its heartbeat while it runs; partitions of nodes with an expired heartbeat can be claimed.
+
+CREATE TABLE IF NOT EXISTS cluster_node (
+    node_id VARCHAR(255) NOT NULL PRIMARY KEY,
+    base_url VARCHAR(255) NOT NULL,
+    heartbeat TIMESTAMP NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS partition_owner (
+    partition_no INTEGER NOT NULL PRIMARY KEY,
+    node_id VARCHAR(255),
+    epoch BIGINT NOT NULL
+);
+
+INSERT INTO partition_owner (partition_no, node_id, epoch)
+SELECT X, NULL, 0 FROM SYSTEM_RANGE(0, 63) WHERE X NOT IN (SELECT partition_no FROM partition_owner);
@@ -0,0 +1,48 @@
+-- Players are stored once and referenced by an integer id from games and game states, including the winner in
+-- the status ("#<player_id> wins!"). Names are resolved when games are turned into JSON.
+
+CREATE TABLE IF NOT EXISTS players (
+    player_id INTEGER AUTO_INCREMENT PRIMARY KEY,
+    name      VARCHAR(255) NOT NULL,
+    CONSTRAINT uk_players_name UNIQUE (name)
+);
+
+INSERT INTO players (name)
+SELECT DISTINCT name FROM (
+    SELECT player_one AS name FROM games
+    UNION SELECT player_two FROM games
+    UNION SELECT player_one FROM game_state
+    UNION SELECT player_two FROM game_state
+) known WHERE name IS NOT NULL AND name <> '' AND name NOT IN (SELECT name FROM players);
+
+ALTER TABLE games ADD COLUMN IF NOT EXISTS player_one_id INTEGER;
+ALTER TABLE games ADD COLUMN IF NOT EXISTS player_two_id INTEGER;
+ALTER TABLE games ADD COLUMN IF NOT EXISTS turn_id INTEGER;
+UPDATE games SET
+    player_one_id = (SELECT p.player_id FROM players p WHERE p.name = games.player_one),
+    player_two_id = (SELECT p.player_id FROM players p WHERE p.name = games.player_two),
+    turn_id = (SELECT p.player_id FROM players p WHERE p.name = games.turn);
+UPDATE games SET game_status = '#' || (SELECT p.player_id FROM players p WHERE p.name || ' wins!' = games.game_status) || ' wins!'
+WHERE EXISTS (SELECT 1 FROM players p WHERE p.name || ' wins!' = games.game_status);
+
+ALTER TABLE game_state ADD COLUMN IF NOT EXISTS player_one_id INTEGER;
+ALTER TABLE game_state ADD COLUMN IF NOT EXISTS player_two_id INTEGER;
+ALTER TABLE game_state ADD COLUMN IF NOT EXISTS turn_id INTEGER;
+UPDATE game_state SET
+    player_one_id = (SELECT p.player_id FROM players p WHERE p.name = game_state.player_one),
+    player_two_id = (SELECT p.player_id FROM players p WHERE p.name = game_state.player_two),
+    turn_id = (SELECT p.player_id FROM players p WHERE p.name = game_state.turn);
+UPDATE game_state SET game_status = '#' || (SELECT p.player_id FROM players p WHERE p.name || ' wins!' = game_state.game_status) || ' wins!'
+WHERE EXISTS (SELECT 1 FROM players p WHERE p.name || ' wins!' = game_state.game_status);
+
+DROP INDEX IF EXISTS idx_games_player_one;
+DROP INDEX IF EXISTS idx_games_player_two;
+ALTER TABLE games DROP COLUMN IF EXISTS player_one;
+ALTER TABLE games DROP COLUMN IF EXISTS player_two;
+ALTER TABLE games DROP COLUMN IF EXISTS turn;
+ALTER TABLE game_state DROP COLUMN IF EXISTS player_one;
+ALTER TABLE game_state DROP COLUMN IF EXISTS player_two;
+ALTER TABLE game_state DROP COLUMN IF EXISTS turn;
+
+CREATE INDEX IF NOT EXISTS idx_games_player_one_id ON games (player_one_id);
+CREATE INDEX IF NOT EXISTS idx_games_player_two_id ON games (player_two_id);
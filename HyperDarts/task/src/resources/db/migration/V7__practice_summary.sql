@@ -0,0 +1,17 @@
+-- One row per finished practice session, the visits themselves are never stored.
+
+CREATE TABLE IF NOT EXISTS practice_summary (
+    summary_id       BIGINT AUTO_INCREMENT PRIMARY KEY,
+    player_id        INTEGER NOT NULL,
+    target_score     INTEGER NOT NULL,
+    visits           INTEGER NOT NULL,
+    darts            INTEGER NOT NULL,
+    points           INTEGER NOT NULL,
+    busts            INTEGER NOT NULL,
+    checkouts        INTEGER NOT NULL,
+    highest_checkout INTEGER NOT NULL,
+    started_at       TIMESTAMP NOT NULL,
+    finished_at      TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_practice_summary_player ON practice_summary (player_id);
@@ -0,0 +1,17 @@
+-- Users of the authorization server. The existing users keep their passwords until their next login, which
+-- stores them as bcrypt hashes.
+
+CREATE TABLE IF NOT EXISTS user_account (
+    user_id  BIGINT AUTO_INCREMENT PRIMARY KEY,
+    email    VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(100) NOT NULL,
+    role     VARCHAR(20) NOT NULL,
+    enabled  BOOLEAN DEFAULT TRUE NOT NULL
+);
+
+INSERT INTO user_account (email, password, role) VALUES
+    ('ivanhoe@acme.com', '{noop}oMoa3VvqnLxW', 'GAMER'),
+    ('robinhood@acme.com', '{noop}ai0y9bMvyF6G', 'GAMER'),
+    ('wilhelmtell@acme.com', '{noop}bv0y9bMvyF7E', 'GAMER'),
+    ('admin@acme.com', '{noop}zy0y3bMvyA6T', 'ADMIN'),
+    ('judgedredd@acme.com', '{noop}iAmALaw100500', 'REFEREE');
@@ -0,0 +1,10 @@
+-- Progress of bulk imports of historical matches, one row per imported source. Updated in the transaction of every
+-- committed batch, so an interrupted import resumes after the last committed line.
+
+CREATE TABLE IF NOT EXISTS import_checkpoint (
+    source         VARCHAR(255) NOT NULL PRIMARY KEY,
+    lines_read     BIGINT NOT NULL,
+    games          BIGINT NOT NULL,
+    rejected_games BIGINT NOT NULL,
+    updated_at     TIMESTAMP NOT NULL
+);
@@ -0,0 +1,80 @@
+package dartsgame.game.rules;
+
+import dartsgame.game.dto.ThrownDart;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Packing of the darts of a visit, 7 bits per dart.
+ */
+class VisitTest {
+
+    @Test
+    void everyVisitSurvivesPacking() {
+        List<Integer> darts = X01RulesTest.boardDarts();
+        darts.add(0);
+        for (int first : darts) {
+            for (int second : darts) {
+                for (int third : darts) {
+                    Visit visit = Visit.ofDarts(first, second, third);
+                    int packed = visit.toPacked();
+                    assertTrue(packed >= 0 && packed < 1 << 21);
+                    assertEquals(visit, Visit.fromPacked(packed));
+                    assertEquals(visit, Visit.of(visit.toThrownDarts()));
+                    assertDart(first, visit, 0);
+                    assertDart(second, visit, 1);
+                    assertDart(third, visit, 2);
+                }
+            }
+        }
+    }
+
+    @Test
+    void dartsAreUnpackedInThrowOrder() {
+        Visit visit = Visit.of(3, 20, 1, 25, 2, 25);
+
+        assertEquals(3, visit.getMultiplicator(0));
+        assertEquals(20, visit.getScore(0));
+        assertEquals(60, visit.getPoints(0));
+        assertEquals(25, visit.getPoints(1));
+        assertEquals(50, visit.getPoints(2));
+    }
+
+    @Test
+    void partialVisitKeepsItsNoneDarts() {
+        Visit visit = Visit.of(new ThrownDart[]{new ThrownDart(1, 2, 20), new ThrownDart(2), new ThrownDart(3)});
+
+        assertFalse(visit.isNone(0));
+        assertTrue(visit.isNone(1));
+        assertTrue(visit.isNone(2));
+        assertEquals(Visit.dart(2, 20), visit.toPacked());
+
+        ThrownDart[] darts = visit.toThrownDarts();
+        assertEquals(3, darts.length);
+        assertEquals(2, darts[0].getMultiplicator());
+        assertEquals(20, darts[0].getScore());
+        assertEquals(2, darts[1].getNumberOfDart());
+        assertNull(darts[1].getMultiplicator());
+        assertNull(darts[2].getScore());
+    }
+
+    @Test
+    void missIsNotNone() {
+        Visit visit = Visit.of(1, 0, 0, 0, 0, 0);
+
+        assertFalse(visit.isNone(0));
+        assertEquals(0, visit.getPoints(0));
+    }
+
+    private static void assertDart(int dart, Visit visit, int index) {
+        assertEquals(dart == 0, visit.isNone(index));
+        assertEquals(Visit.dartMultiplicator(dart), visit.getMultiplicator(index));
+        assertEquals(Visit.dartScore(dart), visit.getScore(index));
+    }
+}
@@ -0,0 +1,202 @@
+package dartsgame.game.rules;
+
+import dartsgame.game.dto.DartsThrowForm;
+import dartsgame.game.service.Validator;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The x01 rules without persistence: single visits for every rule, then every visit from a few remaining scores
+ * checked against what its darts add up to.
+ */
+class X01RulesTest {
+
+    private static final Visit NONE_AFTER_T20 = Visit.of(3, 20, 0, 0, 0, 0);
+
+    @Test
+    void scoringVisitPassesTheTurn() {
+        X01State state = X01Rules.apply(X01State.start(501), Visit.of(3, 20, 3, 20, 3, 20));
+
+        assertEquals(VisitOutcome.SCORED, state.getOutcome());
+        assertEquals(321, state.getPlayerOneScore());
+        assertEquals(501, state.getPlayerTwoScore());
+        assertEquals(X01State.PLAYER_TWO, state.getTurn());
+        assertEquals(GamePhase.PLAYING, state.getPhase());
+    }
+
+    @Test
+    void visitOfPlayerTwoOnlyChangesTheirScore() {
+        X01State before = new X01State(321, 501, X01State.PLAYER_TWO, GamePhase.PLAYING, VisitOutcome.SCORED);
+        X01State state = X01Rules.apply(before, Visit.of(1, 20, 1, 5, 1, 1));
+
+        assertEquals(VisitOutcome.SCORED, state.getOutcome());
+        assertEquals(321, state.getPlayerOneScore());
+        assertEquals(475, state.getPlayerTwoScore());
+        assertEquals(X01State.PLAYER_ONE, state.getTurn());
+    }
+
+    @Test
+    void goingBelowZeroBustsAndKeepsTheScore() {
+        X01State state = X01Rules.apply(playing(40), NONE_AFTER_T20);
+
+        assertEquals(VisitOutcome.BUST, state.getOutcome());
+        assertEquals(40, state.getPlayerOneScore());
+        assertEquals(X01State.PLAYER_TWO, state.getTurn());
+        assertEquals(GamePhase.PLAYING, state.getPhase());
+    }
+
+    @Test
+    void doubleToZeroChecksOut() {
+        X01State state = X01Rules.apply(playing(40), Visit.of(2, 20, 0, 0, 0, 0));
+
+        assertEquals(VisitOutcome.CHECKOUT, state.getOutcome());
+        assertEquals(0, state.getPlayerOneScore());
+        assertEquals(X01State.PLAYER_ONE, state.getTurn());
+        assertTrue(state.isFinished());
+    }
+
+    @Test
+    void checkoutWithTheLastDartAndWithTheBull() {
+        assertEquals(VisitOutcome.CHECKOUT, X01Rules.apply(playing(100), Visit.of(3, 20, 1, 20, 2, 10)).getOutcome());
+        assertEquals(VisitOutcome.CHECKOUT, X01Rules.apply(playing(50), Visit.of(2, 25, 0, 0, 0, 0)).getOutcome());
+    }
+
+    @Test
+    void finishOnASingleBusts() {
+        X01State state = X01Rules.apply(playing(20), Visit.of(1, 20, 0, 0, 0, 0));
+
+        assertEquals(VisitOutcome.BUST, state.getOutcome());
+        assertEquals(20, state.getPlayerOneScore());
+        assertFalse(state.isFinished());
+    }
+
+    @Test
+    void finishOnATrebleBusts() {
+        assertEquals(VisitOutcome.BUST, X01Rules.apply(playing(60), NONE_AFTER_T20).getOutcome());
+    }
+
+    @Test
+    void remainingOneBustsAndEndsTheVisit() {
+        X01State state = X01Rules.apply(playing(21), Visit.of(1, 20, 0, 0, 0, 0));
+        assertEquals(VisitOutcome.BUST, state.getOutcome());
+        assertEquals(21, state.getPlayerOneScore());
+
+        //No dart can be thrown once 1 is left
+        assertFalse(X01Rules.isValidVisit(21, Visit.of(1, 20, 1, 1, 0, 0)));
+        assertFalse(X01Rules.isValidVisit(1, Visit.of(1, 1, 0, 0, 0, 0)));
+        assertEquals(VisitOutcome.REJECTED, X01Rules.apply(playing(21), Visit.of(1, 20, 1, 1, 0, 0)).getOutcome());
+    }
+
+    @Test
+    void partialVisitIsOnlyValidAfterTheLastPossibleDart() {
+        assertFalse(X01Rules.isValidVisit(501, Visit.of(1, 20, 0, 0, 0, 0)));
+        assertFalse(X01Rules.isValidVisit(501, Visit.of(1, 20, 1, 20, 0, 0)));
+        assertFalse(X01Rules.isValidVisit(501, Visit.of(0, 0, 1, 20, 1, 20)));
+        assertTrue(X01Rules.isValidVisit(40, Visit.of(2, 20, 0, 0, 0, 0)));
+        assertTrue(X01Rules.isValidVisit(60, Visit.of(1, 20, 2, 20, 0, 0)));
+    }
+
+    @Test
+    void rejectedVisitKeepsTheState() {
+        X01State before = playing(501);
+        X01State state = X01Rules.apply(before, Visit.of(1, 20, 0, 0, 0, 0));
+
+        assertEquals(VisitOutcome.REJECTED, state.getOutcome());
+        assertEquals(501, state.getPlayerOneScore());
+        assertEquals(X01State.PLAYER_ONE, state.getTurn());
+        assertEquals(GamePhase.PLAYING, state.getPhase());
+    }
+
+    @Test
+    void finishedGameRejectsEveryVisit() {
+        X01State finished = new X01State(0, 301, X01State.PLAYER_ONE, GamePhase.FINISHED, VisitOutcome.CHECKOUT);
+
+        assertEquals(VisitOutcome.REJECTED, X01Rules.apply(finished, Visit.of(1, 20, 1, 20, 1, 20)).getOutcome());
+    }
+
+    @Test
+    void invalidMultiplicatorsAreRefusedBeforeTheRules() {
+        Validator validator = new Validator();
+
+        assertEquals(0, validator.validateThrows(501, new DartsThrowForm("4:20", "1:20", "1:20")).length);
+        assertEquals(0, validator.validateThrows(501, new DartsThrowForm("0:20", "1:20", "1:20")).length);
+        assertEquals(0, validator.validateThrows(501, new DartsThrowForm("3:25", "1:20", "1:20")).length);
+        assertEquals(0, validator.validateThrows(501, new DartsThrowForm("1:21", "1:20", "1:20")).length);
+        assertEquals(3, validator.validateThrows(501, new DartsThrowForm("2:25", "3:20", "1:0")).length);
+        assertEquals(3, validator.validateThrows(50, new DartsThrowForm("2:25", "none", "none")).length);
+    }
+
+    @Test
+    void everyVisitMatchesItsDarts() {
+        List<Integer> darts = boardDarts();
+        darts.add(0);
+        for (int remaining : new int[]{2, 3, 4, 21, 40, 41, 50, 60, 61, 100, 170, 171, 501}) {
+            for (int first : darts) {
+                for (int second : darts) {
+                    for (int third : darts) {
+                        Visit visit = Visit.ofDarts(first, second, third);
+                        X01State state = X01Rules.apply(playing(remaining), visit);
+                        boolean applied = state.getOutcome() != VisitOutcome.REJECTED;
+                        assertEquals(X01Rules.isValidVisit(remaining, visit), applied);
+                        assertMatchesDarts(remaining, visit, state);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void assertMatchesDarts(int remaining, Visit visit, X01State state) {
+        int points = 0;
+        int lastDart = 0;
+        for (int i = 0; i < Visit.DARTS && !visit.isNone(i); i++) {
+            points += visit.getPoints(i);
+            lastDart = i;
+        }
+        switch (state.getOutcome()) {
+            case SCORED:
+                assertTrue(remaining - points >= 2);
+                assertEquals(remaining - points, state.getPlayerOneScore());
+                assertEquals(X01State.PLAYER_TWO, state.getTurn());
+                break;
+            case CHECKOUT:
+                assertEquals(remaining, points);
+                assertEquals(2, visit.getMultiplicator(lastDart));
+                assertEquals(0, state.getPlayerOneScore());
+                assertTrue(state.isFinished());
+                break;
+            case BUST:
+                assertTrue(remaining - points < 2);
+                assertEquals(remaining, state.getPlayerOneScore());
+                assertEquals(X01State.PLAYER_TWO, state.getTurn());
+                break;
+            default:
+                assertEquals(remaining, state.getPlayerOneScore());
+                assertEquals(X01State.PLAYER_ONE, state.getTurn());
+        }
+    }
+
+    /**
+     * @return - every sector of the board as a packed dart, misses included
+     */
+    static List<Integer> boardDarts() {
+        List<Integer> darts = new ArrayList<>();
+        for (int multiplicator = 1; multiplicator <= 3; multiplicator++) {
+            for (int score = 0; score <= 20; score++) {
+                darts.add(Visit.dart(multiplicator, score));
+            }
+        }
+        darts.add(Visit.dart(1, 25));
+        darts.add(Visit.dart(2, 25));
+        return darts;
+    }
+
+    private static X01State playing(int playerOneScore) {
+        return new X01State(playerOneScore, 501, X01State.PLAYER_ONE, GamePhase.PLAYING, VisitOutcome.SCORED);
+    }
+}
@@ -0,0 +1,328 @@
+package dartsgame.sqlbudget;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dartsgame.game.controller.GameController;
+import dartsgame.game.controller.GameHistoryController;
+import dartsgame.game.persistance.PlayerDirectory;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Calls every endpoint of the game and history APIs with the SQL budgets enforced: a statement or an entity load
+ * over the budget of an endpoint fails its request, and so the test. The counts recorded for each endpoint are
+ * checked against its budget as well, and the statements of every game API request against the exact number its
+ * pipeline needs, so a game loaded twice is caught even where the budget covers a longer path.
+ * <p>
+ * The players are registered before the requests, registering a player new to the node is not part of a budget.
+ */
+@SpringBootTest(properties = {
+        "sql-budget.enforced=true",
+        "spring.datasource.url=jdbc:h2:mem:sqlbudget;DB_CLOSE_DELAY=-1",
+        "sweeper.enabled=false",
+        "telemetry.jfr.enabled=false"})
+@AutoConfigureMockMvc
+class SqlBudgetTest {
+
+    private static final String GAMER_ONE = "ivanhoe@acme.com";
+    private static final String GAMER_TWO = "robinhood@acme.com";
+    private static final String REFEREE = "judgedredd@acme.com";
+    private static final Map<String, String> PASSWORDS = new HashMap<>();
+
+    static {
+        PASSWORDS.put(GAMER_ONE, "oMoa3VvqnLxW");
+        PASSWORDS.put(GAMER_TWO, "ai0y9bMvyF6G");
+        PASSWORDS.put(REFEREE, "iAmALaw100500");
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, String> tokens = new HashMap<>();
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlayerDirectory playerDirectory;
+
+    @BeforeEach
+    void deleteGames() {
+        playerDirectory.register(GAMER_ONE);
+        playerDirectory.register(GAMER_TWO);
+        jdbcTemplate.update("DELETE FROM tournament_game");
+        jdbcTemplate.update("DELETE FROM game_history_history_list");
+        jdbcTemplate.update("DELETE FROM game_state");
+        jdbcTemplate.update("DELETE FROM game_history");
+        jdbcTemplate.update("DELETE FROM games");
+    }
+
+    @Test
+    void createGame() throws Exception {
+        double[] before = counted(GameController.class, "createGame");
+        createGame(GAMER_ONE);
+        assertStatements(GameController.class, "createGame", before, 4);
+        assertWithinBudget(GameController.class, "createGame");
+    }
+
+    @Test
+    void getCurrentGames() throws Exception {
+        createGame(GAMER_ONE);
+        double[] before = counted(GameController.class, "getCurrentGames");
+        mockMvc.perform(as(GAMER_ONE, get("/api/game/list"))).andExpect(status().isOk());
+        assertStatements(GameController.class, "getCurrentGames", before, 1);
+        assertWithinBudget(GameController.class, "getCurrentGames");
+    }
+
+    @Test
+    void joinGame() throws Exception {
+        double[] before = counted(GameController.class, "joinGame");
+        startGame();
+        assertStatements(GameController.class, "joinGame", before, 6);
+        assertWithinBudget(GameController.class, "joinGame");
+    }
+
+    @Test
+    void getGameStatus() throws Exception {
+        startGame();
+        double[] before = counted(GameController.class, "getGameStatus");
+        mockMvc.perform(as(GAMER_ONE, get("/api/game/status"))).andExpect(status().isOk());
+        assertStatements(GameController.class, "getGameStatus", before, 1);
+        assertWithinBudget(GameController.class, "getGameStatus");
+    }
+
+    @Test
+    void pollGameStatus() throws Exception {
+        startGame();
+        double[] before = counted(GameController.class, "pollGameStatus");
+        MvcResult poll = mockMvc.perform(as(GAMER_ONE, get("/api/game/status/poll?since=-1&timeout=1")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        //The id of the game to find its owner, then the status
+        assertStatements(GameController.class, "pollGameStatus", before, 2);
+        mockMvc.perform(asyncDispatch(poll)).andExpect(status().isOk());
+        assertWithinBudget(GameController.class, "pollGameStatus");
+    }
+
+    @Test
+    void postThrows() throws Exception {
+        startGame();
+        double[] before = counted(GameController.class, "postThrows");
+        throwDarts(GAMER_ONE);
+        assertStatements(GameController.class, "postThrows", before, 6);
+        assertWithinBudget(GameController.class, "postThrows");
+    }
+
+    @Test
+    void postFinishingThrows() throws Exception {
+        startGame(101);
+        double[] before = counted(GameController.class, "postThrows");
+        throwDarts(GAMER_ONE, "3:20", "1:1", "2:20");
+        assertStatements(GameController.class, "postThrows", before, 8);
+        assertWithinBudget(GameController.class, "postThrows");
+    }
+
+    @Test
+    void cancelGame() throws Exception {
+        long gameId = startGame();
+        double[] before = counted(GameController.class, "cancelGame");
+        mockMvc.perform(as(REFEREE, put("/api/game/cancel"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"gameId\": " + gameId + ", \"status\": \"Nobody wins!\"}"))
+                .andExpect(status().isOk());
+        assertStatements(GameController.class, "cancelGame", before, 2);
+        assertWithinBudget(GameController.class, "cancelGame");
+    }
+
+    @Test
+    void revertGame() throws Exception {
+        long gameId = startGame();
+        throwDarts(GAMER_ONE);
+        throwDarts(GAMER_TWO);
+        throwDarts(GAMER_ONE);
+        double[] before = counted(GameController.class, "revertGame");
+        mockMvc.perform(as(REFEREE, put("/api/game/revert"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"gameId\": " + gameId + ", \"move\": 1}"))
+                .andExpect(status().isOk());
+        assertStatements(GameController.class, "revertGame", before, 6);
+        assertWithinBudget(GameController.class, "revertGame");
+
+        String history = mockMvc.perform(as(REFEREE, get("/api/history/" + gameId)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(2, objectMapper.readTree(history).size());
+    }
+
+    @Test
+    void deleteGame() throws Exception {
+        long gameId = startGame(101);
+        throwDarts(GAMER_ONE, "3:20", "1:1", "2:20");
+        //The finished history is cached now
+        mockMvc.perform(as(REFEREE, get("/api/history/" + gameId))).andExpect(status().isOk());
+        double[] before = counted(GameController.class, "deleteGame");
+        mockMvc.perform(as(REFEREE, delete("/api/game/delete/" + gameId))).andExpect(status().isOk());
+        assertStatements(GameController.class, "deleteGame", before, 4);
+        assertWithinBudget(GameController.class, "deleteGame");
+
+        mockMvc.perform(as(REFEREE, get("/api/history/" + gameId))).andExpect(status().isNotFound());
+        mockMvc.perform(as(REFEREE, get("/api/history/" + gameId + "/darts"))).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void getGameHistory() throws Exception {
+        long gameId = startGame();
+        throwDarts(GAMER_ONE);
+        mockMvc.perform(as(GAMER_ONE, get("/api/history/" + gameId))).andExpect(status().isOk());
+        assertWithinBudget(GameHistoryController.class, "getGameHistory");
+    }
+
+    @Test
+    void getMoveDarts() throws Exception {
+        long gameId = startGame();
+        throwDarts(GAMER_ONE);
+        mockMvc.perform(as(GAMER_ONE, get("/api/history/" + gameId + "/darts"))).andExpect(status().isOk());
+        assertWithinBudget(GameHistoryController.class, "getMoveDarts");
+    }
+
+    @Test
+    void streamGameHistory() throws Exception {
+        long gameId = startGame();
+        mockMvc.perform(as(GAMER_ONE, get("/api/history/" + gameId + "/stream?timeout=1")))
+                .andExpect(request().asyncStarted());
+        assertWithinBudget(GameHistoryController.class, "streamGameHistory");
+    }
+
+    /**
+     * @return - id of a game created by the first gamer and joined by the second one
+     */
+    private long startGame() throws Exception {
+        return startGame(501);
+    }
+
+    private long startGame(int targetScore) throws Exception {
+        long gameId = createGame(GAMER_ONE, targetScore);
+        mockMvc.perform(as(GAMER_TWO, get("/api/game/join/" + gameId))).andExpect(status().isOk());
+        return gameId;
+    }
+
+    private long createGame(String player) throws Exception {
+        return createGame(player, 501);
+    }
+
+    private long createGame(String player, int targetScore) throws Exception {
+        String game = mockMvc.perform(as(player, post("/api/game/create"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"targetScore\": " + targetScore + "}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(game).get("gameId").asLong();
+    }
+
+    private void throwDarts(String player) throws Exception {
+        throwDarts(player, "1:20", "1:20", "1:20");
+    }
+
+    private void throwDarts(String player, String first, String second, String third) throws Exception {
+        mockMvc.perform(as(player, post("/api/game/throws"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"first\": \"" + first + "\", \"second\": \"" + second
+                                + "\", \"third\": \"" + third + "\"}"))
+                .andExpect(status().isOk());
+    }
+
+    private void assertWithinBudget(Class<?> controller, String methodName) {
+        String endpoint = controller.getSimpleName() + "." + methodName;
+        Method method = Arrays.stream(controller.getMethods())
+                .filter(m -> m.getName().equals(methodName))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError(endpoint + " does not exist"));
+        SqlBudget budget = method.getAnnotation(SqlBudget.class);
+        assertNotNull(budget, endpoint + " has no SQL budget");
+        assertWithin(endpoint, "http.sql.statements", budget.statements());
+        assertWithin(endpoint, "http.sql.entity-loads", budget.entityLoads());
+    }
+
+    /**
+     * @return - number of requests and of statements counted for the endpoint so far
+     */
+    private double[] counted(Class<?> controller, String methodName) {
+        DistributionSummary statements = meterRegistry.find("http.sql.statements")
+                .tag("endpoint", controller.getSimpleName() + "." + methodName).summary();
+        return statements == null ? new double[2] : new double[]{statements.count(), statements.totalAmount()};
+    }
+
+    /**
+     * Checks that exactly one request of the endpoint was counted since before, with the expected statements.
+     */
+    private void assertStatements(Class<?> controller, String methodName, double[] before, int expected) {
+        String endpoint = controller.getSimpleName() + "." + methodName;
+        double[] after = counted(controller, methodName);
+        assertEquals(before[0] + 1, after[0], endpoint + " was not counted once");
+        assertEquals(expected, after[1] - before[1], endpoint + " used another number of statements");
+    }
+
+    private void assertWithin(String endpoint, String metric, int limit) {
+        DistributionSummary counts = meterRegistry.find(metric).tag("endpoint", endpoint).summary();
+        assertNotNull(counts, endpoint + " was not counted in " + metric);
+        assertTrue(counts.count() > 0, endpoint + " was not counted in " + metric);
+        if (limit != SqlBudget.UNLIMITED) {
+            assertTrue(counts.max() <= limit, endpoint + " used " + counts.max() + " of " + limit + " in " + metric);
+        }
+    }
+
+    private MockHttpServletRequestBuilder as(String user, MockHttpServletRequestBuilder request) throws Exception {
+        return request.header(HttpHeaders.AUTHORIZATION, "Bearer " + token(user));
+    }
+
+    private String token(String user) throws Exception {
+        String token = tokens.get(user);
+        if (token != null) {
+            return token;
+        }
+        String client = Base64.getEncoder().encodeToString("hyperdarts:secret".getBytes(StandardCharsets.UTF_8));
+        String response = mockMvc.perform(post("/oauth/token")
+                        .header(HttpHeaders.AUTHORIZATION, "Basic " + client)
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .param("grant_type", "password")
+                        .param("scope", "read write update")
+                        .param("username", user)
+                        .param("password", PASSWORDS.get(user)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode json = objectMapper.readTree(response);
+        token = json.get("access_token").asText();
+        tokens.put(user, token);
+        return token;
+    }
+}